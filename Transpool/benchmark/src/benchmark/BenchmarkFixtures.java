@@ -0,0 +1,211 @@
+package benchmark;
+
+import engine.DAL.transpoolXMLSchema.MapBoundries;
+import engine.TranspoolManager;
+import model.*;
+import model.Map;
+import model.util.collections.Graph;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.*;
+
+/**
+ * Builds seeded, in-memory Transpool worlds for the benchmarks.
+ * The stations are spread over distinct coordinates of a full size map, connected by a chain of
+ * two-way roads (so every route along the chain exists) and by random one-way roads.
+ * Trip offers drive along random stretches of the chain.
+ */
+public class BenchmarkFixtures {
+    public static final long SEED = 42;
+    public static final int MAP_SCALE = Map.MAX_MAP_SCALE;
+
+    private static final int EXTRA_ROADS_PER_STATION = 2;
+
+    private BenchmarkFixtures() {
+    }
+
+    public static List<Station> createStations(int stationCount, Random random) {
+        int maxStations = (MAP_SCALE + 1) * (MAP_SCALE + 1);
+        if (stationCount > maxStations)
+            throw new IllegalArgumentException("A map can't hold more than " + maxStations + " stations.");
+
+        List<Integer> cells = new ArrayList<>(maxStations);
+        for (int i = 0; i < maxStations; i++) {
+            cells.add(i);
+        }
+        Collections.shuffle(cells, random);
+
+        List<Station> stations = new ArrayList<>(stationCount);
+        for (int i = 0; i < stationCount; i++) {
+            stations.add(new Station(stationName(i), cells.get(i) % (MAP_SCALE + 1), cells.get(i) / (MAP_SCALE + 1)));
+        }
+
+        return stations;
+    }
+
+    public static Graph<Station, Road> createStationsGraph(List<Station> stations, Random random) {
+        Graph<Station, Road> graph = new Graph<>();
+        stations.forEach(graph::addVertexIfAbsent);
+
+        Set<Long> usedPairs = new HashSet<>();
+        for (int i = 0; i < stations.size() - 1; i++) {
+            usedPairs.add(pairKey(i, i + 1));
+            usedPairs.add(pairKey(i + 1, i));
+            addRoad(graph, stations.get(i), stations.get(i + 1), false, random);
+        }
+
+        for (int i = 0; i < stations.size() * EXTRA_ROADS_PER_STATION; i++) {
+            int src = random.nextInt(stations.size());
+            int dst = random.nextInt(stations.size());
+            if (src != dst && usedPairs.add(pairKey(src, dst)))
+                addRoad(graph, stations.get(src), stations.get(dst), true, random);
+        }
+
+        return graph;
+    }
+
+    /**
+     * Creates a road network of city scale, bigger than a {@link Map} can hold: the stations are on a square grid,
+     * and most of the neighbouring ones are connected by roads, some of them one-way, with a few diagonal roads.
+     * Unlike the random roads of {@link #createStationsGraph}, the roads only connect nearby stations, like real roads.
+     */
+    public static Graph<Station, Road> createRoadNetwork(List<Station> stations, Random random) {
+        Graph<Station, Road> graph = new Graph<>();
+        stations.forEach(graph::addVertexIfAbsent);
+
+        int side = getGridSide(stations.size());
+        for (int i = 0; i < stations.size(); i++) {
+            int x = i % side;
+            if (x + 1 < side && i + 1 < stations.size() && random.nextInt(10) > 0)
+                addRoad(graph, stations.get(i), stations.get(i + 1), random.nextInt(5) == 0, random);
+            if (i + side < stations.size() && random.nextInt(10) > 0)
+                addRoad(graph, stations.get(i), stations.get(i + side), random.nextInt(5) == 0, random);
+            if (x + 1 < side && i + side + 1 < stations.size() && random.nextInt(10) == 0)
+                addRoad(graph, stations.get(i), stations.get(i + side + 1), false, random);
+        }
+
+        return graph;
+    }
+
+    /**
+     * Creates the stations of {@link #createRoadNetwork}, on the points of a grid.
+     */
+    public static List<Station> createGridStations(int stationCount) {
+        int side = getGridSide(stationCount);
+        List<Station> stations = new ArrayList<>(stationCount);
+        for (int i = 0; i < stationCount; i++) {
+            stations.add(new Station(stationName(i), i % side, i / side));
+        }
+
+        return stations;
+    }
+
+    public static Road createRoad(Station src, Station dst, boolean isOneWay, Random random) {
+        return new Road(src.getName(), dst.getName(), isOneWay,
+                1 + random.nextInt(50), 5 + random.nextInt(20), 30 + random.nextInt(90));
+    }
+
+    /**
+     * Creates offers along the chain of stations. Must be called after the {@link Map} was initialized.
+     */
+    public static Set<TripOffer> createOffers(List<Station> stations, int offerCount, int routeLength, Random random) {
+        Set<TripOffer> offers = new HashSet<>();
+        for (int i = 0; i < offerCount; i++) {
+            offers.add(createOffer(stations, routeLength, random));
+        }
+
+        return offers;
+    }
+
+    public static TripOffer createOffer(List<Station> stations, int routeLength, Random random) {
+        List<Station> route = randomRoute(stations, routeLength, random);
+        List<Road> roads;
+        try {
+            roads = Map.getInstance().getRoadsByStationsList(route);
+        } catch (Exception e) {
+            throw new IllegalStateException("The chain of roads is broken.", e);
+        }
+
+        TripTiming timing = new TripTiming(1, random.nextInt(24), random.nextInt(60), "OneTime");
+        return new TripOffer("Driver" + random.nextInt(1000), 1 + random.nextInt(4), 1 + random.nextInt(10),
+                timing, route, roads);
+    }
+
+    /**
+     * Picks a random stretch of the chain of stations.
+     */
+    public static List<Station> randomRoute(List<Station> stations, int routeLength, Random random) {
+        int length = Math.min(routeLength, stations.size());
+        int first = random.nextInt(stations.size() - length + 1);
+        return new ArrayList<>(stations.subList(first, first + length));
+    }
+
+    /**
+     * Creates requests that each have at least one matching offer.
+     */
+    public static List<TripRequest> createMatchingRequests(List<TripOffer> offers, int requestCount, Random random) {
+        List<TripRequest> requests = new ArrayList<>(requestCount);
+        for (int i = 0; i < requestCount; i++) {
+            TripOffer offer = offers.get(random.nextInt(offers.size()));
+            List<Station> route = offer.getStationsInTrip();
+            int src = random.nextInt(route.size() - 1);
+            int dst = src + 1 + random.nextInt(route.size() - src - 1);
+
+            int departure = offer.getAbsoluteTimeAtStation(route.get(src));
+            requests.add(new TripRequest(new User("Rider" + i), route.get(src).getName(), route.get(dst).getName(), departure));
+        }
+
+        return requests;
+    }
+
+    /**
+     * Resets the system and initializes it with a generated world.
+     */
+    public static TranspoolManager initTranspoolManager(int stationCount, int offerCount, int routeLength, Random random) {
+        List<Station> stations = createStations(stationCount, random);
+        Graph<Station, Road> graph = createStationsGraph(stations, random);
+
+        MapBoundries boundaries = new MapBoundries();
+        boundaries.setWidth(MAP_SCALE);
+        boundaries.setLength(MAP_SCALE);
+
+        TranspoolManager.reset();
+        TranspoolManager manager;
+        try {
+            manager = TranspoolManager.init(boundaries, graph, new HashSet<>());
+        } catch (OperationNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (TripOffer offer : createOffers(stations, offerCount, routeLength, random)) {
+            manager.getTripsManager().addOffer(offer);
+        }
+
+        return manager;
+    }
+
+    public static List<Station> getStationsInOrder(int stationCount) throws Exception {
+        List<Station> stations = new ArrayList<>(stationCount);
+        for (int i = 0; i < stationCount; i++) {
+            stations.add(Map.getInstance().getStation(stationName(i)));
+        }
+
+        return stations;
+    }
+
+    public static String stationName(int index) {
+        return "S" + index;
+    }
+
+    private static void addRoad(Graph<Station, Road> graph, Station src, Station dst, boolean isOneWay, Random random) {
+        graph.addEdge(src, dst, createRoad(src, dst, isOneWay, random), !isOneWay);
+    }
+
+    private static int getGridSide(int stationCount) {
+        return (int) Math.ceil(Math.sqrt(stationCount));
+    }
+
+    private static long pairKey(int src, int dst) {
+        return ((long) src << 32) | dst;
+    }
+}
@@ -0,0 +1,31 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH suites with the GC profiler, so every result comes with its allocation rate
+ * (gc.alloc.rate.norm is the amount of bytes allocated per operation).
+ * Optimizations should be backed by the numbers of a run before and after the change.
+ *
+ * Usage: BenchmarkRunner [suite regex...] - runs all of the suites when none is given.
+ * Parameters can be narrowed with JMH's own runner instead, e.g. -p stationCount=1000.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .addProfiler(GCProfiler.class);
+
+        if (args.length == 0)
+            options.include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark");
+
+        for (String suite : args) {
+            options.include(suite);
+        }
+
+        new Runner(options.build()).run();
+    }
+}
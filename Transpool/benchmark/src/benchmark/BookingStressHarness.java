@@ -0,0 +1,168 @@
+package benchmark;
+
+import engine.TripsManager;
+import model.TripOccurrence;
+import model.TripOffer;
+import model.TripRequest;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hammers {@link TripsManager} with concurrent matches and checks that no leg of an occurrence of an offer was overbooked
+ * and no request was matched twice.
+ * There are a lot more requests than seats, and every thread tries to match every request (starting
+ * from a different one), so the threads keep racing on the same requests and the same last seats.
+ * The throughput of every amount of threads is printed, to show how the matching scales across cores.
+ *
+ * Usage: BookingStressHarness [max threads] [rounds per thread count]
+ * Exits with status 1 if any round broke the invariants.
+ */
+public class BookingStressHarness {
+    private static final int STATION_COUNT = 200;
+    private static final int OFFER_COUNT = 2000;
+    private static final int ROUTE_LENGTH = 8;
+    private static final int REQUEST_COUNT = 20000;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        boolean isValid = true;
+        System.out.printf("%8s %14s %12s %10s %12s%n", "threads", "attempts / ms", "matches", "seats", "violations");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long attempts = 0;
+            long nanos = 0;
+            int matches = 0;
+            int seats = 0;
+            int violations = 0;
+
+            for (int round = 0; round < rounds; round++) {
+                Round result = runRound(threads, new Random(BenchmarkFixtures.SEED + round));
+                attempts += result.attempts;
+                nanos += result.nanos;
+                matches += result.matches;
+                seats += result.seats;
+                violations += result.violations.size();
+                result.violations.forEach(System.out::println);
+            }
+
+            isValid &= violations == 0;
+            System.out.printf("%8d %14.1f %12d %10d %12d%n", threads, attempts / (nanos / 1e6), matches, seats, violations);
+        }
+
+        if (!isValid)
+            System.exit(1);
+    }
+
+    private static Round runRound(int threads, Random random) throws InterruptedException {
+        TripsManager tripsManager = BenchmarkFixtures.initTranspoolManager(STATION_COUNT, OFFER_COUNT, ROUTE_LENGTH, random)
+                .getTripsManager();
+        List<TripOffer> offers = new ArrayList<>(tripsManager.getOffers());
+        List<TripRequest> requests = BenchmarkFixtures.createMatchingRequests(offers, REQUEST_COUNT, random);
+
+        AtomicLong attempts = new AtomicLong();
+        AtomicLong successes = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            int firstRequest = t * REQUEST_COUNT / threads;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    long workerAttempts = 0;
+                    long workerSuccesses = 0;
+                    for (int i = 0; i < REQUEST_COUNT; i++) {
+                        TripRequest request = requests.get((firstRequest + i) % REQUEST_COUNT);
+                        tripsManager.addRequest(request);
+
+                        for (TripOffer offer : tripsManager.getPossibleMatches(request)) {
+                            workerAttempts++;
+                            if (tripsManager.matchRequestToOffer(request, offer)) {
+                                workerSuccesses++;
+                                break;
+                            }
+                        }
+                    }
+
+                    attempts.addAndGet(workerAttempts);
+                    successes.addAndGet(workerSuccesses);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            worker.start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        long nanos = System.nanoTime() - startTime;
+
+        return new Round(attempts.get(), nanos, successes.get(), offers, tripsManager);
+    }
+
+    /**
+     * The results of a single round, checked against the state the manager was left in.
+     */
+    private static class Round {
+        private final long attempts;
+        private final long nanos;
+        private final int matches;
+        private final int seats;
+        private final List<String> violations = new ArrayList<>();
+
+        private Round(long attempts, long nanos, long successes, List<TripOffer> offers, TripsManager tripsManager) {
+            this.attempts = attempts;
+            this.nanos = nanos;
+
+            java.util.Map<TripOccurrence, int[]> occurrence2LegPassengers = new HashMap<>();
+            int matched = 0;
+            for (TripRequest request : tripsManager.getRequests()) {
+                if (request.isMatched()) {
+                    matched++;
+                    TripOffer offer = request.getMatchedTo();
+                    int[] legPassengers = occurrence2LegPassengers.computeIfAbsent(request.getMatchedOccurrence(),
+                            occurrence -> new int[offer.getRoadsInTrip().size()]);
+                    for (int leg = offer.getStationIndex(request.getWantedSourceStation());
+                         leg < offer.getStationIndex(request.getWantedDestStation()); leg++) {
+                        legPassengers[leg]++;
+                    }
+                }
+            }
+
+            int totalSeats = 0;
+            for (TripOffer offer : offers) {
+                int capacity = offer.getBasePassengersCapacity();
+                totalSeats += capacity;
+
+                for (TripOccurrence occurrence : offer.getOccurrences()) {
+                    int[] legPassengers = occurrence2LegPassengers.getOrDefault(occurrence, new int[offer.getRoadsInTrip().size()]);
+                    for (int leg = 0; leg < legPassengers.length; leg++) {
+                        int passengers = legPassengers[leg];
+                        if (passengers > capacity)
+                            violations.add(String.format("Offer %d on day %d has %d passengers on leg %d over a capacity of %d.",
+                                    offer.getId(), occurrence.getDay(), passengers, leg, capacity));
+                        if (occurrence.getRemainingPassengersCapacity(leg, leg + 1) != capacity - passengers)
+                            violations.add(String.format("Offer %d on day %d has %d passengers on leg %d but %d remaining seats of %d.",
+                                    offer.getId(), occurrence.getDay(), passengers, leg,
+                                    occurrence.getRemainingPassengersCapacity(leg, leg + 1), capacity));
+                    }
+                }
+            }
+
+            if (tripsManager.getRequests().size() != REQUEST_COUNT)
+                violations.add(String.format("%d of the %d requests were added.",
+                        tripsManager.getRequests().size(), REQUEST_COUNT));
+            if (successes != matched)
+                violations.add(String.format("%d matches succeeded but %d requests are matched.", successes, matched));
+
+            this.matches = matched;
+            this.seats = totalSeats;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package benchmark;
+
+import model.Enums.RoadCostType;
+import model.Road;
+import model.Station;
+import model.util.collections.CompressedGraph;
+import model.util.collections.ContractionHierarchy;
+import model.util.collections.GraphPath;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the {@link ContractionHierarchy} of a generated road network of city scale, and finding routes
+ * on it against searching for them with Dijkstra's algorithm on the {@link CompressedGraph}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContractionHierarchyBenchmark {
+    private static final int QUERY_COUNT = 1024;
+    private static final int COST_INDEX = RoadCostType.Duration.ordinal();
+
+    @Param({"10000", "100000"})
+    public int stationCount;
+
+    private CompressedGraph<Station, Road> compressedGraph;
+    private ContractionHierarchy<Station, Road> hierarchy;
+    private List<Station> stations;
+    private int[] queries;
+    private int nextQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(BenchmarkFixtures.SEED);
+        stations = BenchmarkFixtures.createGridStations(stationCount);
+        compressedGraph = CompressedGraph.of(BenchmarkFixtures.createRoadNetwork(stations, random),
+                Arrays.asList(RoadCostType.values()));
+        hierarchy = ContractionHierarchy.of(compressedGraph, COST_INDEX);
+
+        queries = new int[QUERY_COUNT * 2];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = random.nextInt(stationCount);
+        }
+    }
+
+    /**
+     * Takes seconds on the bigger networks, so every iteration builds it once.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public ContractionHierarchy<Station, Road> build() {
+        return ContractionHierarchy.of(compressedGraph, COST_INDEX);
+    }
+
+    @Benchmark
+    public double getCost() {
+        int query = nextQuery();
+        return hierarchy.getCost(stations.get(queries[query * 2]), stations.get(queries[query * 2 + 1]));
+    }
+
+    @Benchmark
+    public GraphPath<Station, Road> getShortestPath() {
+        int query = nextQuery();
+        return hierarchy.getShortestPath(stations.get(queries[query * 2]), stations.get(queries[query * 2 + 1]));
+    }
+
+    @Benchmark
+    public GraphPath<Station, Road> getShortestPathDijkstra() {
+        int query = nextQuery();
+        return compressedGraph.getShortestPath(stations.get(queries[query * 2]), stations.get(queries[query * 2 + 1]),
+                COST_INDEX, (station, target) -> 0);
+    }
+
+    private int nextQuery() {
+        int query = nextQuery;
+        nextQuery = (nextQuery + 1) % QUERY_COUNT;
+        return query;
+    }
+}
@@ -0,0 +1,79 @@
+package benchmark;
+
+import model.Enums.RoadCostType;
+import model.Road;
+import model.Station;
+import model.util.collections.CompressedGraph;
+import model.util.collections.DistanceOracle;
+import model.util.collections.GraphPath;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the {@link DistanceOracle} of the stations graph, and getting the cost of a route from it
+ * against searching for the route on the {@link CompressedGraph}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceOracleBenchmark {
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({"100", "1000"})
+    public int stationCount;
+
+    private CompressedGraph<Station, Road> compressedGraph;
+    private DistanceOracle<Station, Road> oracle;
+    private List<Station> stations;
+    private int[] queries;
+    private int nextQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(BenchmarkFixtures.SEED);
+        stations = BenchmarkFixtures.createStations(stationCount, random);
+        compressedGraph = CompressedGraph.of(BenchmarkFixtures.createStationsGraph(stations, random),
+                Arrays.asList(RoadCostType.values()));
+        oracle = DistanceOracle.of(compressedGraph);
+
+        queries = new int[QUERY_COUNT * 2];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = random.nextInt(stationCount);
+        }
+    }
+
+    /**
+     * All the routes by all the {@link RoadCostType}s, on all the cores.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public DistanceOracle<Station, Road> build() {
+        return DistanceOracle.of(compressedGraph);
+    }
+
+    @Benchmark
+    public double getCost() {
+        int query = nextQuery();
+        return oracle.getCost(RoadCostType.Duration.ordinal(), stations.get(queries[query * 2]), stations.get(queries[query * 2 + 1]));
+    }
+
+    @Benchmark
+    public GraphPath<Station, Road> getShortestPath() {
+        int query = nextQuery();
+        return compressedGraph.getShortestPath(stations.get(queries[query * 2]), stations.get(queries[query * 2 + 1]),
+                RoadCostType.Duration.ordinal(), (station, target) -> 0);
+    }
+
+    private int nextQuery() {
+        int query = nextQuery;
+        nextQuery = (nextQuery + 1) % QUERY_COUNT;
+        return query;
+    }
+}
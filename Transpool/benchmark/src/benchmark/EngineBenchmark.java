@@ -0,0 +1,89 @@
+package benchmark;
+
+import engine.Engine;
+import engine.TranspoolManager;
+import model.Station;
+import model.TripRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures posting trip offers and trip requests through {@link Engine}, the way the UI posts them.
+ * Every iteration posts a fixed batch of trips to a freshly generated system, so the amount of posted
+ * trips doesn't keep growing; the score is the time it takes to post the whole batch.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 10, batchSize = EngineBenchmark.INPUT_COUNT)
+@Measurement(iterations = 20, batchSize = EngineBenchmark.INPUT_COUNT)
+@Fork(1)
+public class EngineBenchmark {
+    static final int INPUT_COUNT = 1024;
+
+    @Param({"100", "1000"})
+    public int stationCount;
+
+    @Param({"1000", "10000"})
+    public int offerCount;
+
+    @Param({"5", "20"})
+    public int routeLength;
+
+    private Engine engine;
+    private List<List<String>> routes;
+    private int[] departureHours;
+    private int[] departureMinutes;
+    private int nextInput;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        Random random = new Random(BenchmarkFixtures.SEED);
+        TranspoolManager manager = BenchmarkFixtures.initTranspoolManager(stationCount, offerCount, routeLength, random);
+        Engine.transpoolManager = manager;
+        engine = new Engine();
+
+        List<Station> stations = BenchmarkFixtures.getStationsInOrder(stationCount);
+        routes = new ArrayList<>(INPUT_COUNT);
+        departureHours = new int[INPUT_COUNT];
+        departureMinutes = new int[INPUT_COUNT];
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            List<String> route = new ArrayList<>();
+            BenchmarkFixtures.randomRoute(stations, routeLength, random).forEach(station -> route.add(station.getName()));
+            routes.add(route);
+            departureHours[i] = random.nextInt(24);
+            departureMinutes[i] = random.nextInt(60);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Engine.transpoolManager = null;
+        TranspoolManager.reset();
+    }
+
+    @Benchmark
+    public List<TripRequest> postTripOffer() throws Exception {
+        int i = nextInput();
+        return engine.postTripOffer("Driver" + i, routes.get(i), 1, departureHours[i], departureMinutes[i],
+                "OneTime", 5, 3);
+    }
+
+    @Benchmark
+    public void postTripRequest() throws Exception {
+        int i = nextInput();
+        List<String> route = routes.get(i);
+        engine.postTripRequest("Rider" + i, route.get(0), route.get(route.size() - 1),
+                1, departureHours[i], departureMinutes[i], 0, false);
+    }
+
+    private int nextInput() {
+        int input = nextInput;
+        nextInput = (nextInput + 1) % INPUT_COUNT;
+        return input;
+    }
+}
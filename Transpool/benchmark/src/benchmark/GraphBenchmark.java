@@ -0,0 +1,131 @@
+package benchmark;
+
+import model.Enums.RoadCostType;
+import model.Road;
+import model.Station;
+import model.util.collections.CompressedGraph;
+import model.util.collections.Graph;
+import model.util.collections.GraphPath;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the mutations and queries of the stations {@link Graph}, and the same queries on its {@link CompressedGraph}.
+ * The mutations add an element and remove it right away, so the graph keeps its size between invocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+    private static final int QUERY_COUNT = 1024;
+    private static final int EDGES_PER_ADDED_VERTEX = 4;
+
+    @Param({"100", "1000", "10000"})
+    public int stationCount;
+
+    private Graph<Station, Road> graph;
+    private CompressedGraph<Station, Road> compressedGraph;
+    private List<Station> stations;
+    private Road[] existingRoads;
+    private int[] queries;
+    private int nextQuery;
+
+    private Station addedStation;
+    private Station[] addedNeighbours;
+    private Road[] addedRoads;
+    private Road addedRoad;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(BenchmarkFixtures.SEED);
+        stations = BenchmarkFixtures.createStations(stationCount, random);
+        graph = BenchmarkFixtures.createStationsGraph(stations, random);
+
+        compressedGraph = CompressedGraph.of(graph, Arrays.asList(RoadCostType.values()));
+        existingRoads = graph.getEdges().toArray(new Road[0]);
+        queries = new int[QUERY_COUNT * 2];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = random.nextInt(stationCount);
+        }
+
+        // The map is full, so the added station shares a coordinate; the graph doesn't care
+        addedStation = new Station("Added", 0, 0);
+        addedNeighbours = new Station[EDGES_PER_ADDED_VERTEX];
+        addedRoads = new Road[EDGES_PER_ADDED_VERTEX];
+        for (int i = 0; i < EDGES_PER_ADDED_VERTEX; i++) {
+            addedNeighbours[i] = stations.get(random.nextInt(stationCount));
+            addedRoads[i] = BenchmarkFixtures.createRoad(addedStation, addedNeighbours[i], false, random);
+        }
+
+        addedRoad = BenchmarkFixtures.createRoad(stations.get(0), stations.get(stationCount - 1), true, random);
+    }
+
+    @Benchmark
+    public boolean addAndRemoveVertex() {
+        for (int i = 0; i < EDGES_PER_ADDED_VERTEX; i++) {
+            graph.addEdge(addedStation, addedNeighbours[i], addedRoads[i], true);
+        }
+
+        return graph.removeVertex(addedStation);
+    }
+
+    @Benchmark
+    public boolean addAndRemoveEdge() {
+        graph.addEdge(stations.get(0), stations.get(stationCount - 1), addedRoad, false);
+        graph.removeEdge(addedRoad);
+        return graph.doesEdgeExist(addedRoad);
+    }
+
+    @Benchmark
+    public boolean doesEdgeExist() {
+        return graph.doesEdgeExist(existingRoads[nextQuery() % existingRoads.length]);
+    }
+
+    @Benchmark
+    public Set<Road> getEdges() {
+        return graph.getEdges();
+    }
+
+    @Benchmark
+    public boolean doesPathExist() {
+        int query = nextQuery();
+        return graph.doesPathExist(stations.get(queries[query * 2]), stations.get(queries[query * 2 + 1]));
+    }
+
+    @Benchmark
+    public GraphPath<Station, Road> getShortestPath() {
+        int query = nextQuery();
+        return graph.getShortestPath(stations.get(queries[query * 2]), stations.get(queries[query * 2 + 1]),
+                RoadCostType.Duration);
+    }
+
+    @Benchmark
+    public boolean doesPathExistCompressed() {
+        int query = nextQuery();
+        return compressedGraph.doesPathExist(stations.get(queries[query * 2]), stations.get(queries[query * 2 + 1]));
+    }
+
+    /**
+     * The same Dijkstra search as {@link #getShortestPath()}, on the durations the snapshot computed up front.
+     */
+    @Benchmark
+    public GraphPath<Station, Road> getShortestPathCompressed() {
+        int query = nextQuery();
+        return compressedGraph.getShortestPath(stations.get(queries[query * 2]), stations.get(queries[query * 2 + 1]),
+                RoadCostType.Duration.ordinal(), (station, target) -> 0);
+    }
+
+    private int nextQuery() {
+        int query = nextQuery;
+        nextQuery = (nextQuery + 1) % QUERY_COUNT;
+        return query;
+    }
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import model.util.IdAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures allocating ids from the shared counter of an {@link IdAllocator} by several threads at once,
+ * against allocating them from blocks reserved per thread.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class IdAllocatorBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedAllocator {
+        private final IdAllocator allocator = new IdAllocator();
+
+        // Ids are ints, so the counter is started over before it could overflow
+        @TearDown(Level.Iteration)
+        public void reset() {
+            allocator.reset();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadBlock {
+        @Param({"64", "1024"})
+        public int blockSize;
+
+        private IdAllocator.Block block;
+
+        private int next(IdAllocator allocator) {
+            if (block == null || block.getRemaining() == 0) {
+                if (block != null)
+                    block.close();
+                block = allocator.reserveBlock(blockSize);
+            }
+
+            return allocator.next();
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() {
+            if (block != null)
+                block.close();
+            block = null;
+        }
+    }
+
+    @Benchmark
+    public int next(SharedAllocator shared) {
+        return shared.allocator.next();
+    }
+
+    @Benchmark
+    public int nextFromBlock(SharedAllocator shared, ThreadBlock threadBlock) {
+        return threadBlock.next(shared.allocator);
+    }
+}
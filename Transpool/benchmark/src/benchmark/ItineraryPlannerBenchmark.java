@@ -0,0 +1,66 @@
+package benchmark;
+
+import engine.Matching.ItineraryPlanner;
+import model.Itinerary;
+import model.TripRequest;
+import model.User;
+import model.util.AbsoluteTime;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ItineraryPlanner#plan(TripRequest)} on a generated world.
+ * The requests go twice as far along the chain of stations as a single offer does, so most of them need transfers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItineraryPlannerBenchmark {
+    private static final int REQUEST_COUNT = 1024;
+
+    @Param({"100", "1000"})
+    public int stationCount;
+
+    @Param({"1000", "10000"})
+    public int offerCount;
+
+    @Param({"5", "20"})
+    public int routeLength;
+
+    private ItineraryPlanner planner;
+    private List<TripRequest> requests;
+    private int nextRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(BenchmarkFixtures.SEED);
+        planner = new ItineraryPlanner(BenchmarkFixtures.initTranspoolManager(stationCount, offerCount, routeLength, random)
+                .getTripsManager().getTimetable());
+
+        int distance = Math.min(2 * routeLength, stationCount - 1);
+        requests = new ArrayList<>(REQUEST_COUNT);
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            int src = random.nextInt(stationCount - distance);
+            // The offers all leave on day 1, so leave in its morning to have the rest of the day to get there
+            TripRequest request = new TripRequest(new User("Rider" + i), BenchmarkFixtures.stationName(src),
+                    BenchmarkFixtures.stationName(src + distance), AbsoluteTime.of(1, random.nextInt(12), 0));
+            request.setDoesUserAgreeToStationExchange(true);
+            requests.add(request);
+        }
+    }
+
+    @Benchmark
+    public List<Itinerary> plan() {
+        TripRequest request = requests.get(nextRequest);
+        nextRequest = (nextRequest + 1) % REQUEST_COUNT;
+
+        return planner.plan(request);
+    }
+}
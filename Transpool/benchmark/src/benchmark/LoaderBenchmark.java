@@ -0,0 +1,61 @@
+package benchmark;
+
+import engine.DAL.TranspoolXmlLoader;
+import engine.TranspoolManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TranspoolXmlLoader} on a generated transpool xml file, both through the
+ * JAXB loader and through the streaming loader.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoaderBenchmark {
+
+    @Param({"100", "1000"})
+    public int stationCount;
+
+    @Param({"1000", "10000"})
+    public int offerCount;
+
+    @Param({"5", "20"})
+    public int routeLength;
+
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        file = File.createTempFile("transpool-benchmark-", ".xml");
+        file.deleteOnExit();
+        LoaderTimingHarness.createGenerator(stationCount)
+                .setTripCount(offerCount)
+                .setMaxRouteLength(routeLength)
+                .write(file, request -> {
+                });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        TranspoolManager.reset();
+        file.delete();
+    }
+
+    @Benchmark
+    public TranspoolManager load() throws Exception {
+        TranspoolManager.reset();
+        return TranspoolXmlLoader.Load(file.getPath());
+    }
+
+    @Benchmark
+    public TranspoolManager loadStreaming() throws Exception {
+        TranspoolManager.reset();
+        return TranspoolXmlLoader.LoadStreaming(file.getPath());
+    }
+}
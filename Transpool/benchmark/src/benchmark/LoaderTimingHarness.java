@@ -0,0 +1,70 @@
+package benchmark;
+
+import engine.DAL.TranspoolXmlLoader;
+import model.Map;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Times {@link TranspoolXmlLoader} on generated files of growing sizes.
+ * The files are generated by the {@link WorkloadGenerator} from a fixed seed, so runs on different
+ * commits load the exact same files.
+ * Since every stop, path and trip is validated in constant time, the time per loaded element
+ * should stay flat as the files grow; a growing time per element means some validation went quadratic.
+ *
+ * Usage: LoaderTimingHarness [stations per step...]
+ */
+public class LoaderTimingHarness {
+    private static final long SEED = 42;
+    private static final int TRIPS_PER_STATION = 10;
+    private static final int ROADS_PER_STATION = 3;
+    private static final int MAX_ROUTE_LENGTH = 8;
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int[] stationCounts = args.length == 0
+                ? new int[]{1000, 2000, 4000, 8000}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%10s %10s %10s %12s %14s%n", "stations", "roads", "trips", "load (ms)", "ns / element");
+        for (int stationCount : stationCounts) {
+            File file = File.createTempFile("transpool-" + stationCount + "-", ".xml");
+            file.deleteOnExit();
+            WorkloadGenerator generator = createGenerator(stationCount);
+            generator.write(file, request -> {
+            });
+
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                TranspoolXmlLoader.LoadStreaming(file.getPath());
+            }
+
+            long[] runs = new long[MEASURED_RUNS];
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                long start = System.nanoTime();
+                TranspoolXmlLoader.LoadStreaming(file.getPath());
+                runs[i] = System.nanoTime() - start;
+            }
+
+            Arrays.sort(runs);
+            long median = runs[MEASURED_RUNS / 2];
+            int elements = generator.getStationCount() + generator.getRoadCount() + generator.getTripCount();
+            System.out.printf("%10d %10d %10d %12.1f %14.1f%n", generator.getStationCount(), generator.getRoadCount(),
+                    generator.getTripCount(), median / 1e6, (double) median / elements);
+        }
+    }
+
+    /**
+     * Creates the generator of a file with the given amount of stations on a full size map.
+     */
+    static WorkloadGenerator createGenerator(int stationCount) {
+        int cellsPerAxis = Map.MAX_MAP_SCALE + 1;
+
+        return new WorkloadGenerator(SEED)
+                .setStationDensity((double) stationCount / (cellsPerAxis * cellsPerAxis))
+                .setRoadDensity(ROADS_PER_STATION)
+                .setTripCount(stationCount * TRIPS_PER_STATION)
+                .setMaxRouteLength(MAX_ROUTE_LENGTH);
+    }
+}
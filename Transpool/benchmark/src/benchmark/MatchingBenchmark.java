@@ -0,0 +1,104 @@
+package benchmark;
+
+import engine.TripsManager;
+import model.Enums.MatchCriterion;
+import model.MatchRanking;
+import model.TripOffer;
+import model.TripRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TripsManager#getPossibleMatches(TripRequest)} and
+ * {@link TripsManager#getTopMatches(TripRequest, int, MatchRanking)} on a generated world.
+ * Every request has at least one matching offer, so the full filtering path is exercised.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchingBenchmark {
+    private static final int REQUEST_COUNT = 1024;
+    private static final int TOP_MATCHES_COUNT = 5;
+    private static final int DEPARTURE_FLEXIBILITY = 60;
+    private static final MatchRanking RANKING = MatchRanking.by(MatchCriterion.Price);
+
+    @Param({"100", "1000"})
+    public int stationCount;
+
+    @Param({"1000", "10000"})
+    public int offerCount;
+
+    @Param({"5", "20"})
+    public int routeLength;
+
+    private TripsManager tripsManager;
+    private List<TripRequest> requests;
+    private List<TripRequest> flexibleRequests;
+    private int nextRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(BenchmarkFixtures.SEED);
+        tripsManager = BenchmarkFixtures.initTranspoolManager(stationCount, offerCount, routeLength, random)
+                .getTripsManager();
+
+        List<TripOffer> offers = new ArrayList<>(tripsManager.getOffers());
+        requests = BenchmarkFixtures.createMatchingRequests(offers, REQUEST_COUNT, random);
+
+        flexibleRequests = new ArrayList<>(REQUEST_COUNT);
+        for (TripRequest request : requests) {
+            TripRequest flexibleRequest = new TripRequest(request.getRequestingUser(), request.getWantedSourceStation().getName(),
+                    request.getWantedDestStation().getName(), request.getAbsoluteWantedTripStartTime());
+            flexibleRequest.setDepartureFlexibility(DEPARTURE_FLEXIBILITY);
+            flexibleRequests.add(flexibleRequest);
+        }
+    }
+
+    @Benchmark
+    public List<TripOffer> getPossibleMatches() {
+        return tripsManager.getPossibleMatches(nextRequest());
+    }
+
+    /**
+     * Matches within an hour of the wanted time, on either side.
+     */
+    @Benchmark
+    public List<TripOffer> getPossibleMatchesInWindow() {
+        TripRequest request = flexibleRequests.get(nextRequest);
+        nextRequest = (nextRequest + 1) % REQUEST_COUNT;
+
+        return tripsManager.getPossibleMatches(request);
+    }
+
+    @Benchmark
+    public List<TripOffer> getTopMatches() {
+        return tripsManager.getTopMatches(nextRequest(), TOP_MATCHES_COUNT, RANKING);
+    }
+
+    /**
+     * The full matching followed by a sort and a truncation, which is what the top matches used to cost.
+     */
+    @Benchmark
+    public List<TripOffer> getPossibleMatchesSortedAndTruncated() {
+        TripRequest request = nextRequest();
+        List<TripOffer> matches = tripsManager.getPossibleMatches(request);
+        matches.sort(Comparator.comparingDouble(offer -> RANKING.getScore(request, offer)));
+
+        return matches.subList(0, Math.min(TOP_MATCHES_COUNT, matches.size()));
+    }
+
+    private TripRequest nextRequest() {
+        TripRequest request = requests.get(nextRequest);
+        nextRequest = (nextRequest + 1) % REQUEST_COUNT;
+
+        return request;
+    }
+}
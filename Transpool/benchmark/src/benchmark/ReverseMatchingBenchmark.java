@@ -0,0 +1,98 @@
+package benchmark;
+
+import engine.TripsManager;
+import model.TripOffer;
+import model.TripRequest;
+import model.TripTiming;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TripsManager#getServableRequests(TripOffer)}, finding the pending requests an offer can take,
+ * against scanning all the pending requests, on a generated world with many unmatched requests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReverseMatchingBenchmark {
+    private static final int OFFER_SAMPLE_COUNT = 1024;
+    private static final int DEPARTURE_FLEXIBILITY = 30;
+
+    @Param({"100", "1000"})
+    public int stationCount;
+
+    @Param({"1000"})
+    public int offerCount;
+
+    @Param({"5", "20"})
+    public int routeLength;
+
+    @Param({"10000", "100000"})
+    public int requestCount;
+
+    private TripsManager tripsManager;
+    private List<TripOffer> offers;
+    private List<TripRequest> pendingRequests;
+    private int nextOffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(BenchmarkFixtures.SEED);
+        tripsManager = BenchmarkFixtures.initTranspoolManager(stationCount, offerCount, routeLength, random)
+                .getTripsManager();
+
+        List<TripOffer> allOffers = new ArrayList<>(tripsManager.getOffers());
+        for (TripRequest request : BenchmarkFixtures.createMatchingRequests(allOffers, requestCount, random)) {
+            request.setDepartureFlexibility(DEPARTURE_FLEXIBILITY);
+            tripsManager.addRequest(request);
+        }
+        pendingRequests = tripsManager.getUnmatchedRequests();
+
+        offers = new ArrayList<>(OFFER_SAMPLE_COUNT);
+        for (int i = 0; i < OFFER_SAMPLE_COUNT; i++) {
+            offers.add(allOffers.get(random.nextInt(allOffers.size())));
+        }
+    }
+
+    @Benchmark
+    public List<TripRequest> getServableRequests() {
+        return tripsManager.getServableRequests(nextOffer());
+    }
+
+    /**
+     * Checks every pending request, which is what finding them would cost without the index.
+     */
+    @Benchmark
+    public List<TripRequest> scanPendingRequests() {
+        TripOffer offer = nextOffer();
+        List<TripRequest> servable = new ArrayList<>();
+        for (TripRequest request : pendingRequests) {
+            if (!offer.isStationBefore(request.getWantedSourceStation(), request.getWantedDestStation()))
+                continue;
+
+            int departureTime = TripRequest.getAbsoluteDepartureTime(request, offer);
+            if (TripTiming.roundTime(request.getEarliestDepartureTime()) <= departureTime
+                    && departureTime <= TripTiming.roundTime(request.getLatestDepartureTime())
+                    && TripRequest.isArrivingInTime(request, offer)
+                    && offer.getRemainingPassengersCapacity(TripRequest.getDepartureDay(request, offer),
+                    request.getWantedSourceStation(), request.getWantedDestStation()) > 0)
+                servable.add(request);
+        }
+
+        return servable;
+    }
+
+    private TripOffer nextOffer() {
+        TripOffer offer = offers.get(nextOffer);
+        nextOffer = (nextOffer + 1) % OFFER_SAMPLE_COUNT;
+
+        return offer;
+    }
+}
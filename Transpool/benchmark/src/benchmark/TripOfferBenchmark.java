@@ -0,0 +1,134 @@
+package benchmark;
+
+import model.Station;
+import model.TripOffer;
+import model.TripRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the pricing and timing calculations of {@link TripOffer}, both for the whole trip
+ * and for the part of it a matched request travels.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TripOfferBenchmark {
+    private static final int REQUEST_COUNT = 1024;
+
+    @Param({"100", "1000"})
+    public int stationCount;
+
+    @Param({"1000"})
+    public int offerCount;
+
+    @Param({"5", "20", "80"})
+    public int routeLength;
+
+    private List<TripOffer> offers;
+    private List<TripRequest> requests;
+    private List<TripOffer> requestOffers;
+    private int nextOffer;
+    private int nextRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(BenchmarkFixtures.SEED);
+        offers = new ArrayList<>(BenchmarkFixtures.initTranspoolManager(stationCount, offerCount, routeLength, random)
+                .getTripsManager().getOffers());
+
+        // Every request is created from a single offer, which is the one it's priced against
+        requests = new ArrayList<>(REQUEST_COUNT);
+        requestOffers = new ArrayList<>(REQUEST_COUNT);
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            TripOffer offer = offers.get(random.nextInt(offers.size()));
+            requests.addAll(BenchmarkFixtures.createMatchingRequests(Collections.singletonList(offer), 1, random));
+            requestOffers.add(offer);
+        }
+    }
+
+    @Benchmark
+    public int getTripPrice() {
+        return nextOffer().getTripPrice();
+    }
+
+    @Benchmark
+    public LocalTime getArrivalTime() {
+        return nextOffer().getArrivalTime();
+    }
+
+    @Benchmark
+    public int getAbsoluteArrivalTime() {
+        return nextOffer().getAbsoluteArrivalTime();
+    }
+
+    @Benchmark
+    public double getAvgGasUsage() {
+        return nextOffer().getAvgGasUsage();
+    }
+
+    @Benchmark
+    public LocalTime getWhenAtStation() {
+        TripOffer offer = nextOffer();
+        List<Station> stations = offer.getStationsInTrip();
+        return offer.getWhenAtStation(stations.get(stations.size() - 1));
+    }
+
+    @Benchmark
+    public int getAbsoluteTimeAtStation() {
+        TripOffer offer = nextOffer();
+        List<Station> stations = offer.getStationsInTrip();
+        return offer.getAbsoluteTimeAtStation(stations.get(stations.size() - 1));
+    }
+
+    @Benchmark
+    public int getRequestTripPrice() {
+        int i = nextRequest();
+        return TripRequest.getTripPrice(requests.get(i), requestOffers.get(i));
+    }
+
+    @Benchmark
+    public long getRequestTripDuration() {
+        int i = nextRequest();
+        return TripRequest.getTripDuration(requests.get(i), requestOffers.get(i));
+    }
+
+    @Benchmark
+    public LocalTime getRequestArrivalTime() {
+        int i = nextRequest();
+        return TripRequest.getArrivalTime(requests.get(i), requestOffers.get(i));
+    }
+
+    @Benchmark
+    public int getRequestAbsoluteArrivalTime() {
+        int i = nextRequest();
+        return TripRequest.getAbsoluteArrivalTime(requests.get(i), requestOffers.get(i));
+    }
+
+    @Benchmark
+    public double getRequestAvgGasUsage() {
+        int i = nextRequest();
+        return TripRequest.getAvgGasUsage(requests.get(i), requestOffers.get(i));
+    }
+
+    private TripOffer nextOffer() {
+        TripOffer offer = offers.get(nextOffer);
+        nextOffer = (nextOffer + 1) % offers.size();
+        return offer;
+    }
+
+    private int nextRequest() {
+        int request = nextRequest;
+        nextRequest = (nextRequest + 1) % REQUEST_COUNT;
+        return request;
+    }
+}
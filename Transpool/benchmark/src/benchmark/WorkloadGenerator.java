@@ -0,0 +1,537 @@
+package benchmark;
+
+import model.Enums.RepetitionRate;
+import model.Map;
+import model.Road;
+import model.TripTiming;
+import model.util.AbsoluteTime;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.*;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Generates synthetic Transpool workloads: a valid TransPool xml file (as described by the
+ * {@code engine.DAL.transpoolXMLSchema} classes) and a stream of trip requests that match its planned trips.
+ * <p>
+ * The map is a grid of the configured scale, of which a {@code stationDensity} fraction of the coordinates
+ * hold stations. The stations are connected by a random spanning tree of two-way roads, so every station
+ * can be reached from every other one, and then by extra roads up to an average of {@code roadDensity}
+ * roads per station, a {@code oneWayRatio} fraction of which are one-way.
+ * Every planned trip is a random walk over the roads in their driving directions, and a
+ * {@code recurringRatio} fraction of the trips recur. The requests of a recurring trip are spread over
+ * its first few occurrences.
+ * <p>
+ * The output is fully determined by the seed and the configuration, so runs on different commits can
+ * be compared. The trips and requests are written as they are generated, so only the map is kept in memory.
+ *
+ * Usage: WorkloadGenerator output.xml [trip count] [request count] [station density] [seed]
+ * The requests are written as csv next to the xml file.
+ */
+public class WorkloadGenerator {
+    private static final int MAX_DAY_START = 7;
+    private static final int MAX_REQUESTED_OCCURRENCE = 3;
+    private static final int MAX_CAPACITY = 4;
+    private static final int MAX_PPK = 10;
+    private static final int MIN_FUEL_CONSUMPTION = 5;
+    private static final int MAX_FUEL_CONSUMPTION = 25;
+    private static final int MIN_SPEED_LIMIT = 30;
+    private static final int MAX_SPEED_LIMIT = 120;
+
+    private final long seed;
+    private int mapScale = Map.MAX_MAP_SCALE;
+    private double stationDensity = 0.1;
+    private double roadDensity = 3;
+    private double oneWayRatio = 0.5;
+    private double recurringRatio = 0.3;
+    private int tripCount = 1000;
+    private int maxRouteLength = 8;
+    private int requestCount = 0;
+
+    // The generated map
+    private int stationCount;
+    private int[] xs;
+    private int[] ys;
+    // Every road is {src, dst, one-way (1/0), length, fuel consumption, speed limit, travel minutes}
+    private List<int[]> roads;
+    private List<List<Integer>> outwardRoads;
+
+    public WorkloadGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    //region Configuration
+    public WorkloadGenerator setMapScale(int mapScale) {
+        if (mapScale < Map.MIN_MAP_SCALE || mapScale > Map.MAX_MAP_SCALE)
+            throw new IllegalArgumentException(String.format(
+                    "The map scale must be between %d and %d.", Map.MIN_MAP_SCALE, Map.MAX_MAP_SCALE));
+
+        this.mapScale = mapScale;
+        return this;
+    }
+
+    /**
+     * @param stationDensity The fraction of the map's coordinates that hold a station, in (0, 1].
+     */
+    public WorkloadGenerator setStationDensity(double stationDensity) {
+        if (stationDensity <= 0 || stationDensity > 1)
+            throw new IllegalArgumentException("The station density must be in (0, 1].");
+
+        this.stationDensity = stationDensity;
+        return this;
+    }
+
+    /**
+     * @param roadDensity The average amount of roads per station. At least a spanning tree is always generated.
+     */
+    public WorkloadGenerator setRoadDensity(double roadDensity) {
+        if (roadDensity < 0)
+            throw new IllegalArgumentException("The road density can't be negative.");
+
+        this.roadDensity = roadDensity;
+        return this;
+    }
+
+    /**
+     * @param oneWayRatio The fraction of the roads beyond the spanning tree that are one-way, in [0, 1].
+     */
+    public WorkloadGenerator setOneWayRatio(double oneWayRatio) {
+        if (oneWayRatio < 0 || oneWayRatio > 1)
+            throw new IllegalArgumentException("The one-way ratio must be in [0, 1].");
+
+        this.oneWayRatio = oneWayRatio;
+        return this;
+    }
+
+    /**
+     * @param recurringRatio The fraction of the trips that recur rather than happen one time, in [0, 1].
+     */
+    public WorkloadGenerator setRecurringRatio(double recurringRatio) {
+        if (recurringRatio < 0 || recurringRatio > 1)
+            throw new IllegalArgumentException("The recurring ratio must be in [0, 1].");
+
+        this.recurringRatio = recurringRatio;
+        return this;
+    }
+
+    public WorkloadGenerator setTripCount(int tripCount) {
+        this.tripCount = tripCount;
+        return this;
+    }
+
+    /**
+     * @param maxRouteLength The max amount of stations in a trip's route, at least 2.
+     */
+    public WorkloadGenerator setMaxRouteLength(int maxRouteLength) {
+        if (maxRouteLength < 2)
+            throw new IllegalArgumentException("A route has at least 2 stations.");
+
+        this.maxRouteLength = maxRouteLength;
+        return this;
+    }
+
+    /**
+     * @param requestCount The amount of requests generated along with the trips. Each one matches one of the trips.
+     */
+    public WorkloadGenerator setRequestCount(int requestCount) {
+        this.requestCount = requestCount;
+        return this;
+    }
+    //endregion
+
+    //region Getters
+
+    /**
+     * @return The amount of stations on the generated map, available after it was generated.
+     */
+    public int getStationCount() {
+        return stationCount;
+    }
+
+    /**
+     * @return The amount of roads on the generated map, available after it was generated.
+     */
+    public int getRoadCount() {
+        return roads == null ? 0 : roads.size();
+    }
+
+    public int getTripCount() {
+        return tripCount;
+    }
+    //endregion
+
+    public static void main(String[] args) throws IOException, XMLStreamException {
+        if (args.length == 0) {
+            System.out.println("Usage: WorkloadGenerator output.xml [trip count] [request count] [station density] [seed]");
+            return;
+        }
+
+        File file = new File(args[0]);
+        WorkloadGenerator generator = new WorkloadGenerator(args.length > 4 ? Long.parseLong(args[4]) : BenchmarkFixtures.SEED)
+                .setTripCount(args.length > 1 ? Integer.parseInt(args[1]) : 1000)
+                .setRequestCount(args.length > 2 ? Integer.parseInt(args[2]) : 1000);
+        if (args.length > 3)
+            generator.setStationDensity(Double.parseDouble(args[3]));
+
+        File requestsFile = new File(file.getPath() + ".requests.csv");
+        try (PrintWriter requestsOut = new PrintWriter(new BufferedWriter(new FileWriter(requestsFile)))) {
+            requestsOut.println("user,source,destination,day,hour,minutes");
+            generator.write(file, request -> requestsOut.println(request.toCsv()));
+        }
+
+        System.out.printf("Wrote %d stations, %d roads and %d trips to %s, and the requests to %s%n",
+                generator.getStationCount(), generator.getRoadCount(), generator.getTripCount(), file, requestsFile);
+    }
+
+    /**
+     * Generates the workload into an xml file.
+     *
+     * @param file     The file to write the TransPool xml to.
+     * @param requests Receives the generated requests, in order.
+     */
+    public void write(File file, Consumer<GeneratedTripRequest> requests) throws IOException, XMLStreamException {
+        try (Writer out = new BufferedWriter(new FileWriter(file))) {
+            write(out, requests);
+        }
+    }
+
+    /**
+     * Generates the workload into a writer.
+     *
+     * @param out      Receives the TransPool xml.
+     * @param requests Receives the generated requests, in order.
+     */
+    public void write(Writer out, Consumer<GeneratedTripRequest> requests) throws XMLStreamException {
+        // The map, the trips and the requests are drawn from separate generators, so changing
+        // the amount of trips or requests doesn't change the map
+        Random mapRandom = new Random(seed);
+        Random tripRandom = new Random(seed + 1);
+        Random requestRandom = new Random(seed + 2);
+
+        generateMap(mapRandom);
+
+        XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+        writer.writeStartDocument();
+        writer.writeStartElement("TransPool");
+        writeMapDescriptor(writer);
+
+        writer.writeStartElement("PlannedTrips");
+        int writtenRequests = 0;
+        for (int i = 0; i < tripCount; i++) {
+            int[] route = generateRoute(tripRandom);
+            int startMinute = tripRandom.nextInt(24) * 60;
+            TripTiming timing = writeTrip(writer, route, startMinute / 60, tripRandom);
+
+            // Spread the requests evenly over the trips
+            int tripRequests = (int) ((long) (i + 1) * requestCount / tripCount) - writtenRequests;
+            for (int j = 0; j < tripRequests; j++) {
+                requests.accept(generateRequest(route, timing, writtenRequests++, requestRandom));
+            }
+        }
+        writer.writeEndElement();
+
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+    }
+
+    //region Map Generation
+    private void generateMap(Random random) {
+        int cellsPerAxis = mapScale + 1;
+        int cellCount = cellsPerAxis * cellsPerAxis;
+        stationCount = Math.max(2, (int) Math.round(stationDensity * cellCount));
+        if (stationCount > cellCount)
+            throw new IllegalArgumentException("The map can't hold more than " + cellCount + " stations.");
+
+        // Spread the stations over distinct coordinates
+        int[] cells = new int[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            cells[i] = i;
+        }
+        for (int i = 0; i < stationCount; i++) {
+            int swap = i + random.nextInt(cellCount - i);
+            int cell = cells[swap];
+            cells[swap] = cells[i];
+            cells[i] = cell;
+        }
+
+        xs = new int[stationCount];
+        ys = new int[stationCount];
+        for (int i = 0; i < stationCount; i++) {
+            xs[i] = cells[i] % cellsPerAxis;
+            ys[i] = cells[i] / cellsPerAxis;
+        }
+
+        roads = new ArrayList<>();
+        outwardRoads = new ArrayList<>(stationCount);
+        for (int i = 0; i < stationCount; i++) {
+            outwardRoads.add(new ArrayList<>());
+        }
+
+        // Covered driving directions, so no two roads conflict
+        Set<Long> directions = new HashSet<>();
+
+        // A random spanning tree of two-way roads keeps the map connected
+        for (int i = 1; i < stationCount; i++) {
+            addRoad(i, random.nextInt(i), false, directions, random);
+        }
+
+        // Bounded, since a dense map may not have room for all of the roads
+        int extraRoads = (int) Math.round(roadDensity * stationCount) - (stationCount - 1);
+        int maxAttempts = extraRoads * 4;
+        for (int attempt = 0; extraRoads > 0 && attempt < maxAttempts; attempt++) {
+            int src = random.nextInt(stationCount);
+            int dst = random.nextInt(stationCount);
+            boolean isOneWay = random.nextDouble() < oneWayRatio;
+            if (src == dst || directions.contains(direction(src, dst)))
+                continue;
+
+            // A two-way road can't cover the direction of an existing road, but a one-way road still fits
+            if (!isOneWay && directions.contains(direction(dst, src)))
+                isOneWay = true;
+
+            addRoad(src, dst, isOneWay, directions, random);
+            extraRoads--;
+        }
+    }
+
+    private void addRoad(int src, int dst, boolean isOneWay, Set<Long> directions, Random random) {
+        double distance = Math.hypot(xs[src] - xs[dst], ys[src] - ys[dst]);
+        int length = Math.max(1, (int) Math.ceil(distance));
+        int fuelConsumption = MIN_FUEL_CONSUMPTION + random.nextInt(MAX_FUEL_CONSUMPTION - MIN_FUEL_CONSUMPTION + 1);
+        int speedLimit = MIN_SPEED_LIMIT + random.nextInt(MAX_SPEED_LIMIT - MIN_SPEED_LIMIT + 1);
+        int minutes = getTravelMinutes(length, speedLimit);
+
+        int road = roads.size();
+        roads.add(new int[]{src, dst, isOneWay ? 1 : 0, length, fuelConsumption, speedLimit, minutes});
+
+        directions.add(direction(src, dst));
+        outwardRoads.get(src).add(road);
+        if (!isOneWay) {
+            directions.add(direction(dst, src));
+            outwardRoads.get(dst).add(road);
+        }
+    }
+
+    /**
+     * Gets the travel time of a road, the way the system calculates it.
+     */
+    private static int getTravelMinutes(int length, int speedLimit) {
+        return (int) new Road("", "", true, length, 1, speedLimit).getTravelMinutes();
+    }
+
+    private static long direction(int src, int dst) {
+        return ((long) src << 32) | dst;
+    }
+    //endregion
+
+    //region Trip & Request Generation
+
+    /**
+     * Generates a random walk over the roads, in their driving directions, that doesn't visit a station twice.
+     * The first step always succeeds since the spanning tree gives every station a neighbour.
+     */
+    private int[] generateRoute(Random random) {
+        int length = 2 + random.nextInt(maxRouteLength - 1);
+        int[] route = new int[length];
+        Set<Integer> visited = new HashSet<>();
+
+        route[0] = random.nextInt(stationCount);
+        visited.add(route[0]);
+        int size = 1;
+        while (size < length) {
+            List<Integer> outward = outwardRoads.get(route[size - 1]);
+            int next = -1;
+
+            // Try a few of the roads going out of the station before giving up on extending the route
+            for (int attempt = 0; attempt < outward.size() && next == -1; attempt++) {
+                int candidate = getOtherEnd(outward.get(random.nextInt(outward.size())), route[size - 1]);
+                if (!visited.contains(candidate))
+                    next = candidate;
+            }
+
+            if (next == -1)
+                break;
+
+            route[size++] = next;
+            visited.add(next);
+        }
+
+        return Arrays.copyOf(route, size);
+    }
+
+    private int getOtherEnd(int road, int station) {
+        int[] values = roads.get(road);
+        return values[0] == station ? values[1] : values[0];
+    }
+
+    private GeneratedTripRequest generateRequest(int[] route, TripTiming timing, int index, Random random) {
+        int src = random.nextInt(route.length - 1);
+        int dst = src + 1 + random.nextInt(route.length - src - 1);
+
+        int day = timing.getDay();
+        if (timing.getRepetitionRate().isRecurring())
+            day += timing.getRepetitionRate().getPeriodInDays() * random.nextInt(MAX_REQUESTED_OCCURRENCE + 1);
+
+        int time = AbsoluteTime.of(day, timing.getMinuteOfDay());
+        for (int i = 0; i < src; i++) {
+            time += getRoadMinutes(route[i], route[i + 1]);
+        }
+
+        int minuteOfDay = AbsoluteTime.getMinuteOfDay(time);
+        return new GeneratedTripRequest("Rider" + index, stationName(route[src]), stationName(route[dst]),
+                AbsoluteTime.getDay(time), minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    private int getRoadMinutes(int src, int dst) {
+        for (int road : outwardRoads.get(src)) {
+            if (getOtherEnd(road, src) == dst)
+                return roads.get(road)[6];
+        }
+
+        throw new IllegalStateException("There's no road from " + stationName(src) + " to " + stationName(dst));
+    }
+    //endregion
+
+    //region Xml Writing
+    private void writeMapDescriptor(XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeStartElement("MapDescriptor");
+
+        writer.writeEmptyElement("MapBoundries");
+        writer.writeAttribute("width", String.valueOf(mapScale));
+        writer.writeAttribute("length", String.valueOf(mapScale));
+
+        writer.writeStartElement("Stops");
+        for (int i = 0; i < stationCount; i++) {
+            writer.writeEmptyElement("Stop");
+            writer.writeAttribute("name", stationName(i));
+            writer.writeAttribute("x", String.valueOf(xs[i]));
+            writer.writeAttribute("y", String.valueOf(ys[i]));
+        }
+        writer.writeEndElement();
+
+        writer.writeStartElement("Paths");
+        for (int[] road : roads) {
+            writer.writeStartElement("Path");
+            writer.writeAttribute("from", stationName(road[0]));
+            writer.writeAttribute("to", stationName(road[1]));
+            writer.writeAttribute("one-way", String.valueOf(road[2] == 1));
+            writeTextElement(writer, "Length", String.valueOf(road[3]));
+            writeTextElement(writer, "FuelConsumption", String.valueOf(road[4]));
+            writeTextElement(writer, "SpeedLimit", String.valueOf(road[5]));
+            writer.writeEndElement();
+        }
+        writer.writeEndElement();
+
+        writer.writeEndElement();
+    }
+
+    /**
+     * @return The scheduling of the written trip.
+     */
+    private TripTiming writeTrip(XMLStreamWriter writer, int[] route, int hourStart, Random random) throws XMLStreamException {
+        StringJoiner path = new StringJoiner(",");
+        for (int station : route) {
+            path.add(stationName(station));
+        }
+
+        writer.writeStartElement("TransPoolTrip");
+        writeTextElement(writer, "Owner", "Driver" + random.nextInt(stationCount));
+        writeTextElement(writer, "Capacity", String.valueOf(1 + random.nextInt(MAX_CAPACITY)));
+        writeTextElement(writer, "PPK", String.valueOf(1 + random.nextInt(MAX_PPK)));
+
+        writer.writeEmptyElement("Route");
+        writer.writeAttribute("path", path.toString());
+
+        writer.writeEmptyElement("Scheduling");
+        writer.writeAttribute("hour-start", String.valueOf(hourStart));
+        int dayStart = 1 + random.nextInt(MAX_DAY_START);
+        writer.writeAttribute("day-start", String.valueOf(dayStart));
+        RepetitionRate rate = RepetitionRate.OneTime;
+        if (random.nextDouble() < recurringRatio) {
+            // Any rate but OneTime, which is the default when there are no recurrences
+            RepetitionRate[] rates = RepetitionRate.values();
+            rate = rates[1 + random.nextInt(rates.length - 1)];
+            writer.writeAttribute("recurrences", rate.name());
+        }
+
+        writer.writeEndElement();
+        return new TripTiming(dayStart, hourStart, 0, rate.name());
+    }
+
+    private static void writeTextElement(XMLStreamWriter writer, String name, String text) throws XMLStreamException {
+        writer.writeStartElement(name);
+        writer.writeCharacters(text);
+        writer.writeEndElement();
+    }
+
+    public static String stationName(int index) {
+        return "S" + index;
+    }
+    //endregion
+
+    /**
+     * A trip request in the form it's posted to the engine with.
+     */
+    public static class GeneratedTripRequest {
+        private final String userName;
+        private final String sourceStationName;
+        private final String destStationName;
+        private final int day;
+        private final int hour;
+        private final int minutes;
+
+        GeneratedTripRequest(String userName, String sourceStationName, String destStationName, int day, int hour, int minutes) {
+            this.userName = userName;
+            this.sourceStationName = sourceStationName;
+            this.destStationName = destStationName;
+            this.day = day;
+            this.hour = hour;
+            this.minutes = minutes;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public String getSourceStationName() {
+            return sourceStationName;
+        }
+
+        public String getDestStationName() {
+            return destStationName;
+        }
+
+        public int getDay() {
+            return day;
+        }
+
+        public int getHour() {
+            return hour;
+        }
+
+        public int getMinutes() {
+            return minutes;
+        }
+
+        public LocalTime getTime() {
+            return LocalTime.of(hour, minutes);
+        }
+
+        /**
+         * @return The day and time of the request, as an {@link AbsoluteTime}.
+         */
+        public int getAbsoluteTime() {
+            return AbsoluteTime.of(day, hour, minutes);
+        }
+
+        String toCsv() {
+            return String.join(",", userName, sourceStationName, destStationName,
+                    String.valueOf(day), String.valueOf(hour), String.valueOf(minutes));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package engine;
+
+import model.Station;
+import model.TripOffer;
+import model.util.AbsoluteTime;
+
+import java.util.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The trip offers broken down into connections: a single leg of a single occurrence of an offer, from one
+ * station to the next one at a known time. This is the time-expanded graph the itinerary planner scans.
+ * <p>
+ * The connections are grouped by the day they depart on, and every day is sorted by departure time, so the
+ * connections of consecutive days are scanned in order of time without any merging.
+ * Recurring offers aren't expanded up front: the connections of a day are built the first time the day is
+ * asked for, from the one time offers of that day and the recurring offers that occur around it, and cached
+ * until an offer is added.
+ * <p>
+ * The stations, and the occurrences that have connections, get dense indexes in order of first appearance,
+ * so planners can keep their labels in arrays.
+ * Thread-Safe: adding offers and building days are serialized, and days that were already built are read without locking.
+ */
+public class ConnectionTimetable {
+    private static final Connection[] NO_CONNECTIONS = new Connection[0];
+
+    private final Map<Station, Integer> station2Index;
+    private final Map<Integer, List<Connection>> day2OneTimeConnections;
+    private final List<TripOffer> recurringOffers;
+    private final Map<Integer, Connection[]> day2Connections;
+    // Guarded by this
+    private final Map<Long, Integer> occurrence2TripIndex;
+
+    public ConnectionTimetable() {
+        station2Index = new ConcurrentHashMap<>();
+        day2OneTimeConnections = new HashMap<>();
+        recurringOffers = new ArrayList<>();
+        day2Connections = new ConcurrentHashMap<>();
+        occurrence2TripIndex = new HashMap<>();
+    }
+
+    public synchronized void add(TripOffer offer) {
+        for (Station station : offer.getStationsInTrip()) {
+            station2Index.putIfAbsent(station, station2Index.size());
+        }
+
+        if (offer.getTiming().getRepetitionRate().isRecurring()) {
+            recurringOffers.add(offer);
+            day2Connections.clear();
+            return;
+        }
+
+        int day = offer.getTiming().getDay();
+        for (int leg = 0; leg < offer.getRoadsInTrip().size(); leg++) {
+            Connection connection = new Connection(offer, day, leg);
+            day2OneTimeConnections.computeIfAbsent(connection.getDepartureDay(), key -> new ArrayList<>()).add(connection);
+            day2Connections.remove(connection.getDepartureDay());
+        }
+    }
+
+    /**
+     * @return The connections that depart on the day, in order of departure time.
+     */
+    public Connection[] getConnections(int day) {
+        Connection[] connections = day2Connections.get(day);
+        return connections != null ? connections : buildConnections(day);
+    }
+
+    /**
+     * @return The index of the station, or -1 if no offer passes through it.
+     */
+    public int getStationIndex(Station station) {
+        Integer index = station2Index.get(station);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return The amount of stations that have an index, for sizing arrays by them.
+     */
+    public int getStationCount() {
+        return station2Index.size();
+    }
+
+    /**
+     * @return The amount of occurrences that have connections in the days built so far, which is more than any
+     * trip index of their connections.
+     */
+    public synchronized int getTripCount() {
+        return occurrence2TripIndex.size();
+    }
+
+    //region Private Methods
+    private synchronized Connection[] buildConnections(int day) {
+        Connection[] built = day2Connections.get(day);
+        if (built != null)
+            return built;
+
+        List<Connection> connections = new ArrayList<>(day2OneTimeConnections.getOrDefault(day, Collections.emptyList()));
+        for (TripOffer offer : recurringOffers) {
+            int firstDay = offer.getTiming().getDay();
+
+            for (int leg = 0; leg < offer.getRoadsInTrip().size(); leg++) {
+                // The leg departs the same amount of days after the occurrence departs in every occurrence
+                int daysIntoTrip = AbsoluteTime.getDay(offer.getAbsoluteTimeAtStationIndex(leg)) - firstDay;
+                int occurrenceDay = day - daysIntoTrip;
+
+                if (offer.getTiming().isOccurringOn(occurrenceDay))
+                    connections.add(new Connection(offer, occurrenceDay, leg));
+            }
+        }
+
+        connections.sort(Comparator.comparingInt(Connection::getDepartureTime));
+        built = connections.isEmpty() ? NO_CONNECTIONS : connections.toArray(NO_CONNECTIONS);
+        day2Connections.put(day, built);
+
+        return built;
+    }
+    //endregion
+
+    /**
+     * A leg of an occurrence of an offer, from the station at a position of its route to the next one.
+     */
+    public final class Connection {
+        private final TripOffer offer;
+        private final int occurrenceDay;
+        private final int leg;
+        private final int tripIndex;
+        private final int fromStation;
+        private final int toStation;
+        private final int departureTime;
+        private final int arrivalTime;
+
+        private Connection(TripOffer offer, int occurrenceDay, int leg) {
+            int daysShift = (occurrenceDay - offer.getTiming().getDay()) * AbsoluteTime.MINUTES_PER_DAY;
+
+            this.offer = offer;
+            this.occurrenceDay = occurrenceDay;
+            this.leg = leg;
+            this.tripIndex = occurrence2TripIndex.computeIfAbsent(getOccurrenceKey(), key -> occurrence2TripIndex.size());
+            this.fromStation = station2Index.get(offer.getStationsInTrip().get(leg));
+            this.toStation = station2Index.get(offer.getStationsInTrip().get(leg + 1));
+            this.departureTime = offer.getAbsoluteTimeAtStationIndex(leg) + daysShift;
+            this.arrivalTime = offer.getAbsoluteTimeAtStationIndex(leg + 1) + daysShift;
+        }
+
+        public TripOffer getOffer() {
+            return offer;
+        }
+
+        /**
+         * @return The day the occurrence of the offer that the connection is a part of departs on.
+         */
+        public int getOccurrenceDay() {
+            return occurrenceDay;
+        }
+
+        /**
+         * @return The position of the connection's first station in the route of the offer.
+         */
+        public int getLeg() {
+            return leg;
+        }
+
+        /**
+         * @return The index of the occurrence of the offer, which is the same for all of its connections.
+         */
+        public int getTripIndex() {
+            return tripIndex;
+        }
+
+        public int getFromStation() {
+            return fromStation;
+        }
+
+        public int getToStation() {
+            return toStation;
+        }
+
+        public int getDepartureTime() {
+            return departureTime;
+        }
+
+        public int getArrivalTime() {
+            return arrivalTime;
+        }
+
+        public int getDepartureDay() {
+            return AbsoluteTime.getDay(departureTime);
+        }
+
+        /**
+         * @return True if the occurrence has a free seat on this leg.
+         */
+        public boolean hasFreeSeat() {
+            return offer.getRemainingPassengersCapacity(occurrenceDay, leg, leg + 1) > 0;
+        }
+
+        //region Private Methods
+        private long getOccurrenceKey() {
+            return ((long) offer.getId() << Integer.SIZE) | (occurrenceDay & 0xFFFFFFFFL);
+        }
+        //endregion
+    }
+}
@@ -0,0 +1,108 @@
+package engine.DAL;
+
+import engine.DAL.transpoolXMLSchema.MapBoundries;
+import model.Road;
+import model.Station;
+import model.util.collections.Graph;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The state of a single load of a transpool xml file.
+ * Holds the graph that is being built, along with indexes over it that let every
+ * validation of a stop, path or trip run in constant time per element:
+ * a grid of the occupied coordinates, a map of the stations by name, and a map of the
+ * roads by the stations they can be driven from and to.
+ */
+class MapLoadingContext {
+    private final MapBoundries boundaries;
+    private final Graph<Station, Road> stationsGraph;
+
+    private final Station[][] occupancyGrid;
+    private final Map<String, Station> name2Station;
+    private final Map<String, Map<String, Road>> src2Dst2Road;
+
+    MapLoadingContext(MapBoundries boundaries) {
+        this.boundaries = boundaries;
+        this.stationsGraph = new Graph<>();
+
+        // Coordinates on the map range from 0 to the width/length inclusive
+        this.occupancyGrid = new Station[boundaries.getWidth() + 1][boundaries.getLength() + 1];
+        this.name2Station = new HashMap<>();
+        this.src2Dst2Road = new HashMap<>();
+    }
+
+    //region Getters
+    MapBoundries getBoundaries() {
+        return boundaries;
+    }
+
+    Graph<Station, Road> getStationsGraph() {
+        return stationsGraph;
+    }
+    //endregion
+
+    //region Stations
+    Station getStation(String name) {
+        return name2Station.get(name);
+    }
+
+    boolean hasStation(String name) {
+        return name2Station.containsKey(name);
+    }
+
+    /**
+     * @return The station that occupies the coordinate, or null if it's free.
+     * The coordinate must be within the boundaries of the map.
+     */
+    Station getStationAt(int x, int y) {
+        return occupancyGrid[x][y];
+    }
+
+    void addStation(Station station) {
+        int x = station.getCoordinate().x;
+        int y = station.getCoordinate().y;
+
+        occupancyGrid[x][y] = station;
+        name2Station.put(station.getName(), station);
+        stationsGraph.addVertexIfAbsent(station);
+    }
+    //endregion
+
+    //region Roads
+
+    /**
+     * @return The road that can be driven from {@code src} to {@code dst}, or null if there is none.
+     */
+    Road getRoad(String src, String dst) {
+        Map<String, Road> dst2Road = src2Dst2Road.get(src);
+        return dst2Road == null ? null : dst2Road.get(dst);
+    }
+
+    /**
+     * Checks whether a new road would cover a driving direction that an existing road already covers.
+     */
+    boolean isRoadConflicting(Road road) {
+        String src = road.getSourceStationName();
+        String dst = road.getDestStationName();
+
+        return getRoad(src, dst) != null || (!road.isOneWay() && getRoad(dst, src) != null);
+    }
+
+    void addRoad(Road road) {
+        Station src = getStation(road.getSourceStationName());
+        Station dst = getStation(road.getDestStationName());
+
+        indexRoad(src.getName(), dst.getName(), road);
+        if (!road.isOneWay())
+            indexRoad(dst.getName(), src.getName(), road);
+
+        stationsGraph.addEdge(src, dst, road, !road.isOneWay());
+    }
+
+    private void indexRoad(String src, String dst, Road road) {
+        src2Dst2Road.computeIfAbsent(src, key -> new HashMap<>()).put(dst, road);
+    }
+    //endregion
+}
@@ -2,11 +2,10 @@ package engine.DAL;
 
 import engine.DAL.transpoolXMLSchema.*;
 import engine.TranspoolManager;
-import model.CustomExceptions.FormattedMessageException;
-import model.CustomExceptions.StationDoesNotExistException;
 import model.CustomExceptions.TranspoolXmlValidationException;
 import model.CustomExceptions.UnsupportedFileTypeException;
 import model.*;
+import model.util.IdAllocator;
 import model.util.collections.Graph;
 
 import javax.naming.OperationNotSupportedException;
@@ -14,7 +13,7 @@ import javax.xml.bind.JAXBException;
 import java.awt.*;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -25,6 +24,9 @@ public class TranspoolXmlLoader {
     private static final String SUPPORTED_FILE_TYPE = "xml";
     private static final String ROUTE_PATH_SEPARATOR = ",";
 
+    // Files larger than this are loaded element by element instead of as a whole DOM
+    private static final long STREAMING_THRESHOLD_BYTES = 16 * 1024 * 1024;
+
     /**
      * The main function that loads a transpool xml file to the system.
      * This is the public entry point to be called from the Engine class to take care of the
@@ -40,11 +42,30 @@ public class TranspoolXmlLoader {
      */
     public static TranspoolManager Load(String path) throws FileNotFoundException, UnsupportedFileTypeException, JAXBException, TranspoolXmlValidationException {
         File file = assertFilePath(path);
+
+        if (file.length() > STREAMING_THRESHOLD_BYTES)
+            return TranspoolXmlStreamLoader.Load(file);
+
         TransPool xmlRoot = TranspoolXmlSerializer.deserialize(file);
 
         return PopulateModels(xmlRoot);
     }
 
+    /**
+     * Loads a transpool xml file to the system without building the DOM of the whole file first.
+     * The elements of the file are validated and turned into models one by one as they are read,
+     * so the memory used for loading does not grow with the size of the file.
+     *
+     * @param path The path to the file that the user wishes to load.
+     * @throws FileNotFoundException           In case the file in the specified path doesn't exist.
+     * @throws UnsupportedFileTypeException    In case the file in the specified path isn't a xml file.
+     * @throws TranspoolXmlValidationException In case the file is not well formed or its content is
+     *                                         invalid according to the system's requirements
+     */
+    public static TranspoolManager LoadStreaming(String path) throws FileNotFoundException, UnsupportedFileTypeException, TranspoolXmlValidationException {
+        return TranspoolXmlStreamLoader.Load(assertFilePath(path));
+    }
+
     /**
      * Runs validation tests for the content of the xml file.
      * If all tests pass, instantiates the models of the system.
@@ -59,20 +80,42 @@ public class TranspoolXmlLoader {
         // The boundaries of the map must be checked first, because the other objects
         // depend on the map (validation of stations coordinates etc.)
         assertMapBoundaries(boundaries);
+        MapLoadingContext context = new MapLoadingContext(boundaries);
 
         List<Stop> stops = xmlRoot.getMapDescriptor().getStops().getStop();
-
-        assertStationsInMapRange(boundaries, stops);
-        Graph<Station, Road> stationsGraph = createStationsGraph(stops);
+        createStations(context, stops);
 
         List<Path> paths = xmlRoot.getMapDescriptor().getPaths().getPath();
-        createRoads(paths, stationsGraph);
+        createRoads(context, paths);
 
         List<TransPoolTrip> xmlTrips = xmlRoot.getPlannedTrips().getTransPoolTrip();
-        Set<TripOffer> tripOffers = createTripOffers(stationsGraph, xmlTrips);
+        int previousLastOfferId = restartTripOfferIds();
+        Set<TripOffer> tripOffers;
+        // The offers created on this thread take their ids from the block, so it's closed as soon as they're created
+        IdAllocator.Block offerIds = TripOffer.getIdAllocator().reserveBlock(xmlTrips.size());
+        try {
+            try {
+                tripOffers = createTripOffers(context, xmlTrips);
+            } finally {
+                offerIds.close();
+            }
+        } catch (TranspoolXmlValidationException | RuntimeException e) {
+            restoreTripOfferIds(previousLastOfferId);
+            throw e;
+        }
+
+        return initTranspoolManager(boundaries, context.getStationsGraph(), tripOffers);
+    }
 
+    /**
+     * Recreates the {@link TranspoolManager} with the models that were loaded.
+     */
+    static TranspoolManager initTranspoolManager(MapBoundries boundaries, Graph<Station, Road> stationsGraph, Set<TripOffer> tripOffers) {
         // In case the transpoolManager is being recreated (This is not the first file loaded).
+        // The loaded offers were numbered from 1 and keep their ids through the reset.
+        int lastOfferId = TripOffer.getIdAllocator().getLastId();
         TranspoolManager.reset();
+        TripOffer.getIdAllocator().resetTo(lastOfferId);
         try {
             return TranspoolManager.init(boundaries, stationsGraph, tripOffers);
         } catch (OperationNotSupportedException e) {
@@ -82,6 +125,24 @@ public class TranspoolXmlLoader {
         }
     }
 
+    /**
+     * Starts the ids of the trip offers over from 1, since the loaded offers replace the current ones.
+     *
+     * @return The last id of the current offers, to restore with {@link #restoreTripOfferIds(int)} if the load fails.
+     */
+    static int restartTripOfferIds() {
+        int lastOfferId = TripOffer.getIdAllocator().getLastId();
+        TripOffer.getIdAllocator().reset();
+        return lastOfferId;
+    }
+
+    /**
+     * Continues the ids of the current trip offers after a failed load, so new offers don't reuse their ids.
+     */
+    static void restoreTripOfferIds(int lastOfferId) {
+        TripOffer.getIdAllocator().resetTo(lastOfferId);
+    }
+
     //region Technical File Structure Validation
 
     /**
@@ -116,7 +177,7 @@ public class TranspoolXmlLoader {
      *                   requirements (Max-Min height & width)
      * @return True if the loaded boundaries are within valid range. False otherwise.
      */
-    private static void assertMapBoundaries(MapBoundries boundaries)
+    static void assertMapBoundaries(MapBoundries boundaries)
             throws TranspoolXmlValidationException {
         int length = boundaries.getLength();
         int width = boundaries.getWidth();
@@ -147,117 +208,129 @@ public class TranspoolXmlLoader {
     }
 
     /**
-     * Checks that the coordinate of each stop is located within the defined range of the map.
+     * Checks that the coordinate of a stop is located within the defined range of the map.
      *
      * @param boundaries The boundaries of the defined map.
-     * @param stops      The list of stops to to assert that all of them are within teh map surface.
-     * @throws TranspoolXmlValidationException If one of the stops is discovered outside the boundaries of the map.
+     * @param stop       The stop to to assert that it is within the map surface.
+     * @throws TranspoolXmlValidationException If the stop is outside the boundaries of the map.
      */
-    private static void assertStationsInMapRange(MapBoundries boundaries, List<Stop> stops)
+    private static void assertStationInMapRange(MapBoundries boundaries, Stop stop)
             throws TranspoolXmlValidationException {
         int mapLength = boundaries.getLength();
         int mapWidth = boundaries.getWidth();
 
+        int stopWidth = stop.getX();
+        int stopLength = stop.getY();
+        if (!Map.isOnMap(mapLength, mapWidth, new Point(stopWidth, stopLength)))
+            throw new TranspoolXmlValidationException(
+                    "The station named %s is not within the boundaries of the map.",
+                    stop.getName().trim()
+            );
+    }
+
+    private static void createStations(MapLoadingContext context, List<Stop> stops)
+            throws TranspoolXmlValidationException {
         for (Stop stop : stops) {
-            int stopWidth = stop.getX();
-            int stopLength = stop.getY();
-            if (!Map.isOnMap(mapLength, mapWidth, new Point(stopWidth, stopLength)))
-                throw new TranspoolXmlValidationException(
-                        "The station named %s is not within the boundaries of the map.",
-                        stop.getName().trim()
-                );
+            addStation(context, stop);
         }
-
     }
 
-    private static Graph<Station, Road> createStationsGraph(List<Stop> stops)
+    /**
+     * Validates a single stop of the file and adds it to the map as a station.
+     *
+     * @param context The state of the current load.
+     * @param stop    The stop to add.
+     * @throws TranspoolXmlValidationException In case the stop is out of the map's boundaries, or
+     *                                         it overlaps or has the same name as another station.
+     */
+    static void addStation(MapLoadingContext context, Stop stop)
             throws TranspoolXmlValidationException {
-        Graph<Station, Road> stationsGraph = new Graph<>();
+        String name = stop.getName().trim();
+        int x = stop.getX();
+        int y = stop.getY();
 
-        for (Stop stop : stops) {
-            String name = stop.getName().trim();
-            int x = stop.getX();
-            int y = stop.getY();
+        assertStationInMapRange(context.getBoundaries(), stop);
+        assertOverlappingStations(context, stop);
 
-            assertOverlappingStations(stationsGraph.getVertices(), stop);
-
-            // If the set already contained a station that's equal to the
-            // current station (has equal name or equal coordinate)
-            if (!stationsGraph.addVertexIfAbsent(new Station(name, x, y))) {
-                throw new TranspoolXmlValidationException(
-                        "A station with the name '%s' already exist in the system and cannot be added more than once.",
-                        name, x, y
-                );
-            }
+        if (context.hasStation(name)) {
+            throw new TranspoolXmlValidationException(
+                    "A station with the name '%s' already exist in the system and cannot be added more than once.",
+                    name, x, y
+            );
         }
 
-        return stationsGraph;
+        context.addStation(new Station(name, x, y));
     }
 
     /**
-     * Checks if there is already a station in the stations set with the same coordinates
+     * Checks if there is already a station on the map with the same coordinates
      * as the specified stop.
      *
-     * @param stations The stations that exist in the map.
-     * @param stop     The station to check if it is not overlapping any other station and can
-     *                 be added to the set.
-     * @throws TranspoolXmlValidationException In case there is already a station in the set
+     * @param context The state of the current load, holding the coordinates occupied by stations.
+     * @param stop    The station to check if it is not overlapping any other station and can
+     *                be added to the map.
+     * @throws TranspoolXmlValidationException In case there is already a station
      *                                         that occupies the coordinate of the checked stop
      */
-    private static void assertOverlappingStations(Set<Station> stations, Stop stop) throws TranspoolXmlValidationException {
+    private static void assertOverlappingStations(MapLoadingContext context, Stop stop) throws TranspoolXmlValidationException {
         int x = stop.getX(), y = stop.getY();
         String stopName = stop.getName();
+        Station occupyingStation = context.getStationAt(x, y);
 
-        if (Station.isStationOverlappingAnother(stations, x, y))
+        if (occupyingStation != null)
             throw new TranspoolXmlValidationException(
                     "Cannot add station %s to coordinate (%d, %d) since this coordinate is occupied by station %s.",
-                    stopName, x, y, Station.getStationByCoordinate(stations, x, y).getName()
+                    stopName, x, y, occupyingStation.getName()
             );
     }
 
 
     /**
-     * Checks the list of paths given in the file is valid, and returns a Set containing the
-     * roads of the map.
+     * Checks the list of paths given in the file is valid, and adds them to the map as roads.
      *
-     * @param paths         The {@link List} of paths given from the file.
-     * @param stationsGraph The data structure ({@link Graph>}) that contains the stations in the map.
-     *                      the file specifies in case data in it is valid.
+     * @param context The state of the current load, holding the stations of the map.
+     * @param paths   The {@link List} of paths given from the file.
      * @throws TranspoolXmlValidationException In case the source or destination of at least one path do not exist in
-     *                                         the stations Set, or, if two paths in the list have the same source and destination.
+     *                                         the map, or, if two paths in the list have the same source and destination.
      */
-    private static void createRoads(List<Path> paths, Graph<Station, Road> stationsGraph)
+    private static void createRoads(MapLoadingContext context, List<Path> paths)
             throws TranspoolXmlValidationException {
         for (Path path : paths) {
-            String srcStationName = path.getFrom().trim();
-            String dstStationName = path.getTo().trim();
+            addRoad(context, path);
+        }
+    }
 
-            Road newRoad = createRoadFromPath(path, stationsGraph.getVertices());
+    /**
+     * Validates a single path of the file and adds it to the map as a road.
+     *
+     * @param context The state of the current load.
+     * @param path    The path to add.
+     * @throws TranspoolXmlValidationException In case the source or destination of the path do not exist, or if
+     *                                         there is already a road that can be driven in the same direction.
+     */
+    static void addRoad(MapLoadingContext context, Path path)
+            throws TranspoolXmlValidationException {
+        String srcStationName = path.getFrom().trim();
+        String dstStationName = path.getTo().trim();
 
-            // Check if the set already contains the new road (considers cases of two-way roads)
-            if (stationsGraph.doesEdgeExist(newRoad)) {
-                throw new TranspoolXmlValidationException(
-                        "A road between these two stations, %s and %s, already exist in the system.",
-                        srcStationName, dstStationName
-                );
-            }
+        Road newRoad = createRoadFromPath(context, path);
 
-            try {
-                Station srcStation = Station.getStationByName(stationsGraph.getVertices(), srcStationName);
-                Station dstStation = Station.getStationByName(stationsGraph.getVertices(), dstStationName);
-                stationsGraph.addEdge(srcStation, dstStation, newRoad, !newRoad.isOneWay());
-            } catch (StationDoesNotExistException e) {
-                e.printStackTrace();
-                // Won't happen, since I checked they exist in assertPathSrcAndDst
-            }
+        // Check if the map already contains the new road (considers cases of two-way roads)
+        if (context.isRoadConflicting(newRoad)) {
+            throw new TranspoolXmlValidationException(
+                    "A road between these two stations, %s and %s, already exist in the system.",
+                    srcStationName, dstStationName
+            );
         }
+
+        context.addRoad(newRoad);
     }
 
-    private static Road createRoadFromPath(Path path, Collection<Station> existingStations) throws TranspoolXmlValidationException {
+    private static Road createRoadFromPath(MapLoadingContext context, Path path) throws TranspoolXmlValidationException {
         String srcStationName = path.getFrom().trim();
         String dstStationName = path.getTo().trim();
 
-        assertPathSrcAndDst(existingStations, srcStationName, dstStationName);
+        assertPathSrcAndDst(context, srcStationName, dstStationName);
 
 
         boolean isOneWay = path.isOneWay();
@@ -269,25 +342,24 @@ public class TranspoolXmlLoader {
     }
 
     /**
-     * Checks for a given path that its source and destination Stations exist in the given
-     * stations Set.
+     * Checks for a given path that its source and destination Stations exist on the map.
      *
-     * @param stations   The set of existing Stations in the system.
+     * @param context    The state of the current load, holding the stations of the map.
      * @param srcStation Path's source station to check that exist.
      * @param dstStation Path's destination station to check that exist.
      * @throws TranspoolXmlValidationException In case one of the source or destination stations
      *                                         of the path do not exist.
      */
-    private static void assertPathSrcAndDst(Collection<Station> stations, String srcStation, String dstStation)
+    private static void assertPathSrcAndDst(MapLoadingContext context, String srcStation, String dstStation)
             throws TranspoolXmlValidationException {
-        // If the stations Set doesn't contain the source or dest stations
+        // If the map doesn't contain the source or dest stations
         // - throw an exception with a matching description for each case
-        if (!Station.containsStationByName(stations, srcStation))
+        if (!context.hasStation(srcStation))
             throw new TranspoolXmlValidationException(
                     "The source station on the path from %s to %s does not exist.",
                     srcStation, dstStation
             );
-        if (!Station.containsStationByName(stations, dstStation))
+        if (!context.hasStation(dstStation))
             throw new TranspoolXmlValidationException(
                     "The destination station on the path from %s to %s does not exist.",
                     srcStation, dstStation
@@ -297,96 +369,67 @@ public class TranspoolXmlLoader {
     /**
      * Checks that the list of trip offers from the file is valid, and returns a {@link Set} of the {@link TripOffer}s
      *
-     * @param stationsGraph The {@link Graph} containing the stations and roads on the map.
-     * @param xmlTrips      The list of trip offers given from the xml file.
+     * @param context  The state of the current load, holding the stations and roads on the map.
+     * @param xmlTrips The list of trip offers given from the xml file.
      * @return A {@code Set<TripOffer>} containing the trip offers given in the file.
      * @throws TranspoolXmlValidationException In case the list of trip offers in the file in
      *                                         invalid i.e contains non-existent stations or roads etc.
      */
-    private static Set<TripOffer> createTripOffers(Graph<Station, Road> stationsGraph, List<TransPoolTrip> xmlTrips)
+    private static Set<TripOffer> createTripOffers(MapLoadingContext context, List<TransPoolTrip> xmlTrips)
             throws TranspoolXmlValidationException {
         Set<TripOffer> tripOffers = new HashSet<>();
 
         for (TransPoolTrip trip : xmlTrips) {
-            Route tripRoute = trip.getRoute();
-            Set<Station> stations = stationsGraph.getVertices();
-            Set<Road> roads = stationsGraph.getEdges();
-
-            assertTripRouteStations(stations, tripRoute);
-            assertPlannedTripRoads(roads, tripRoute);
-
-            TripOffer tripOffer = transPoolTripToTripOffer(trip, stations, roads);
-
-            tripOffers.add(tripOffer);
+            tripOffers.add(createTripOffer(context, trip));
         }
 
         return tripOffers;
     }
 
     /**
-     * Receives the {@link Set} of stations that were loaded from the file,
-     * and the {@link Route} of a trip from the file, and validates that all the stations it specifies actually exist.
+     * Validates a single trip of the file and creates its {@link TripOffer}.
+     * Every station and road of the route is looked up once, in constant time.
      *
-     * @param stations  The pool of {@link Station}s that were loaded from the file
-     * @param tripRoute The route object that specifies the stations of the trip.
-     * @throws TranspoolXmlValidationException In case the {@link Route}'s path contains a no-existent {@link Station}.
+     * @param context The state of the current load, holding the stations and roads on the map.
+     * @param trip    The trip to create an offer from.
+     * @return The {@link TripOffer} the trip describes.
+     * @throws TranspoolXmlValidationException In case the {@link Route}'s path contains a no-existent
+     *                                         {@link Station} or {@link Road}.
      */
-    private static void assertTripRouteStations(Set<Station> stations, Route tripRoute)
+    static TripOffer createTripOffer(MapLoadingContext context, TransPoolTrip trip)
             throws TranspoolXmlValidationException {
-        String routePath = tripRoute.getPath();
-        for (String stationName : routePath.split(ROUTE_PATH_SEPARATOR)) {
-            if (!Station.containsStationByName(stations, stationName.trim()))
+        String routePath = trip.getRoute().getPath();
+        String[] stationNames = routePath.split(ROUTE_PATH_SEPARATOR);
+
+        List<Station> tripStations = new ArrayList<>(stationNames.length);
+        for (String stationName : stationNames) {
+            Station station = context.getStation(stationName.trim());
+
+            if (station == null)
                 throw new TranspoolXmlValidationException(
                         "Trip with Route %s contains a non-existent station %s.",
                         routePath, stationName
                 );
+            tripStations.add(station);
         }
-    }
 
-    /**
-     * Receives the {@link Set} of roads that were loaded from the file,
-     * and the {@link Route} of a trip from the file, and validates that all the roads it specifies actually exist.
-     *
-     * @param roads     The pool of {@link Road}s that were loaded from the file
-     * @param tripRoute The route object that specifies the stations of the trip in the road's order.
-     * @throws TranspoolXmlValidationException In case the {@link Route}'s path contains a no-existent {@link Road}.
-     */
-    private static void assertPlannedTripRoads(Set<Road> roads, Route tripRoute)
-            throws TranspoolXmlValidationException {
-        String routePath = tripRoute.getPath();
-        String[] routeStationNames = routePath.split(ROUTE_PATH_SEPARATOR);
-        for (int i = 0; i < routeStationNames.length - 1; i++) {
-            String srcStation = routeStationNames[i].trim();
-            String dstStation = routeStationNames[i + 1].trim();
+        List<Road> tripRoads = new ArrayList<>(Math.max(stationNames.length - 1, 0));
+        for (int i = 0; i < stationNames.length - 1; i++) {
+            String srcStation = stationNames[i].trim();
+            String dstStation = stationNames[i + 1].trim();
+            Road road = context.getRoad(srcStation, dstStation);
 
-            if (!Road.containsRoadBySrcAndDstNames(roads, srcStation, dstStation))
+            if (road == null)
                 throw new TranspoolXmlValidationException(
                         "Trip with Route %s contains a non-existent road %s.",
                         routePath, srcStation + "-" + dstStation
                 );
-        }
-
-    }
-
-    private static TripOffer transPoolTripToTripOffer(TransPoolTrip trip, Set<Station> stations, Set<Road> roads) {
-        // Save trip members in local vars for ease of access
-        String owner = trip.getOwner(), routePath = trip.getRoute().getPath();
-        int capacity = trip.getCapacity(), PPK = trip.getPPK();
-
-        List<Station> tripStations = null;
-        List<Road> tripRoads = null;
-        String[] stationNames = routePath.split(ROUTE_PATH_SEPARATOR);
-        try {
-            tripStations = Station.getStationsFromStrArr(stations, stationNames);
-            tripRoads = Road.getRoadListFromStationsPath(roads, stationNames);
-        } catch (FormattedMessageException e) {
-            // Would never happen here since the route path was already checked
-            e.printStackTrace();
+            tripRoads.add(road);
         }
 
         TripTiming timing = createTiming(trip.getScheduling());
 
-        return new TripOffer(owner, capacity, PPK, timing, tripStations, tripRoads);
+        return new TripOffer(trip.getOwner(), trip.getCapacity(), trip.getPPK(), timing, tripStations, tripRoads);
     }
 
     private static TripTiming createTiming(Scheduling scheduling) {
@@ -11,15 +11,23 @@ import java.io.File;
 public class TranspoolXmlSerializer {
     private final static String JAXB_ANNOTATED_PACKAGE = "engine.DAL.transpoolXMLSchema";
 
+    // Creating a JAXBContext is expensive and it is thread-safe, so it is created once and reused
+    private static JAXBContext jaxbContext;
+
+    private static synchronized JAXBContext getJaxbContext() throws JAXBException {
+        if (jaxbContext == null)
+            jaxbContext = JAXBContext.newInstance(JAXB_ANNOTATED_PACKAGE);
+
+        return jaxbContext;
+    }
+
     public static TransPool deserialize(File f) throws JAXBException {
-        JAXBContext jc = JAXBContext.newInstance(JAXB_ANNOTATED_PACKAGE);
-        Unmarshaller umrshl = jc.createUnmarshaller();
+        Unmarshaller umrshl = getJaxbContext().createUnmarshaller();
         return (TransPool) umrshl.unmarshal(f);
     }
 
     public static void serialize(File destFile, TransPool xmlRootObj) throws JAXBException {
-        JAXBContext jc = JAXBContext.newInstance(JAXB_ANNOTATED_PACKAGE);
-        Marshaller mrshl = jc.createMarshaller();
+        Marshaller mrshl = getJaxbContext().createMarshaller();
         mrshl.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
         mrshl.marshal(xmlRootObj, destFile);;
     }
@@ -0,0 +1,298 @@
+package engine.DAL;
+
+import engine.DAL.transpoolXMLSchema.*;
+import engine.TranspoolManager;
+import model.CustomExceptions.TranspoolXmlValidationException;
+import model.TripOffer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Loads a transpool xml file with a StAX {@link XMLStreamReader} instead of unmarshalling
+ * the whole document with JAXB.
+ * Every Stop, Path and TransPoolTrip element is read into its schema object, validated and
+ * turned into a model right away, and then dropped, so only the models are kept in memory.
+ * The validation itself is shared with {@link TranspoolXmlLoader}.
+ */
+class TranspoolXmlStreamLoader {
+
+    //region Element & Attribute names
+    private static final String MAP_BOUNDARIES = "MapBoundries";
+    private static final String STOP = "Stop";
+    private static final String PATH = "Path";
+    private static final String TRIP = "TransPoolTrip";
+    private static final String OWNER = "Owner";
+    private static final String CAPACITY = "Capacity";
+    private static final String PPK = "PPK";
+    private static final String ROUTE = "Route";
+    private static final String SCHEDULING = "Scheduling";
+    private static final String LENGTH = "Length";
+    private static final String FUEL_CONSUMPTION = "FuelConsumption";
+    private static final String SPEED_LIMIT = "SpeedLimit";
+    //endregion
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private MapLoadingContext context;
+    private boolean isReadingTrips;
+    private int previousLastOfferId;
+    private final Set<TripOffer> tripOffers = new HashSet<>();
+
+    private TranspoolXmlStreamLoader() {
+    }
+
+    /**
+     * Reads the file element by element and loads it to the system.
+     *
+     * @param file An existing xml file.
+     * @throws FileNotFoundException           In case the file doesn't exist.
+     * @throws TranspoolXmlValidationException In case the file is not well formed, its elements are out of
+     *                                         order or its content is invalid according to the system's requirements
+     */
+    static TranspoolManager Load(File file) throws FileNotFoundException, TranspoolXmlValidationException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+            TranspoolXmlStreamLoader loader = new TranspoolXmlStreamLoader();
+            try {
+                return loader.read(reader);
+            } catch (XMLStreamException | TranspoolXmlValidationException | RuntimeException e) {
+                loader.restoreTripOfferIds();
+                throw e;
+            } finally {
+                reader.close();
+            }
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (XMLStreamException | IOException e) {
+            throw new TranspoolXmlValidationException(
+                    "The file could not be read as a Transpool xml file.\n%s", e.getMessage()
+            );
+        }
+    }
+
+    //region Private Methods
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    private TranspoolManager read(XMLStreamReader reader) throws XMLStreamException, TranspoolXmlValidationException {
+        while (reader.hasNext()) {
+            if (reader.next() != XMLStreamConstants.START_ELEMENT)
+                continue;
+
+            switch (reader.getLocalName()) {
+                case MAP_BOUNDARIES:
+                    readMapBoundaries(reader);
+                    break;
+                case STOP:
+                    readStop(reader);
+                    break;
+                case PATH:
+                    readPath(reader);
+                    break;
+                case TRIP:
+                    readTrip(reader);
+                    break;
+            }
+        }
+
+        if (context == null)
+            throw new TranspoolXmlValidationException("The file does not describe the boundaries of the map.");
+
+        // A file without trips still replaces the current offers
+        if (!isReadingTrips)
+            startReadingTrips();
+
+        return TranspoolXmlLoader.initTranspoolManager(context.getBoundaries(), context.getStationsGraph(), tripOffers);
+    }
+
+    private void readMapBoundaries(XMLStreamReader reader) throws TranspoolXmlValidationException {
+        if (context != null)
+            throw new TranspoolXmlValidationException("The boundaries of the map are described more than once.");
+
+        MapBoundries mapBoundaries = new MapBoundries();
+        mapBoundaries.setWidth(getIntAttribute(reader, "width"));
+        mapBoundaries.setLength(getIntAttribute(reader, "length"));
+
+        TranspoolXmlLoader.assertMapBoundaries(mapBoundaries);
+
+        context = new MapLoadingContext(mapBoundaries);
+    }
+
+    private void readStop(XMLStreamReader reader) throws TranspoolXmlValidationException {
+        assertElementOrder(context != null && !isReadingTrips, STOP);
+
+        Stop stop = new Stop();
+        stop.setName(getRequiredAttribute(reader, "name"));
+        stop.setX(getIntAttribute(reader, "x"));
+        stop.setY(getIntAttribute(reader, "y"));
+
+        TranspoolXmlLoader.addStation(context, stop);
+    }
+
+    private void readPath(XMLStreamReader reader) throws XMLStreamException, TranspoolXmlValidationException {
+        assertElementOrder(context != null && !isReadingTrips, PATH);
+
+        Path path = new Path();
+        path.setFrom(getRequiredAttribute(reader, "from"));
+        path.setTo(getRequiredAttribute(reader, "to"));
+        String oneWay = reader.getAttributeValue(null, "one-way");
+        path.setOneWay(oneWay == null ? null : Boolean.valueOf(oneWay.trim()));
+
+        while (nextChildElement(reader)) {
+            switch (reader.getLocalName()) {
+                case LENGTH:
+                    path.setLength(parseInt(reader.getElementText(), LENGTH));
+                    break;
+                case FUEL_CONSUMPTION:
+                    path.setFuelConsumption(parseInt(reader.getElementText(), FUEL_CONSUMPTION));
+                    break;
+                case SPEED_LIMIT:
+                    path.setSpeedLimit(parseInt(reader.getElementText(), SPEED_LIMIT));
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+
+        TranspoolXmlLoader.addRoad(context, path);
+    }
+
+    private void readTrip(XMLStreamReader reader) throws XMLStreamException, TranspoolXmlValidationException {
+        assertElementOrder(context != null, TRIP);
+
+        // The map is complete once the first trip is reached
+        if (!isReadingTrips)
+            startReadingTrips();
+
+        TransPoolTrip trip = new TransPoolTrip();
+        while (nextChildElement(reader)) {
+            switch (reader.getLocalName()) {
+                case OWNER:
+                    trip.setOwner(reader.getElementText());
+                    break;
+                case CAPACITY:
+                    trip.setCapacity(parseInt(reader.getElementText(), CAPACITY));
+                    break;
+                case PPK:
+                    trip.setPPK(parseInt(reader.getElementText(), PPK));
+                    break;
+                case ROUTE:
+                    Route route = new Route();
+                    route.setPath(getRequiredAttribute(reader, "path"));
+                    trip.setRoute(route);
+                    skipElement(reader);
+                    break;
+                case SCHEDULING:
+                    trip.setScheduling(readScheduling(reader));
+                    skipElement(reader);
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+
+        if (trip.getRoute() == null || trip.getScheduling() == null)
+            throw new TranspoolXmlValidationException(
+                    "The trip of %s is missing its route or scheduling.", trip.getOwner()
+            );
+
+        tripOffers.add(TranspoolXmlLoader.createTripOffer(context, trip));
+    }
+
+    private void startReadingTrips() {
+        isReadingTrips = true;
+        previousLastOfferId = TranspoolXmlLoader.restartTripOfferIds();
+    }
+
+    private void restoreTripOfferIds() {
+        if (isReadingTrips)
+            TranspoolXmlLoader.restoreTripOfferIds(previousLastOfferId);
+    }
+
+    private static Scheduling readScheduling(XMLStreamReader reader) throws TranspoolXmlValidationException {
+        Scheduling scheduling = new Scheduling();
+        scheduling.setHourStart(getIntAttribute(reader, "hour-start"));
+        scheduling.setRecurrences(reader.getAttributeValue(null, "recurrences"));
+
+        String dayStart = reader.getAttributeValue(null, "day-start");
+        if (dayStart != null)
+            scheduling.setDayStart(parseInt(dayStart, "day-start"));
+
+        return scheduling;
+    }
+
+    /**
+     * Moves the reader to the next child element of the current element.
+     *
+     * @return True if the reader is on the next child's start tag. False if it reached the end tag of the parent.
+     */
+    private static boolean nextChildElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                return true;
+            if (event == XMLStreamConstants.END_ELEMENT)
+                return false;
+        }
+
+        return false;
+    }
+
+    /**
+     * Moves the reader from the start tag of an element to its end tag, skipping all of its content.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                depth--;
+        }
+    }
+
+    private static void assertElementOrder(boolean isInOrder, String element) throws TranspoolXmlValidationException {
+        if (!isInOrder)
+            throw new TranspoolXmlValidationException(
+                    "The %s element is out of order. " +
+                            "The map boundaries must come first, then the stops, the paths and the planned trips.",
+                    element
+            );
+    }
+
+    private static String getRequiredAttribute(XMLStreamReader reader, String attribute)
+            throws TranspoolXmlValidationException {
+        String value = reader.getAttributeValue(null, attribute);
+        if (value == null)
+            throw new TranspoolXmlValidationException(
+                    "The %s element is missing the required attribute %s.", reader.getLocalName(), attribute
+            );
+
+        return value;
+    }
+
+    private static int getIntAttribute(XMLStreamReader reader, String attribute) throws TranspoolXmlValidationException {
+        return parseInt(getRequiredAttribute(reader, attribute), attribute);
+    }
+
+    private static int parseInt(String value, String fieldName) throws TranspoolXmlValidationException {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new TranspoolXmlValidationException("The value '%s' of %s is not a number.", value, fieldName);
+        }
+    }
+    //endregion
+}
@@ -1,12 +1,17 @@
 package engine;
 
 import engine.DAL.TranspoolXmlLoader;
+import engine.Matching.BatchMatcher;
+import engine.Matching.ItineraryPlanner;
 import model.*;
+import model.CustomExceptions.MatchConflictException;
 import model.CustomExceptions.RoadDoesNotExistException;
 import model.CustomExceptions.StationDoesNotExistException;
 import model.CustomExceptions.TranspoolXmlValidationException;
 import model.CustomExceptions.UnsupportedFileTypeException;
+import model.Enums.MatchCriterion;
 import model.Interfaces.IEngine;
+import model.util.AbsoluteTime;
 
 import javax.naming.OperationNotSupportedException;
 import javax.xml.bind.JAXBException;
@@ -34,6 +39,29 @@ public class Engine implements IEngine {
                             "Try loading a Transpool™ xml file first.\n"
             );
     }
+
+    private static void assertTimeValid(int day, int hour, int minutes) throws DateTimeException {
+        if (day < 0)
+            throw new DateTimeException("Days can't be negative.");
+        LocalTime.of(hour, minutes);
+    }
+
+    /**
+     * @param wantedTripEndTime The {@link AbsoluteTime} to arrive by, or {@link AbsoluteTime#NO_TIME} for none.
+     */
+    private void addTripRequest(String userName, String srcStation, String dstStation, int wantedTripStartTime, int departureFlexibility, int wantedTripEndTime, boolean doesUserAgreeToStationExchange) throws DateTimeException {
+        if (departureFlexibility < 0 || departureFlexibility > TripRequest.MAX_DEPARTURE_FLEXIBILITY)
+            throw new DateTimeException(String.format(
+                    "The departure flexibility must be between 0 and %d minutes.", TripRequest.MAX_DEPARTURE_FLEXIBILITY));
+
+        User reqOwner = transpoolManager.getUserIfExists(userName);
+        TripRequest tripRequest = new TripRequest(reqOwner, srcStation, dstStation, wantedTripStartTime);
+        tripRequest.setDepartureFlexibility(departureFlexibility);
+        tripRequest.setWantedTripEndTime(wantedTripEndTime);
+        tripRequest.setDoesUserAgreeToStationExchange(doesUserAgreeToStationExchange);
+
+        transpoolManager.getTripsManager().addRequest(tripRequest);
+    }
     //endregion
 
     @Override
@@ -56,22 +84,36 @@ public class Engine implements IEngine {
     }
 
     @Override
-    public void postTripRequest(String userName, String srcStation, String dstStation, int hour, int minutes) throws OperationNotSupportedException, StationDoesNotExistException, DateTimeException {
+    public void postTripRequest(String userName, String srcStation, String dstStation, int day, int hour, int minutes, int departureFlexibility, boolean doesUserAgreeToStationExchange) throws OperationNotSupportedException, StationDoesNotExistException, DateTimeException {
         assertEngineInitialized();
         assertStationsExist(srcStation, dstStation);
 
-        // Assert correct hours and minutes before creating user
-        LocalTime time = LocalTime.of(hour, minutes);
+        // Assert correct day, hours and minutes before creating user
+        assertTimeValid(day, hour, minutes);
 
-        User reqOwner = transpoolManager.getUserIfExists(userName);
-        TripRequest tripRequest =
-                new TripRequest(reqOwner, srcStation, dstStation, time);
+        addTripRequest(userName, srcStation, dstStation, AbsoluteTime.of(day, hour, minutes), departureFlexibility,
+                AbsoluteTime.NO_TIME, doesUserAgreeToStationExchange);
+    }
 
-        transpoolManager.getTripsManager().addRequest(tripRequest);
+    @Override
+    public void postTripRequest(String userName, String srcStation, String dstStation, int day, int hour, int minutes, int departureFlexibility, int arrivalDay, int arrivalHour, int arrivalMinutes, boolean doesUserAgreeToStationExchange) throws OperationNotSupportedException, StationDoesNotExistException, DateTimeException {
+        assertEngineInitialized();
+        assertStationsExist(srcStation, dstStation);
+
+        // Assert correct days, hours and minutes before creating user
+        assertTimeValid(day, hour, minutes);
+        assertTimeValid(arrivalDay, arrivalHour, arrivalMinutes);
+        int departureTime = AbsoluteTime.of(day, hour, minutes);
+        int arrivalTime = AbsoluteTime.of(arrivalDay, arrivalHour, arrivalMinutes);
+        if (arrivalTime <= departureTime)
+            throw new DateTimeException("The arrival time must be after the departure time.");
+
+        addTripRequest(userName, srcStation, dstStation, departureTime, departureFlexibility, arrivalTime,
+                doesUserAgreeToStationExchange);
     }
 
     @Override
-    public void postTripOffer(String user, List<String> stationNames, int day, int hour, int minutes, String repetitionRate, int ppk, int capacity) throws OperationNotSupportedException, StationDoesNotExistException, DateTimeException, RoadDoesNotExistException {
+    public List<TripRequest> postTripOffer(String user, List<String> stationNames, int day, int hour, int minutes, String repetitionRate, int ppk, int capacity) throws OperationNotSupportedException, StationDoesNotExistException, DateTimeException, RoadDoesNotExistException {
         assertEngineInitialized();
         assertStationsExist(stationNames.toArray(new String[0]));
 
@@ -82,7 +124,9 @@ public class Engine implements IEngine {
         List<Road> roads = Map.getInstance().getRoadsByStationsList(stations);
         TripOffer tripOffer = new TripOffer(user, capacity, ppk, timing, stations, roads);
 
-        transpoolManager.getTripsManager().addOffer(tripOffer);
+        TripsManager tripsManager = transpoolManager.getTripsManager();
+        tripsManager.addOffer(tripOffer);
+        return tripsManager.getServableRequests(tripOffer);
     }
 
     @Override
@@ -103,6 +147,12 @@ public class Engine implements IEngine {
         return transpoolManager.getTripsManager().getUnmatchedRequests();
     }
 
+    @Override
+    public TripRequest getTripRequestById(int id) throws OperationNotSupportedException {
+        assertEngineInitialized();
+        return transpoolManager.getTripsManager().getRequest(id);
+    }
+
     @Override
     public List<TripOffer> getAllMatchedToRequest(TripRequest request) throws OperationNotSupportedException {
         assertEngineInitialized();
@@ -110,8 +160,27 @@ public class Engine implements IEngine {
     }
 
     @Override
-    public void matchTripRequestToOffer(TripRequest request, TripOffer selectedMatch) throws OperationNotSupportedException {
+    public List<TripOffer> getTopMatchesToRequest(TripRequest request, int maxMatches, MatchRanking ranking) throws OperationNotSupportedException {
+        assertEngineInitialized();
+        return transpoolManager.getTripsManager().getTopMatches(request, maxMatches, ranking);
+    }
+
+    @Override
+    public void matchTripRequestToOffer(TripRequest request, TripOffer selectedMatch) throws OperationNotSupportedException, MatchConflictException {
+        assertEngineInitialized();
+        if (!transpoolManager.getTripsManager().matchRequestToOffer(request, selectedMatch))
+            throw new MatchConflictException(request.getId(), selectedMatch.getId());
+    }
+
+    @Override
+    public java.util.Map<TripRequest, TripOffer> matchAllUnmatchedRequests(MatchCriterion criterion) throws OperationNotSupportedException {
+        assertEngineInitialized();
+        return new BatchMatcher(transpoolManager.getTripsManager()).matchAllUnmatchedRequests(criterion);
+    }
+
+    @Override
+    public List<Itinerary> getItineraries(TripRequest request) throws OperationNotSupportedException {
         assertEngineInitialized();
-        transpoolManager.getTripsManager().matchRequestToOffer(request, selectedMatch);
+        return new ItineraryPlanner(transpoolManager.getTripsManager().getTimetable()).plan(request);
     }
 }
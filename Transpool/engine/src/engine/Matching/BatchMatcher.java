@@ -0,0 +1,272 @@
+package engine.Matching;
+
+import engine.TripsManager;
+import model.Enums.MatchCriterion;
+import model.TripOffer;
+import model.TripRequest;
+import model.TripTiming;
+
+import java.util.*;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Matches all of the unmatched trip requests to trip offers at once.
+ * The assignment matches as many requests as the capacities of the offers allow, and among those
+ * assignments picks the one with the lowest total cost according to the given {@link MatchCriterion}.
+ * It is solved as a min-cost max-flow problem on the network:
+ * source -> request (capacity 1) -> candidate occurrence (capacity 1, cost of the match) -> sink (remaining capacity).
+ * Every occurrence of a recurring offer has its own seats, so it's a node of its own.
+ * The candidates of every request are taken from the {@link TripsManager}'s index rather than all the offers,
+ * and requests that don't share candidates are solved as separate (parallel) networks.
+ * <p>
+ * Every augmenting path of the network costs a search over all of it, so a network's run time grows with the square of
+ * its requests. On dense maps, where most of the requests share candidates, a group of requests that share candidates
+ * is solved as a series of networks of at most {@link #MAX_NETWORK_REQUESTS} requests each, with the requests that
+ * leave the same station at the same time slot kept together since they compete for the same seats. Every network
+ * gets the seats the networks before it left, so the assignment is optimal within every network but not across them.
+ * <p>
+ * The network gives an occurrence only the seats that are free along its whole route, so its solution never
+ * overbooks a leg. Requests it leaves out are then matched greedily to their cheapest candidate that still has a
+ * free seat on their legs, since passengers who ride on different legs of a route can share a seat.
+ */
+public class BatchMatcher {
+    public static final int MAX_NETWORK_REQUESTS = 500;
+
+    private final TripsManager tripsManager;
+
+    public BatchMatcher(TripsManager tripsManager) {
+        this.tripsManager = tripsManager;
+    }
+
+    /**
+     * Computes the optimal assignment of the unmatched requests and commits it.
+     * The assignment is only optimal within groups of at most {@link #MAX_NETWORK_REQUESTS} requests that share
+     * candidates, which bounds the run time on dense maps.
+     *
+     * @param criterion What the total cost of the assignment is measured by.
+     * @return The requests that were matched, mapped to the offers they were matched to, in order of request id.
+     */
+    public Map<TripRequest, TripOffer> matchAllUnmatchedRequests(MatchCriterion criterion) {
+        List<Component> components = buildComponents(tripsManager.getUnmatchedRequests());
+
+        List<Map<TripRequest, TripOffer>> solutions = components.parallelStream()
+                .map(component -> component.solve(criterion))
+                .collect(Collectors.toList());
+
+        Map<TripRequest, TripOffer> assignment = new TreeMap<>(Comparator.comparingInt(TripRequest::getId));
+        solutions.forEach(assignment::putAll);
+        // Requests or offers taken by concurrent matches in the meantime are left out
+        assignment.entrySet().removeIf(match -> !tripsManager.matchRequestToOffer(match.getKey(), match.getValue()));
+
+        // The network only counts the seats that are free along a whole route, while a seat can be shared
+        // by passengers who ride on different legs, so requests it left out may still fit
+        for (Component component : components) {
+            component.matchLeftOut(criterion, tripsManager, assignment);
+        }
+
+        return assignment;
+    }
+
+    //region Private Methods
+
+    /**
+     * Splits the requests and their candidate offers into connected components, where two requests
+     * are in the same component if they (transitively) share a candidate offer.
+     */
+    private List<Component> buildComponents(List<TripRequest> requests) {
+        List<List<TripOffer>> candidates = requests.parallelStream()
+                .map(tripsManager::getPossibleMatches)
+                .collect(Collectors.toList());
+
+        // Occurrences are given indexes following the requests' indexes in the union-find
+        Map<Long, Integer> occurrence2Index = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            for (TripOffer offer : candidates.get(i)) {
+                occurrence2Index.putIfAbsent(getOccurrenceKey(requests.get(i), offer), requests.size() + occurrence2Index.size());
+            }
+        }
+
+        UnionFind unionFind = new UnionFind(requests.size() + occurrence2Index.size());
+        for (int i = 0; i < requests.size(); i++) {
+            for (TripOffer offer : candidates.get(i)) {
+                unionFind.union(i, occurrence2Index.get(getOccurrenceKey(requests.get(i), offer)));
+            }
+        }
+
+        Map<Integer, Component> root2Component = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (candidates.get(i).isEmpty())
+                continue;
+
+            root2Component
+                    .computeIfAbsent(unionFind.find(i), root -> new Component())
+                    .add(requests.get(i), candidates.get(i));
+        }
+
+        return new ArrayList<>(root2Component.values());
+    }
+
+    /**
+     * Identifies the occurrence of the offer that would take the request's user, by the offer's id and its day.
+     */
+    private static long getOccurrenceKey(TripRequest request, TripOffer offer) {
+        return ((long) offer.getId() << Integer.SIZE) | (TripRequest.getDepartureDay(request, offer) & 0xFFFFFFFFL);
+    }
+    //endregion
+
+    /**
+     * A group of requests and the offers they can be matched to, that is independent of any other group.
+     */
+    private static class Component {
+        private final List<TripRequest> requests = new ArrayList<>();
+        private final List<List<TripOffer>> candidates = new ArrayList<>();
+
+        private void add(TripRequest request, List<TripOffer> requestCandidates) {
+            requests.add(request);
+            candidates.add(requestCandidates);
+        }
+
+        private Map<TripRequest, TripOffer> solve(MatchCriterion criterion) {
+            Map<TripRequest, TripOffer> assignment = new HashMap<>();
+            // The seats of every occurrence that the networks solved so far took
+            Map<Long, Integer> occurrence2TakenSeats = new HashMap<>();
+
+            for (List<Integer> networkRequests : splitIntoNetworks()) {
+                solveNetwork(networkRequests, criterion, occurrence2TakenSeats, assignment);
+            }
+
+            return assignment;
+        }
+
+        /**
+         * Splits the requests into groups of at most {@link #MAX_NETWORK_REQUESTS}, in order of their source station
+         * and the time slot they want to leave at.
+         *
+         * @return The indexes of the requests of every group.
+         */
+        private List<List<Integer>> splitIntoNetworks() {
+            List<Integer> indexes = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                indexes.add(i);
+            }
+
+            if (requests.size() <= MAX_NETWORK_REQUESTS)
+                return Collections.singletonList(indexes);
+
+            indexes.sort(Comparator
+                    .comparing((Integer i) -> requests.get(i).getWantedSourceStation().getName())
+                    .thenComparingInt(i -> TripTiming.roundTime(requests.get(i).getAbsoluteWantedTripStartTime())));
+
+            List<List<Integer>> networks = new ArrayList<>();
+            for (int from = 0; from < indexes.size(); from += MAX_NETWORK_REQUESTS) {
+                networks.add(indexes.subList(from, Math.min(from + MAX_NETWORK_REQUESTS, indexes.size())));
+            }
+
+            return networks;
+        }
+
+        /**
+         * Solves the network of some of the requests, with the seats the networks before it left,
+         * and adds its matches to the assignment.
+         */
+        private void solveNetwork(List<Integer> networkRequests, MatchCriterion criterion,
+                                  Map<Long, Integer> occurrence2TakenSeats, Map<TripRequest, TripOffer> assignment) {
+            Map<Long, Integer> occurrence2Node = new HashMap<>();
+            List<Long> occurrences = new ArrayList<>();
+            List<TripOffer> offers = new ArrayList<>();
+            List<Integer> days = new ArrayList<>();
+            for (int i : networkRequests) {
+                for (TripOffer offer : candidates.get(i)) {
+                    long occurrence = getOccurrenceKey(requests.get(i), offer);
+                    if (occurrence2Node.putIfAbsent(occurrence, offers.size()) == null) {
+                        occurrences.add(occurrence);
+                        offers.add(offer);
+                        days.add(TripRequest.getDepartureDay(requests.get(i), offer));
+                    }
+                }
+            }
+
+            // Nodes: source, requests, offers, sink
+            int source = 0;
+            int firstRequestNode = 1;
+            int firstOfferNode = firstRequestNode + networkRequests.size();
+            int sink = firstOfferNode + offers.size();
+            MinCostFlow network = new MinCostFlow(sink + 1);
+
+            for (int i = 0; i < offers.size(); i++) {
+                int seats = offers.get(i).getRemainingPassengersCapacity(days.get(i)) - occurrence2TakenSeats.getOrDefault(occurrences.get(i), 0);
+                network.addEdge(firstOfferNode + i, sink, Math.max(seats, 0), 0);
+            }
+
+            List<int[]> matchEdges = new ArrayList<>();
+            for (int node = 0; node < networkRequests.size(); node++) {
+                int i = networkRequests.get(node);
+                TripRequest request = requests.get(i);
+                network.addEdge(source, firstRequestNode + node, 1, 0);
+
+                for (TripOffer offer : candidates.get(i)) {
+                    int offerIndex = occurrence2Node.get(getOccurrenceKey(request, offer));
+                    long cost = criterion.getCost(request, offer);
+                    int edge = network.addEdge(firstRequestNode + node, firstOfferNode + offerIndex, 1, cost);
+
+                    matchEdges.add(new int[]{edge, i, offerIndex});
+                }
+            }
+
+            network.solve(source, sink);
+
+            for (int[] matchEdge : matchEdges) {
+                if (network.getFlow(matchEdge[0]) > 0) {
+                    assignment.put(requests.get(matchEdge[1]), offers.get(matchEdge[2]));
+                    occurrence2TakenSeats.merge(occurrences.get(matchEdge[2]), 1, Integer::sum);
+                }
+            }
+        }
+
+        /**
+         * Matches the requests of the component that aren't in the assignment to their cheapest candidate
+         * that can still take them, and adds them to the assignment.
+         */
+        private void matchLeftOut(MatchCriterion criterion, TripsManager tripsManager, Map<TripRequest, TripOffer> assignment) {
+            for (int i = 0; i < requests.size(); i++) {
+                TripRequest request = requests.get(i);
+                if (request.isMatched())
+                    continue;
+
+                List<TripOffer> byCost = new ArrayList<>(candidates.get(i));
+                byCost.sort(Comparator.comparingLong(offer -> criterion.getCost(request, offer)));
+                for (TripOffer offer : byCost) {
+                    if (tripsManager.matchRequestToOffer(request, offer)) {
+                        assignment.put(request, offer);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static class UnionFind {
+        private final int[] parent;
+
+        private UnionFind(int size) {
+            parent = new int[size];
+            for (int i = 0; i < size; i++) {
+                parent[i] = i;
+            }
+        }
+
+        private int find(int element) {
+            while (parent[element] != element) {
+                parent[element] = parent[parent[element]];
+                element = parent[element];
+            }
+
+            return element;
+        }
+
+        private void union(int first, int second) {
+            parent[find(first)] = find(second);
+        }
+    }
+}
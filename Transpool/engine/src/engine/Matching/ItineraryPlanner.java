@@ -0,0 +1,205 @@
+package engine.Matching;
+
+import engine.ConnectionTimetable;
+import engine.ConnectionTimetable.Connection;
+import model.Itinerary;
+import model.TripRequest;
+import model.TripTiming;
+import model.util.AbsoluteTime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Plans itineraries for trip requests whose users agree to switch between trips at stations on the way.
+ * <p>
+ * It's a round based connection scan over the {@link ConnectionTimetable}: round k scans the connections in order
+ * of departure and finds the earliest arrival at every station with at most k rides, boarding only at stations
+ * that were reached by round k - 1 early enough. A connection is only ridden if its occurrence has a free seat on it.
+ * Every round stops as soon as the connections leave after the best arrival at the destination so far, so a query
+ * only scans the connections between the wanted departure and the arrival.
+ * <p>
+ * The result is the set of itineraries that aren't beaten by another one on both the arrival time and the amount of
+ * transfers: the fastest itinerary for every amount of rides, if it arrives earlier than all the ones with less rides.
+ * Planning only reads the timetable and the seats, so many plans can run at once.
+ */
+public class ItineraryPlanner {
+    public static final int DEFAULT_MAX_RIDES = 3;
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    private static final int NO_DEADLINE = UNREACHED - 1;
+    // Itineraries may carry on into the next day, but not further
+    private static final int HORIZON_DAYS = 1;
+
+    private final ConnectionTimetable timetable;
+    private final int maxRides;
+    private final int minTransferMinutes;
+
+    public ItineraryPlanner(ConnectionTimetable timetable) {
+        this(timetable, DEFAULT_MAX_RIDES, 0);
+    }
+
+    /**
+     * @param maxRides           The most trips a single itinerary may be made of.
+     * @param minTransferMinutes The least time to leave between arriving at a station and leaving it on another trip.
+     */
+    public ItineraryPlanner(ConnectionTimetable timetable, int maxRides, int minTransferMinutes) {
+        if (maxRides < 1)
+            throw new IllegalArgumentException("An itinerary must have at least one ride.");
+
+        this.timetable = timetable;
+        this.maxRides = maxRides;
+        this.minTransferMinutes = minTransferMinutes;
+    }
+
+    /**
+     * Finds the best itineraries from the request's source station to its destination station, leaving it within the
+     * user's departure window and arriving by their deadline, if they have one. As with the matching of single offers,
+     * only the first ride has to leave within the window.
+     * Users who don't agree to switch trips only get itineraries of a single ride.
+     *
+     * @param request The request to plan for.
+     * @return The itineraries, from the one with the least transfers to the one that arrives the earliest.
+     * Empty if the destination can't be reached.
+     */
+    public List<Itinerary> plan(TripRequest request) {
+        int src = timetable.getStationIndex(request.getWantedSourceStation());
+        int dst = timetable.getStationIndex(request.getWantedDestStation());
+        if (src == -1 || dst == -1 || src == dst)
+            return Collections.emptyList();
+
+        int rides = request.doesUserAgreeToStationExchange() ? maxRides : 1;
+        int startTime = TripTiming.roundTime(request.getEarliestDepartureTime());
+        int latestDeparture = TripTiming.roundTime(request.getLatestDepartureTime());
+        int deadline = request.hasArrivalDeadline() ? request.getAbsoluteWantedTripEndTime() : NO_DEADLINE;
+        int stationCount = timetable.getStationCount();
+
+        int[][] arrival = new int[rides + 1][];
+        // The connection a station was reached by in a round, and the connection its trip was boarded at
+        Connection[][] alightedBy = new Connection[rides + 1][stationCount];
+        Connection[][] boardedAt = new Connection[rides + 1][stationCount];
+
+        arrival[0] = new int[stationCount];
+        Arrays.fill(arrival[0], UNREACHED);
+        arrival[0][src] = startTime;
+
+        for (int round = 1; round <= rides; round++) {
+            arrival[round] = arrival[round - 1].clone();
+            scanRound(arrival[round - 1], arrival[round], alightedBy[round], boardedAt[round], src, dst, startTime,
+                    latestDeparture, deadline);
+        }
+
+        List<Itinerary> itineraries = new ArrayList<>();
+        for (int round = 1; round <= rides; round++) {
+            if (arrival[round][dst] < arrival[round - 1][dst])
+                itineraries.add(buildItinerary(alightedBy, boardedAt, round, dst));
+        }
+
+        return itineraries;
+    }
+
+    //region Private Methods
+    private void scanRound(int[] previousArrival, int[] arrival, Connection[] alightedBy, Connection[] boardedAt,
+                           int src, int dst, int startTime, int latestDeparture, int deadline) {
+        int startDay = AbsoluteTime.getDay(startTime);
+        Connection[][] days = new Connection[HORIZON_DAYS + 1][];
+        for (int day = 0; day <= HORIZON_DAYS; day++) {
+            days[day] = timetable.getConnections(startDay + day);
+        }
+
+        // The connection every trip that can be ridden in this round was boarded at, by trip index
+        Connection[] trip2Boarding = new Connection[timetable.getTripCount()];
+
+        for (int day = 0; day <= HORIZON_DAYS; day++) {
+            Connection[] connections = days[day];
+            int first = day == 0 ? findFirstDepartingAt(connections, startTime) : 0;
+
+            for (int i = first; i < connections.length; i++) {
+                Connection connection = connections[i];
+
+                // Anything that leaves later can't arrive earlier, nor in time
+                if (connection.getDepartureTime() >= arrival[dst] || connection.getDepartureTime() > deadline)
+                    return;
+
+                if (connection.getArrivalTime() > deadline)
+                    continue;
+
+                int trip = connection.getTripIndex();
+                Connection boarding = trip2Boarding[trip];
+                if (boarding == null && !canBoard(previousArrival, connection, src, latestDeparture))
+                    continue;
+
+                // The user can't stay on through a full leg, but may board the trip again after it
+                if (!connection.hasFreeSeat()) {
+                    trip2Boarding[trip] = null;
+                    continue;
+                }
+
+                if (boarding == null) {
+                    boarding = connection;
+                    trip2Boarding[trip] = boarding;
+                }
+
+                int to = connection.getToStation();
+                if (connection.getArrivalTime() < arrival[to]) {
+                    arrival[to] = connection.getArrivalTime();
+                    alightedBy[to] = connection;
+                    boardedAt[to] = boarding;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The index of the first of the connections, which are sorted by departure, that leaves at the time or after it.
+     */
+    private static int findFirstDepartingAt(Connection[] connections, int time) {
+        int low = 0;
+        int high = connections.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (connections[middle].getDepartureTime() < time)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+
+    private boolean canBoard(int[] previousArrival, Connection connection, int src, int latestDeparture) {
+        int from = connection.getFromStation();
+        if (previousArrival[from] == UNREACHED)
+            return false;
+
+        // The user leaves the source station within their departure window, as a single offer must take them
+        if (from == src && connection.getDepartureTime() > latestDeparture)
+            return false;
+
+        int transferMinutes = from == src ? 0 : minTransferMinutes;
+        return previousArrival[from] + transferMinutes <= connection.getDepartureTime();
+    }
+
+    private static Itinerary buildItinerary(Connection[][] alightedBy, Connection[][] boardedAt, int round, int dst) {
+        LinkedList<Itinerary.Leg> legs = new LinkedList<>();
+
+        int station = dst;
+        for (; round > 0; round--) {
+            Connection alighting = alightedBy[round][station];
+            // The station was already reached with less rides
+            if (alighting == null)
+                continue;
+
+            Connection boarding = boardedAt[round][station];
+            legs.addFirst(new Itinerary.Leg(alighting.getOffer(), alighting.getOccurrenceDay(),
+                    boarding.getLeg(), alighting.getLeg() + 1));
+            station = boarding.getFromStation();
+        }
+
+        return new Itinerary(new ArrayList<>(legs));
+    }
+    //endregion
+}
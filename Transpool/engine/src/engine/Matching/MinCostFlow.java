@@ -0,0 +1,246 @@
+package engine.Matching;
+
+import java.util.Arrays;
+
+/**
+ * A min-cost max-flow solver for networks with integer capacities and non-negative costs.
+ * Uses successive shortest paths, where every shortest path is found by Dijkstra's algorithm
+ * over costs that are made non-negative by node potentials (Johnson's reweighting).
+ * The network is held in primitive arrays, so solving it barely allocates.
+ * *** WARNING! This class is NOT Thread-Safe!! ***
+ *
+ * @author Jonathan Rozenblat
+ */
+public class MinCostFlow {
+    private static final long INFINITY = Long.MAX_VALUE / 4;
+    private static final int INITIAL_EDGES_CAPACITY = 16;
+
+    private final int nodeCount;
+
+    // The edges are kept as linked lists of outgoing edges per node.
+    // Every edge i is paired with its residual edge i ^ 1.
+    private final int[] firstEdge;
+    private int[] nextEdge;
+    private int[] edgeTarget;
+    private int[] edgeCapacity;
+    private int[] edgeOriginalCapacity;
+    private long[] edgeCost;
+    private int edgeCount;
+
+    public MinCostFlow(int nodeCount) {
+        this.nodeCount = nodeCount;
+        this.firstEdge = new int[nodeCount];
+        Arrays.fill(firstEdge, -1);
+
+        nextEdge = new int[INITIAL_EDGES_CAPACITY];
+        edgeTarget = new int[INITIAL_EDGES_CAPACITY];
+        edgeCapacity = new int[INITIAL_EDGES_CAPACITY];
+        edgeOriginalCapacity = new int[INITIAL_EDGES_CAPACITY];
+        edgeCost = new long[INITIAL_EDGES_CAPACITY];
+    }
+
+    /**
+     * Adds a directed edge to the network.
+     *
+     * @param from     The node the edge goes out of.
+     * @param to       The node the edge goes into.
+     * @param capacity The max amount of flow the edge can carry.
+     * @param cost     The (non-negative) cost of every unit of flow that goes through the edge.
+     * @return The id of the edge, to be used by {@link #getFlow(int)} after solving.
+     */
+    public int addEdge(int from, int to, int capacity, long cost) {
+        if (cost < 0)
+            throw new IllegalArgumentException("Edge costs cannot be negative.");
+
+        int edge = edgeCount;
+        appendEdge(from, to, capacity, cost);
+        appendEdge(to, from, 0, -cost);
+
+        return edge;
+    }
+
+    /**
+     * Pushes as much flow as possible from {@code source} to {@code sink}, at the lowest total cost.
+     *
+     * @return A pair of {total flow, total cost}.
+     */
+    public long[] solve(int source, int sink) {
+        long[] potential = new long[nodeCount];
+        long[] distance = new long[nodeCount];
+        int[] reachedByEdge = new int[nodeCount];
+        boolean[] settled = new boolean[nodeCount];
+        NodeHeap heap = new NodeHeap(nodeCount);
+
+        long totalFlow = 0;
+        long totalCost = 0;
+
+        while (findShortestPath(source, sink, potential, distance, reachedByEdge, settled, heap)) {
+            // Find the bottleneck of the path
+            int pathFlow = Integer.MAX_VALUE;
+            for (int node = sink; node != source; node = edgeTarget[reachedByEdge[node] ^ 1]) {
+                pathFlow = Math.min(pathFlow, edgeCapacity[reachedByEdge[node]]);
+            }
+
+            // Push the flow through the path
+            for (int node = sink; node != source; node = edgeTarget[reachedByEdge[node] ^ 1]) {
+                int edge = reachedByEdge[node];
+                edgeCapacity[edge] -= pathFlow;
+                edgeCapacity[edge ^ 1] += pathFlow;
+                totalCost += pathFlow * edgeCost[edge];
+            }
+
+            totalFlow += pathFlow;
+        }
+
+        return new long[]{totalFlow, totalCost};
+    }
+
+    /**
+     * @param edge An id that was returned by {@link #addEdge}.
+     * @return The amount of flow that goes through the edge in the solution.
+     */
+    public int getFlow(int edge) {
+        return edgeOriginalCapacity[edge] - edgeCapacity[edge];
+    }
+
+    //region Private Methods
+    private void appendEdge(int from, int to, int capacity, long cost) {
+        if (edgeCount == edgeTarget.length) {
+            int newLength = edgeTarget.length * 2;
+            nextEdge = Arrays.copyOf(nextEdge, newLength);
+            edgeTarget = Arrays.copyOf(edgeTarget, newLength);
+            edgeCapacity = Arrays.copyOf(edgeCapacity, newLength);
+            edgeOriginalCapacity = Arrays.copyOf(edgeOriginalCapacity, newLength);
+            edgeCost = Arrays.copyOf(edgeCost, newLength);
+        }
+
+        edgeTarget[edgeCount] = to;
+        edgeCapacity[edgeCount] = capacity;
+        edgeOriginalCapacity[edgeCount] = capacity;
+        edgeCost[edgeCount] = cost;
+        nextEdge[edgeCount] = firstEdge[from];
+        firstEdge[from] = edgeCount;
+        edgeCount++;
+    }
+
+    /**
+     * Runs Dijkstra over the residual network with reduced costs, and updates the potentials.
+     * The search stops as soon as the sink is settled. Nodes that were not settled get the distance
+     * of the sink as their potential update, which keeps all reduced costs non-negative.
+     *
+     * @return True if the sink is reachable, i.e. more flow can be pushed.
+     */
+    private boolean findShortestPath(int source, int sink, long[] potential, long[] distance,
+                                     int[] reachedByEdge, boolean[] settled, NodeHeap heap) {
+        Arrays.fill(distance, INFINITY);
+        Arrays.fill(settled, false);
+        heap.clear();
+
+        distance[source] = 0;
+        heap.push(source, 0);
+
+        while (!heap.isEmpty()) {
+            int node = heap.popNode();
+            if (settled[node])
+                continue;
+
+            settled[node] = true;
+            if (node == sink)
+                break;
+
+            for (int edge = firstEdge[node]; edge != -1; edge = nextEdge[edge]) {
+                int target = edgeTarget[edge];
+                if (edgeCapacity[edge] <= 0 || settled[target])
+                    continue;
+
+                long newDistance = distance[node] + edgeCost[edge] + potential[node] - potential[target];
+                if (newDistance < distance[target]) {
+                    distance[target] = newDistance;
+                    reachedByEdge[target] = edge;
+                    heap.push(target, newDistance);
+                }
+            }
+        }
+
+        if (!settled[sink])
+            return false;
+
+        long sinkDistance = distance[sink];
+        for (int node = 0; node < nodeCount; node++) {
+            potential[node] += settled[node] ? distance[node] : sinkDistance;
+        }
+
+        return true;
+    }
+    //endregion
+
+    /**
+     * A binary min-heap of nodes keyed by their distance. Nodes can be pushed more than once,
+     * stale entries are skipped by the caller.
+     */
+    private static class NodeHeap {
+        private int[] nodes;
+        private long[] keys;
+        private int size;
+
+        private NodeHeap(int initialCapacity) {
+            nodes = new int[Math.max(initialCapacity, 1)];
+            keys = new long[Math.max(initialCapacity, 1)];
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+
+        private void push(int node, long key) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (keys[parent] <= key)
+                    break;
+
+                nodes[i] = nodes[parent];
+                keys[i] = keys[parent];
+                i = parent;
+            }
+
+            nodes[i] = node;
+            keys[i] = key;
+        }
+
+        private int popNode() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            long lastKey = keys[size];
+
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size)
+                    break;
+                if (child + 1 < size && keys[child + 1] < keys[child])
+                    child++;
+                if (keys[child] >= lastKey)
+                    break;
+
+                nodes[i] = nodes[child];
+                keys[i] = keys[child];
+                i = child;
+            }
+
+            nodes[i] = lastNode;
+            keys[i] = lastKey;
+
+            return top;
+        }
+    }
+}
@@ -4,11 +4,14 @@ import engine.DAL.transpoolXMLSchema.MapBoundries;
 import model.*;
 import model.CustomExceptions.UserAlreadyExistsException;
 import model.util.collections.Graph;
+import model.util.collections.IdIndexedStore;
 
 import javax.naming.OperationNotSupportedException;
 import java.net.UnknownServiceException;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class is a Singleton that holds a reference to the Map, and to the object that
@@ -18,7 +21,8 @@ public class TranspoolManager {
 
     private static TranspoolManager instance;
     private final TripsManager tripsManager;
-    private final Set<User> users;
+    private final IdIndexedStore<User> users;
+    private final ConcurrentHashMap<String, User> name2User;
 
     private TranspoolManager(MapBoundries mapBoundries, Graph<Station, Road> stationsGraph, Set<TripOffer> tripOffers) {
         int mapLength = mapBoundries.getLength();
@@ -32,7 +36,8 @@ public class TranspoolManager {
         }
 
         tripsManager = new TripsManager(tripOffers);
-        users = new HashSet<>();
+        users = new IdIndexedStore<>();
+        name2User = new ConcurrentHashMap<>();
     }
 
     //region Singleton Init & Get
@@ -68,8 +73,18 @@ public class TranspoolManager {
         return tripsManager;
     }
 
-    public Set<User> getUsers() {
-        return users;
+    /**
+     * @return An unmodifiable view of the users, in order of id.
+     */
+    public Collection<User> getUsers() {
+        return Collections.unmodifiableCollection(users);
+    }
+
+    /**
+     * @return The user with the given id, or null if there is none.
+     */
+    public User getUser(int id) {
+        return users.get(id);
     }
 
     /**
@@ -80,23 +95,18 @@ public class TranspoolManager {
      * @return The user with the specified name.
      */
     public User getUserByName(String username) {
-        for (User user : this.users) {
-            if (user.equals(new User(username)))
-                return user;
-        }
-        return null;
+        return name2User.get(username);
     }
 
     /**
-     * Checks if a user with the specified name exist in the {@link Set} of {@link User}s
-     * that the {@link TranspoolManager} holds.
+     * Checks if a user with the specified name exist in the system.
      *
      * @param name The name of the user to check if it exists.
      * @return True if a user with the same name as specified exists in the system.
      * False otherwise.
      */
     public boolean hasUser(String name) {
-        return users.contains(new User(name));
+        return name2User.containsKey(name);
     }
 
     public User createUser(String username) throws UserAlreadyExistsException {
@@ -106,30 +116,37 @@ public class TranspoolManager {
     /**
      * Receives a username, and checks if it exists.
      * If it does, return it. Else create a new user with that name and return it.
+     * Concurrent calls with the same name all get the same single user.
+     *
      * @param username name of the User to search for.
      * @return If found - returns the specified user. Otherwise, Returns a newly
      * created user with the specified name.
      */
     public User getUserIfExists(String username) {
-        try {
-            return hasUser(username)
-                    ? getUserByName(username)
-                    : createUser(username);
-        } catch (UserAlreadyExistsException e) {
-            // Won't happen since i checked whether it exists or not before calling createUser()
-            e.printStackTrace();
-            return null;
-        }
+        // Existing users are found with a plain get, since computeIfAbsent may lock even when the key is present
+        User user = name2User.get(username);
+        if (user != null)
+            return user;
+
+        return name2User.computeIfAbsent(username, name -> registerUser(new User(name)));
     }
 
     public User createUser(String username, double balance) throws UserAlreadyExistsException {
-        User newUser = new User(username, balance);
+        User[] created = new User[1];
+        name2User.computeIfAbsent(username, name -> created[0] = registerUser(new User(name, balance)));
 
-        // If the add operation failed
-        if (!users.add(newUser)) {
+        // The name was taken, so no user was created
+        if (created[0] == null)
             throw new UserAlreadyExistsException(username);
-        }
 
-        return newUser;
+        return created[0];
+    }
+
+    /**
+     * Adds a new user to the store of the users by id. Called once per user, when it's put in the name registry.
+     */
+    private User registerUser(User user) {
+        users.add(user);
+        return user;
     }
 }
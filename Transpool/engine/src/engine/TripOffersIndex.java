@@ -0,0 +1,159 @@
+package engine;
+
+import model.Enums.RepetitionRate;
+import model.Station;
+import model.TripOffer;
+import model.TripTiming;
+import model.util.AbsoluteTime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * An inverted index of the trip offers, keyed by the stations the offers pass through,
+ * the 5 minutes time slot in which they pass there, and the days on which they pass there.
+ * <p>
+ * The slots of every station are kept sorted, so the offers in a window of time are found in O(log n + k),
+ * where n is the amount of slots the station has offers in and k the amount of slots in the window that do.
+ * <p>
+ * Recurring offers aren't expanded into their occurrences. Within a slot, every offer is kept once, in the
+ * bucket of its repetition rate and the day it first passes at the station modulo its period (one time offers
+ * by the day itself). The offers at a station on day D are then only in the bucket of D of every rate,
+ * so a query touches only offers that occur on D, plus recurring offers that only start after it.
+ * <p>
+ * Only offers that can still take passengers are indexed.
+ * The index can be read and updated concurrently; every bucket is updated atomically.
+ */
+public class TripOffersIndex {
+    private static final RepetitionRate[] RATES = RepetitionRate.values();
+
+    private final Map<Station, NavigableMap<Integer, Map<Long, Set<TripOffer>>>> station2Slot2Day2Offers;
+
+    public TripOffersIndex() {
+        station2Slot2Day2Offers = new ConcurrentHashMap<>();
+    }
+
+    public void add(TripOffer offer) {
+        for (Station station : offer.getStationsInTrip()) {
+            int time = offer.getAbsoluteTimeAtStation(station);
+
+            station2Slot2Day2Offers
+                    .computeIfAbsent(station, key -> new ConcurrentSkipListMap<>())
+                    .computeIfAbsent(TripTiming.toTimeSlot(time), key -> new ConcurrentHashMap<>())
+                    .compute(getDayKey(offer.getTiming().getRepetitionRate(), AbsoluteTime.getDay(time)), (key, offers) -> {
+                        Set<TripOffer> bucket = offers == null ? ConcurrentHashMap.newKeySet() : offers;
+                        bucket.add(offer);
+                        return bucket;
+                    });
+        }
+    }
+
+    public void remove(TripOffer offer) {
+        for (Station station : offer.getStationsInTrip()) {
+            NavigableMap<Integer, Map<Long, Set<TripOffer>>> slot2Day2Offers = station2Slot2Day2Offers.get(station);
+            if (slot2Day2Offers == null)
+                continue;
+
+            int time = offer.getAbsoluteTimeAtStation(station);
+            Map<Long, Set<TripOffer>> day2Offers = slot2Day2Offers.get(TripTiming.toTimeSlot(time));
+            if (day2Offers == null)
+                continue;
+
+            // Dropping an empty bucket happens in the same atomic step as the removal, so it can't lose a concurrent add
+            day2Offers.computeIfPresent(getDayKey(offer.getTiming().getRepetitionRate(), AbsoluteTime.getDay(time)), (key, offers) -> {
+                offers.remove(offer);
+                return offers.isEmpty() ? null : offers;
+            });
+        }
+    }
+
+    /**
+     * Gets the offers that have an occurrence at a station at a certain time.
+     *
+     * @param station The station the offers pass through.
+     * @param time    The {@link AbsoluteTime} the offers are at the station. Rounded to 5 minutes.
+     * @return The offers found. Empty if there are none.
+     */
+    public List<TripOffer> getOffersAt(Station station, int time) {
+        List<TripOffer> offers = new ArrayList<>();
+        forEachOfferAt(station, time, offers::add);
+
+        return offers;
+    }
+
+    /**
+     * Passes the offers that have an occurrence at a station at a certain time to an action, one by one,
+     * without collecting them first.
+     *
+     * @param station The station the offers pass through.
+     * @param time    The {@link AbsoluteTime} the offers are at the station. Rounded to 5 minutes.
+     * @param action  The action to perform on every offer found.
+     */
+    public void forEachOfferAt(Station station, int time, Consumer<TripOffer> action) {
+        forEachOfferBetween(station, time, time, action);
+    }
+
+    /**
+     * Passes the offers that have an occurrence at a station within a window of time to an action, one by one,
+     * without collecting them first. An offer is passed once for every time it is at the station in the window.
+     *
+     * @param station  The station the offers pass through.
+     * @param fromTime The {@link AbsoluteTime} the window starts at, inclusive. Rounded to 5 minutes.
+     * @param toTime   The {@link AbsoluteTime} the window ends at, inclusive. Rounded to 5 minutes.
+     * @param action   The action to perform on every offer found.
+     */
+    public void forEachOfferBetween(Station station, int fromTime, int toTime, Consumer<TripOffer> action) {
+        NavigableMap<Integer, Map<Long, Set<TripOffer>>> slot2Day2Offers = station2Slot2Day2Offers.get(station);
+        if (slot2Day2Offers == null)
+            return;
+
+        int first = TripTiming.roundTime(fromTime);
+        int last = TripTiming.roundTime(toTime);
+        int firstDay = AbsoluteTime.getDay(first);
+        int lastDay = AbsoluteTime.getDay(last);
+
+        // A window that crosses midnight is split into the slots of every day it covers
+        for (int day = firstDay; day <= lastDay; day++) {
+            int fromSlot = day == firstDay ? TripTiming.toTimeSlot(first) : 0;
+            int toSlot = day == lastDay ? TripTiming.toTimeSlot(last) : TripTiming.TIME_SLOTS_PER_DAY - 1;
+
+            for (Map.Entry<Integer, Map<Long, Set<TripOffer>>> slot : slot2Day2Offers.subMap(fromSlot, true, toSlot, true).entrySet()) {
+                forEachOfferOn(station, TripTiming.fromTimeSlot(day, slot.getKey()), slot.getValue(), action);
+            }
+        }
+    }
+
+    //region Private Methods
+    /**
+     * Passes the offers of a slot that have an occurrence at the station at the time of the slot on its day.
+     */
+    private static void forEachOfferOn(Station station, int time, Map<Long, Set<TripOffer>> day2Offers, Consumer<TripOffer> action) {
+        int day = AbsoluteTime.getDay(time);
+        for (RepetitionRate rate : RATES) {
+            Set<TripOffer> bucket = day2Offers.get(getDayKey(rate, day));
+            if (bucket == null)
+                continue;
+
+            for (TripOffer offer : bucket) {
+                // Recurring offers that start after the day share its bucket
+                if (!rate.isRecurring() || offer.getTiming().isOccurringOn(offer.getDepartureDay(station, time)))
+                    action.accept(offer);
+            }
+        }
+    }
+
+    /**
+     * Gets the key of the bucket of the offers of a repetition rate that pass at a station on a day.
+     */
+    private static long getDayKey(RepetitionRate rate, int day) {
+        int dayInPeriod = rate.isRecurring() ? Math.floorMod(day, rate.getPeriodInDays()) : day;
+        return ((long) rate.ordinal() << Integer.SIZE) | (dayInPeriod & 0xFFFFFFFFL);
+    }
+    //endregion
+}
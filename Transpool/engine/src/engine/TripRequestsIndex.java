@@ -0,0 +1,174 @@
+package engine;
+
+import model.Station;
+import model.TripOffer;
+import model.TripRequest;
+import model.TripTiming;
+import model.util.AbsoluteTime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An inverted index of the unmatched trip requests, keyed by their source station, their destination station,
+ * and the time they want to leave at, rounded to 5 minutes. It's the reverse of the {@link TripOffersIndex}:
+ * it finds the requests a newly posted offer can take.
+ * <p>
+ * For every pair of stations the offer passes through in order, the requests between them are looked up by
+ * the time the offer is at the first one, so only requests the route can take are ever touched. That's a hash
+ * lookup for every pair of stations of the route and O(log n + k) for the pairs that have requests.
+ * <p>
+ * The index can be read and updated concurrently.
+ */
+public class TripRequestsIndex {
+    // The wanted times and the ends of the departure windows are rounded apart, which may widen a window by a slot
+    private static final int TIME_SLOT_MINUTES = AbsoluteTime.MINUTES_PER_DAY / TripTiming.TIME_SLOTS_PER_DAY;
+
+    private final Map<Station, Map<Station, RouteRequests>> src2Dst2Requests;
+
+    // The days the wanted times of the requests span, for finding the occurrences of recurring offers that may take them
+    private final NavigableMap<Integer, Integer> day2RequestsCount;
+
+    public TripRequestsIndex() {
+        src2Dst2Requests = new ConcurrentHashMap<>();
+        day2RequestsCount = new ConcurrentSkipListMap<>();
+    }
+
+    public void add(TripRequest request) {
+        int time = TripTiming.roundTime(request.getAbsoluteWantedTripStartTime());
+        RouteRequests routeRequests = src2Dst2Requests
+                .computeIfAbsent(request.getWantedSourceStation(), key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(request.getWantedDestStation(), key -> new RouteRequests());
+
+        // The skip list may apply a compute function more than once, so the buckets of a pair of stations
+        // are updated under its lock instead. Readers don't lock.
+        synchronized (routeRequests) {
+            if (routeRequests.time2Requests.computeIfAbsent(time, key -> ConcurrentHashMap.newKeySet()).add(request))
+                day2RequestsCount.merge(AbsoluteTime.getDay(time), 1, Integer::sum);
+
+            routeRequests.maxFlexibility = Math.max(routeRequests.maxFlexibility, request.getDepartureFlexibility());
+        }
+    }
+
+    public void remove(TripRequest request) {
+        Map<Station, RouteRequests> dst2Requests = src2Dst2Requests.get(request.getWantedSourceStation());
+        if (dst2Requests == null)
+            return;
+
+        RouteRequests routeRequests = dst2Requests.get(request.getWantedDestStation());
+        if (routeRequests == null)
+            return;
+
+        int time = TripTiming.roundTime(request.getAbsoluteWantedTripStartTime());
+        synchronized (routeRequests) {
+            NavigableMap<Integer, Set<TripRequest>> time2Requests = routeRequests.time2Requests;
+            Set<TripRequest> requests = time2Requests.get(time);
+            if (requests == null || !requests.remove(request))
+                return;
+
+            if (requests.isEmpty())
+                time2Requests.remove(time);
+            day2RequestsCount.computeIfPresent(AbsoluteTime.getDay(time), (day, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * Passes the requests whose source station and destination station the offer passes through in this order,
+     * and that want to leave from the source station within the largest departure flexibility of the requests between
+     * them of the time an occurrence of the offer is there, to an action.
+     * The exact departure window, deadline and seats of the requests aren't checked.
+     *
+     * @param offer  The offer to find requests for.
+     * @param action The action to perform on every request found, with the day the occurrence that can take it departs on.
+     */
+    public void forEachRequestOnRoute(TripOffer offer, ObjIntConsumer<TripRequest> action) {
+        for (int day : getOccurrenceDays(offer)) {
+            forEachRequestOnRoute(offer, day, request -> action.accept(request, day));
+        }
+    }
+
+    //region Private Methods
+    private void forEachRequestOnRoute(TripOffer offer, int day, Consumer<TripRequest> action) {
+        int daysShift = (day - offer.getTiming().getDay()) * AbsoluteTime.MINUTES_PER_DAY;
+
+        for (int from = 0; from < offer.getStationsInTrip().size() - 1; from++) {
+            Station src = offer.getStationsInTrip().get(from);
+            // A station the route passes through twice is the source or destination of its requests at its first time only
+            if (offer.getStationIndex(src) != from)
+                continue;
+
+            Map<Station, RouteRequests> dst2Requests = src2Dst2Requests.get(src);
+            if (dst2Requests == null)
+                continue;
+
+            int time = offer.getAbsoluteTimeAtStationIndex(from) + daysShift;
+            for (int to = from + 1; to < offer.getStationsInTrip().size(); to++) {
+                Station dst = offer.getStationsInTrip().get(to);
+                if (offer.getStationIndex(dst) != to)
+                    continue;
+
+                RouteRequests routeRequests = dst2Requests.get(dst);
+                if (routeRequests == null)
+                    continue;
+
+                int flexibility = routeRequests.maxFlexibility + TIME_SLOT_MINUTES;
+                for (Set<TripRequest> requests : routeRequests.time2Requests.subMap(time - flexibility, true, time + flexibility, true).values()) {
+                    requests.forEach(action);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the days that occurrences of the offer that may take the indexed requests depart on: its only day if it's
+     * a one time offer, or the days it occurs on around the days of the requests if it's recurring.
+     */
+    private List<Integer> getOccurrenceDays(TripOffer offer) {
+        if (!offer.getTiming().getRepetitionRate().isRecurring())
+            return Collections.singletonList(offer.getTiming().getDay());
+
+        Map.Entry<Integer, Integer> firstRequestsDay = day2RequestsCount.firstEntry();
+        Map.Entry<Integer, Integer> lastRequestsDay = day2RequestsCount.lastEntry();
+        if (firstRequestsDay == null || lastRequestsDay == null)
+            return Collections.emptyList();
+
+        // An occurrence may pick up a request days after it departs, or a flexible request from the day before
+        int firstDay = Math.max(offer.getTiming().getDay(), firstRequestsDay.getKey() - getTripDays(offer) - 1);
+        int lastDay = lastRequestsDay.getKey() + 1;
+
+        List<Integer> days = new ArrayList<>();
+        for (int day = firstDay; day <= lastDay; day++) {
+            if (offer.getTiming().isOccurringOn(day))
+                days.add(day);
+        }
+
+        return days;
+    }
+
+    /**
+     * @return The amount of days after its departure day the trip still drives on.
+     */
+    private static int getTripDays(TripOffer offer) {
+        return AbsoluteTime.getDay(offer.getAbsoluteArrivalTime()) - offer.getTiming().getDay();
+    }
+    //endregion
+
+    /**
+     * The requests from one station to another, by the time they want to leave at.
+     */
+    private static class RouteRequests {
+        private final NavigableMap<Integer, Set<TripRequest>> time2Requests = new ConcurrentSkipListMap<>();
+
+        // The widest departure window of the requests ever held, so the time range to look them up in.
+        // It doesn't shrink when they're removed, it's only an upper bound.
+        private volatile int maxFlexibility;
+    }
+}
@@ -1,61 +1,282 @@
 package engine;
 
+import model.MatchRanking;
+import model.Station;
+import model.TripOccurrence;
 import model.TripOffer;
 import model.TripRequest;
+import model.TripTiming;
 
+import model.util.collections.IdIndexedStore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
- * engine.TripsManager is a Util class, that managers the offers and requests of the trips
+ * engine.TripsManager is a Util class, that managers the offers and requests of the trips.
+ * It is safe to use from many threads at once: offers and requests are kept in concurrent stores indexed
+ * by their ids, and matching reserves the seat of the request on an occurrence of the offer atomically,
+ * without a global lock.
  */
 public class TripsManager {
-    private Set<TripOffer> offers;
-    private Set<TripRequest> requests;
+    private final IdIndexedStore<TripOffer> offers;
+    private final IdIndexedStore<TripRequest> requests;
+    private final TripOffersIndex offersIndex;
+    private final TripRequestsIndex requestsIndex;
+    private final ConnectionTimetable timetable;
 
     public TripsManager(Set<TripOffer> offers) {
-        this.offers = offers;
-        this.requests = new HashSet<>();
+        this.offers = new IdIndexedStore<>();
+        this.requests = new IdIndexedStore<>();
+        this.offersIndex = new TripOffersIndex();
+        this.requestsIndex = new TripRequestsIndex();
+        this.timetable = new ConnectionTimetable();
+
+        offers.forEach(this::addOffer);
+    }
+
+    /**
+     * @return An unmodifiable view of the offers, in order of id.
+     */
+    public Collection<TripOffer> getOffers() {
+        return Collections.unmodifiableCollection(offers);
     }
 
-    public Set<TripOffer> getOffers() {
-        return offers;
+    /**
+     * @return The offer with the given id, or null if there is none.
+     */
+    public TripOffer getOffer(int id) {
+        return offers.get(id);
     }
 
     public boolean addOffer(TripOffer offer) {
-        return offers.add(offer);
+        if (!offers.add(offer))
+            return false;
+
+        indexOffer(offer);
+        timetable.add(offer);
+        return true;
     }
 
-    public List<TripRequest> getRequests() {
-        return requests.stream().sorted(Comparator.comparingInt(TripRequest::getId)).collect(Collectors.toList());
+    /**
+     * @return The connections of all the offers, for planning itineraries that switch between them.
+     */
+    public ConnectionTimetable getTimetable() {
+        return timetable;
     }
 
+    /**
+     * @return An unmodifiable view of the requests, in order of id.
+     */
+    public Collection<TripRequest> getRequests() {
+        return Collections.unmodifiableCollection(requests);
+    }
+
+    /**
+     * @return The request with the given id, or null if there is none.
+     */
+    public TripRequest getRequest(int id) {
+        return requests.get(id);
+    }
+
+    /**
+     * @return The requests that are not matched yet, in order of id.
+     */
     public List<TripRequest> getUnmatchedRequests() {
-        return getRequests().stream().filter(request -> !request.isMatched()).collect(Collectors.toList());
+        return requests.stream().filter(request -> !request.isMatched()).collect(Collectors.toList());
     }
 
     public boolean addRequest(TripRequest req) {
-        return requests.add(req);
+        if (!requests.add(req))
+            return false;
+
+        if (!req.isMatched())
+            requestsIndex.add(req);
+        return true;
     }
 
-    public void matchRequestToOffer(TripRequest req, TripOffer off) {
-        req.setMatchedTo(off);
-        off.registerRequest(req);
+    /**
+     * Matches a request to the occurrence of an offer that is at the request's source station the nearest to the
+     * wanted time, if the request isn't matched yet, the occurrence is there within the request's departure window
+     * and arrives in time, and it has a free seat on every leg the request rides on.
+     * Concurrent matches never overbook a leg of an occurrence nor match a request twice.
+     *
+     * @return True if the request was matched to the offer.
+     */
+    public boolean matchRequestToOffer(TripRequest req, TripOffer off) {
+        if (!isCandidate(req, off))
+            return false;
+
+        TripOccurrence occurrence = off.getOccurrence(TripRequest.getDepartureDay(req, off));
+        if (occurrence == null || !req.tryMatchTo(occurrence))
+            return false;
+
+        int fromIndex = off.getStationIndex(req.getWantedSourceStation());
+        int toIndex = off.getStationIndex(req.getWantedDestStation());
+        if (!occurrence.tryReserveSeat(fromIndex, toIndex)) {
+            req.unmatchFrom(occurrence);
+            return false;
+        }
+
+        occurrence.registerRequest(req);
+        requestsIndex.remove(req);
+
+        // A one time offer that is full on every leg can't be matched to anymore, so there's no need to look it up.
+        // Recurring offers stay indexed for their other occurrences.
+        if (!off.getTiming().getRepetitionRate().isRecurring() && occurrence.isFull())
+            offersIndex.remove(off);
+
+        return true;
     }
 
+    /**
+     * Finds the offers that have an occurrence at the source station of the request within its departure window,
+     * that later on passes at its destination station by its arrival deadline, if it has one,
+     * with a free seat on every leg in between.
+     * Only the offers that the index holds for the source station in the window are checked.
+     *
+     * @param request The request to find matches for.
+     * @return The offers that can take the request's user to their destination.
+     */
     public List<TripOffer> getPossibleMatches(TripRequest request) {
-        return getOffers().stream()
-                .filter(offer ->
-                        offer.getRemainingPassengersCapacity() > 0 &&
-                                offer.getStationsInTrip().contains(request.getWantedSourceStation()) &&
-                                offer.getStationsInTrip().contains(request.getWantedDestStation()) &&
-                                offer.getStationsInTrip().indexOf(request.getWantedSourceStation()) <
-                                        offer.getStationsInTrip().indexOf(request.getWantedDestStation()) &&
-                                offer.getWhenAtStation(request.getWantedSourceStation()).equals(request.getWantedTripStartTime())
-                )
-                .collect(Collectors.toList());
+        Station src = request.getWantedSourceStation();
+        Station dst = request.getWantedDestStation();
+        List<TripOffer> matches = new ArrayList<>();
+
+        forEachCandidate(request, offer -> {
+            if (offer.getRemainingPassengersCapacity(TripRequest.getDepartureDay(request, offer), src, dst) > 0)
+                matches.add(offer);
+        });
+
+        return matches;
+    }
+
+    /**
+     * Finds the best matches of a request by a ranking, among the offers {@link #getPossibleMatches} would find.
+     * The offers are streamed from the index into a heap of the best {@code maxMatches} offers so far, with the worst
+     * of them on top. Every candidate the index holds is still scored, so the method is linear in the candidates.
+     * Once the heap is full, a candidate that doesn't beat the top is dropped before its seats are checked, which
+     * saves the seat check, and keeping the heap costs O(log maxMatches) per candidate instead of a full sort.
+     *
+     * @param request    The request to find matches for.
+     * @param maxMatches The most matches to return.
+     * @param ranking    What the matches are ranked by.
+     * @return The best matches, from the best to the worst. Matches that score the same are in order of offer id.
+     */
+    public List<TripOffer> getTopMatches(TripRequest request, int maxMatches, MatchRanking ranking) {
+        if (maxMatches <= 0)
+            return Collections.emptyList();
+
+        Station src = request.getWantedSourceStation();
+        Station dst = request.getWantedDestStation();
+        PriorityQueue<RankedOffer> worstFirst = new PriorityQueue<>(RankedOffer.BEST_FIRST.reversed());
+
+        forEachCandidate(request, offer -> {
+            RankedOffer ranked = new RankedOffer(offer, ranking.getScore(request, offer));
+            if (worstFirst.size() == maxMatches && RankedOffer.BEST_FIRST.compare(ranked, worstFirst.peek()) >= 0)
+                return;
+
+            if (offer.getRemainingPassengersCapacity(TripRequest.getDepartureDay(request, offer), src, dst) <= 0)
+                return;
+
+            worstFirst.add(ranked);
+            if (worstFirst.size() > maxMatches)
+                worstFirst.poll();
+        });
+
+        List<RankedOffer> topMatches = new ArrayList<>(worstFirst);
+        topMatches.sort(RankedOffer.BEST_FIRST);
+        return topMatches.stream().map(RankedOffer::getOffer).collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the unmatched requests that an offer can take, the reverse of {@link #getPossibleMatches}: the requests
+     * whose departure window the nearest occurrence of the offer at their source station is in, that it takes to their
+     * destination station in time, with a free seat on every leg in between.
+     * Only the requests that the index holds for pairs of stations along the offer's route are checked,
+     * so the cost grows with the length of the route and not with the amount of requests.
+     *
+     * @param offer The offer to find requests for.
+     * @return The requests the offer can take, in order of id.
+     */
+    public List<TripRequest> getServableRequests(TripOffer offer) {
+        List<TripRequest> servable = new ArrayList<>();
+
+        requestsIndex.forEachRequestOnRoute(offer, (request, day) -> {
+            // Every request is found through the occurrence it would be matched to only
+            if (request.isMatched() || TripRequest.getDepartureDay(request, offer) != day || !isCandidate(request, offer))
+                return;
+
+            if (offer.getRemainingPassengersCapacity(day, request.getWantedSourceStation(), request.getWantedDestStation()) > 0)
+                servable.add(request);
+        });
+
+        servable.sort(Comparator.comparingInt(TripRequest::getId));
+        return servable;
+    }
+
+    //region Private Methods
+    /**
+     * Passes the offers that can take the request's user to their destination in time, regardless of their seats,
+     * to an action.
+     */
+    private void forEachCandidate(TripRequest request, Consumer<TripOffer> action) {
+        Station src = request.getWantedSourceStation();
+        Station dst = request.getWantedDestStation();
+
+        offersIndex.forEachOfferBetween(src, request.getEarliestDepartureTime(), request.getLatestDepartureTime(), offer -> {
+            if (offer.isStationBefore(src, dst) && TripRequest.isArrivingInTime(request, offer))
+                action.accept(offer);
+        });
+    }
+
+    /**
+     * Checks whether the offer is one of the offers {@link #forEachCandidate} would pass for the request.
+     */
+    private static boolean isCandidate(TripRequest request, TripOffer offer) {
+        if (!offer.isStationBefore(request.getWantedSourceStation(), request.getWantedDestStation()))
+            return false;
+
+        int departureTime = TripRequest.getAbsoluteDepartureTime(request, offer);
+        return TripTiming.roundTime(request.getEarliestDepartureTime()) <= departureTime
+                && departureTime <= TripTiming.roundTime(request.getLatestDepartureTime())
+                && TripRequest.isArrivingInTime(request, offer);
+    }
+
+    private void indexOffer(TripOffer offer) {
+        if (offer.getTiming().getRepetitionRate().isRecurring() || offer.getRemainingPassengersCapacity() > 0)
+            offersIndex.add(offer);
+    }
+    //endregion
+
+    /**
+     * An offer with the score it got as a match of a request.
+     */
+    private static class RankedOffer {
+        private static final Comparator<RankedOffer> BEST_FIRST =
+                Comparator.comparingDouble(RankedOffer::getScore).thenComparingInt(ranked -> ranked.getOffer().getId());
+
+        private final TripOffer offer;
+        private final double score;
+
+        private RankedOffer(TripOffer offer, double score) {
+            this.offer = offer;
+            this.score = score;
+        }
+
+        private TripOffer getOffer() {
+            return offer;
+        }
+
+        private double getScore() {
+            return score;
+        }
     }
 }
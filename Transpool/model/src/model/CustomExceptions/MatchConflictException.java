@@ -0,0 +1,14 @@
+package model.CustomExceptions;
+
+public class MatchConflictException extends FormattedMessageException {
+    private static final String EXCEPTION_MSG = "Trip request %d could not be matched to trip offer %d.\n" +
+            "Either the trip request was already matched or the trip offer has no free seats left.";
+
+    public MatchConflictException(int requestId, int offerId) {
+        super(EXCEPTION_MSG, requestId, offerId);
+    }
+
+    public MatchConflictException(String message, Object... args) {
+        super(message, args);
+    }
+}
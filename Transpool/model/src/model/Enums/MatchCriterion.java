@@ -0,0 +1,66 @@
+package model.Enums;
+
+import model.TripOffer;
+import model.TripRequest;
+
+/**
+ * What matches of trip requests to trip offers are measured by. Every criterion gives a match a cost,
+ * and the lower the cost the better the match.
+ */
+public enum MatchCriterion {
+    /**
+     * The price of the trip in ILS.
+     */
+    Price {
+        @Override
+        public long getCost(TripRequest request, TripOffer offer) {
+            return TripRequest.getTripPrice(request, offer);
+        }
+    },
+    /**
+     * The {@link model.util.AbsoluteTime} of the arrival at the destination. The matches of a request may leave
+     * its source station at different times, so the shortest trip isn't always the earliest arrival.
+     */
+    ArrivalTime {
+        @Override
+        public long getCost(TripRequest request, TripOffer offer) {
+            return TripRequest.getAbsoluteArrivalTime(request, offer);
+        }
+    },
+    /**
+     * The milliliters of gas the trip uses per 100 Km, so the more Km per liter the lower the cost.
+     */
+    AvgGasUsage {
+        @Override
+        public long getCost(TripRequest request, TripOffer offer) {
+            // A route whose cars drive no km on a liter can't be measured, so it gets the worst cost
+            double avgKmPerLiter = TripRequest.getAvgGasUsage(request, offer);
+            if (avgKmPerLiter <= 0)
+                return MAX_COST;
+
+            return Math.min(MAX_COST, Math.round(MILLILITERS_PER_100_KM / avgKmPerLiter));
+        }
+    };
+
+    /**
+     * The highest cost a criterion gives a match. Low enough that the costs of all the matches
+     * of a batch can be summed without overflowing.
+     */
+    public static final long MAX_COST = Integer.MAX_VALUE;
+
+    private static final double MILLILITERS_PER_100_KM = 100 * 1000;
+
+    /**
+     * Gets the cost of matching a request to an offer that passes at its source station and later at its destination.
+     * It is never more than {@link #MAX_COST}.
+     */
+    public abstract long getCost(TripRequest request, TripOffer offer);
+
+    public static boolean isValueInRange(int val) {
+        return val >= 0 && val < MatchCriterion.values().length;
+    }
+
+    public static int getValuesCount() {
+        return MatchCriterion.values().length;
+    }
+}
@@ -1,11 +1,39 @@
 package model.Enums;
 
 public enum RepetitionRate {
-    OneTime,
-    Daily,
-    BiDaily,
-    Weekly,
-    Monthly;
+    OneTime(0),
+    Daily(1),
+    BiDaily(2),
+    Weekly(7),
+    // Days are plain numbers rather than calendar dates, so a month is taken as 30 days
+    Monthly(30);
+
+    private final int periodInDays;
+
+    RepetitionRate(int periodInDays) {
+        this.periodInDays = periodInDays;
+    }
+
+    /**
+     * @return The amount of days between occurrences, or 0 if the trip doesn't repeat.
+     */
+    public int getPeriodInDays() {
+        return periodInDays;
+    }
+
+    public boolean isRecurring() {
+        return periodInDays > 0;
+    }
+
+    /**
+     * Checks whether a trip that first occurs on {@code firstDay} occurs on {@code day} as well.
+     */
+    public boolean isOccurringOn(int firstDay, int day) {
+        if (!isRecurring())
+            return day == firstDay;
+
+        return day >= firstDay && (day - firstDay) % periodInDays == 0;
+    }
 
     public static boolean isValueInRange(int val) {
         return val >= 0 && val < RepetitionRate.values().length;
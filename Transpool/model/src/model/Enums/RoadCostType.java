@@ -0,0 +1,42 @@
+package model.Enums;
+
+import model.Road;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The different costs a {@link Road} can be weighed by when searching for routes on the map.
+ */
+public enum RoadCostType implements ToDoubleFunction<Road> {
+    /**
+     * The length of the road in Km.
+     */
+    Length {
+        @Override
+        public double applyAsDouble(Road road) {
+            return road.getLength();
+        }
+    },
+    /**
+     * The time it takes to drive across the road in minutes.
+     */
+    Duration {
+        @Override
+        public double applyAsDouble(Road road) {
+            return road.getMaxDrivingSpeed() > 0
+                    ? Road.calcRoadTravelDuration(road)
+                    : Double.POSITIVE_INFINITY;
+        }
+    },
+    /**
+     * The amount of gas (in liters) it takes to drive across the road.
+     */
+    Fuel {
+        @Override
+        public double applyAsDouble(Road road) {
+            return road.getKmPerGasLiter() > 0
+                    ? (double) road.getLength() / road.getKmPerGasLiter()
+                    : Double.POSITIVE_INFINITY;
+        }
+    }
+}
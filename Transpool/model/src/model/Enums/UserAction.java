@@ -7,6 +7,8 @@ public enum UserAction {
     GET_ALL_TRIP_OFFERS,
     GET_ALL_TRIP_REQUESTS,
     MATCH_TRIP_REQUEST_TO_OFFER,
+    MATCH_ALL_UNMATCHED_REQUESTS,
+    PLAN_TRIP_REQUEST_ITINERARIES,
     EXIT;
 
     public static boolean isValueInRange(int val) {
@@ -1,10 +1,14 @@
 package model.Interfaces;
 
+import model.CustomExceptions.MatchConflictException;
 import model.CustomExceptions.RoadDoesNotExistException;
 import model.CustomExceptions.StationDoesNotExistException;
 import model.CustomExceptions.TranspoolXmlValidationException;
 import model.CustomExceptions.UnsupportedFileTypeException;
+import model.Enums.MatchCriterion;
 import model.Enums.RepetitionRate;
+import model.Itinerary;
+import model.MatchRanking;
 import model.Road;
 import model.Station;
 import model.TripOffer;
@@ -16,6 +20,7 @@ import java.io.FileNotFoundException;
 import java.time.DateTimeException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface IEngine {
     void readXmlFile(String path)
@@ -25,9 +30,11 @@ public interface IEngine {
 
     Collection<Road> getAllRoads() throws OperationNotSupportedException;
 
-    void postTripRequest(String user, String srcStation, String dstStation, int hour, int minutes) throws OperationNotSupportedException, StationDoesNotExistException, DateTimeException;
+    void postTripRequest(String user, String srcStation, String dstStation, int day, int hour, int minutes, int departureFlexibility, boolean doesUserAgreeToStationExchange) throws OperationNotSupportedException, StationDoesNotExistException, DateTimeException;
 
-    void postTripOffer(String user, List<String> stationNames, int day, int hour, int minutes, String repetitionRate, int ppk, int capacity) throws OperationNotSupportedException, StationDoesNotExistException, DateTimeException, RoadDoesNotExistException;
+    void postTripRequest(String user, String srcStation, String dstStation, int day, int hour, int minutes, int departureFlexibility, int arrivalDay, int arrivalHour, int arrivalMinutes, boolean doesUserAgreeToStationExchange) throws OperationNotSupportedException, StationDoesNotExistException, DateTimeException;
+
+    List<TripRequest> postTripOffer(String user, List<String> stationNames, int day, int hour, int minutes, String repetitionRate, int ppk, int capacity) throws OperationNotSupportedException, StationDoesNotExistException, DateTimeException, RoadDoesNotExistException;
 
     Collection<TripOffer> getAllTripOffers() throws OperationNotSupportedException;
 
@@ -35,7 +42,15 @@ public interface IEngine {
 
     Collection<TripRequest> getUnmatchedTripRequests() throws OperationNotSupportedException;
 
+    TripRequest getTripRequestById(int id) throws OperationNotSupportedException;
+
     List<TripOffer> getAllMatchedToRequest(TripRequest request) throws OperationNotSupportedException;
 
-    void matchTripRequestToOffer(TripRequest request, TripOffer SelectedMatch) throws OperationNotSupportedException;
+    List<TripOffer> getTopMatchesToRequest(TripRequest request, int maxMatches, MatchRanking ranking) throws OperationNotSupportedException;
+
+    void matchTripRequestToOffer(TripRequest request, TripOffer SelectedMatch) throws OperationNotSupportedException, MatchConflictException;
+
+    Map<TripRequest, TripOffer> matchAllUnmatchedRequests(MatchCriterion criterion) throws OperationNotSupportedException;
+
+    List<Itinerary> getItineraries(TripRequest request) throws OperationNotSupportedException;
 }
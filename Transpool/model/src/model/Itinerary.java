@@ -0,0 +1,145 @@
+package model;
+
+import model.Interfaces.TranspoolEntity;
+import model.util.AbsoluteTime;
+
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A way to get from one station to another by riding several trip offers one after the other,
+ * switching between them at the stations where one ride ends and the next one starts.
+ */
+public class Itinerary implements TranspoolEntity {
+    private final List<Leg> legs;
+
+    public Itinerary(List<Leg> legs) {
+        if (legs.isEmpty())
+            throw new IllegalArgumentException("An itinerary must have at least one ride.");
+
+        this.legs = Collections.unmodifiableList(legs);
+    }
+
+    //region Getters
+    /**
+     * @return The rides of the itinerary, in the order they are taken.
+     */
+    public List<Leg> getLegs() {
+        return legs;
+    }
+    //endregion
+
+    //region Public Methods
+    public int getTransfersCount() {
+        return legs.size() - 1;
+    }
+
+    /**
+     * @return The {@link AbsoluteTime} the first ride leaves.
+     */
+    public int getDepartureTime() {
+        return legs.get(0).getDepartureTime();
+    }
+
+    /**
+     * @return The {@link AbsoluteTime} the last ride arrives at the destination.
+     */
+    public int getArrivalTime() {
+        return legs.get(legs.size() - 1).getArrivalTime();
+    }
+
+    public int getTripPrice() {
+        int price = 0;
+        for (Leg leg : legs) {
+            price += leg.getTripPrice();
+        }
+
+        return price;
+    }
+    //endregion
+
+    /**
+     * A single ride of an itinerary, on an occurrence of a trip offer from one station of its route to a later one.
+     */
+    public static class Leg implements TranspoolEntity {
+        private final TripOffer offer;
+        private final int occurrenceDay;
+        private final int fromIndex;
+        private final int toIndex;
+
+        /**
+         * @param fromIndex The position of the station the ride starts at in the route of the offer.
+         * @param toIndex   The position of the station the ride ends at in the route of the offer.
+         */
+        public Leg(TripOffer offer, int occurrenceDay, int fromIndex, int toIndex) {
+            this.offer = offer;
+            this.occurrenceDay = occurrenceDay;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+
+        //region Getters
+        public TripOffer getOffer() {
+            return offer;
+        }
+
+        /**
+         * @return The day the occurrence of the offer that is ridden departs on.
+         */
+        public int getOccurrenceDay() {
+            return occurrenceDay;
+        }
+
+        public Station getFromStation() {
+            return offer.getStationsInTrip().get(fromIndex);
+        }
+
+        public Station getToStation() {
+            return offer.getStationsInTrip().get(toIndex);
+        }
+        //endregion
+
+        //region Public Methods
+        /**
+         * @return The {@link AbsoluteTime} the ride leaves its first station.
+         */
+        public int getDepartureTime() {
+            return getAbsoluteTimeAtStationIndex(fromIndex);
+        }
+
+        /**
+         * @return The {@link AbsoluteTime} the ride reaches its last station.
+         */
+        public int getArrivalTime() {
+            return getAbsoluteTimeAtStationIndex(toIndex);
+        }
+
+        public LocalTime getWhenDeparting() {
+            return AbsoluteTime.toLocalTime(getDepartureTime());
+        }
+
+        public LocalTime getWhenArriving() {
+            return AbsoluteTime.toLocalTime(getArrivalTime());
+        }
+
+        public int getTripPrice() {
+            return offer.getLengthBetweenIndexes(fromIndex, toIndex) * offer.getPricePerKm();
+        }
+
+        /**
+         * @return The amount of seats that are free on the ridden part of the route.
+         */
+        public int getRemainingPassengersCapacity() {
+            return offer.getRemainingPassengersCapacity(occurrenceDay, fromIndex, toIndex);
+        }
+        //endregion
+
+        //region Private Methods
+        private int getAbsoluteTimeAtStationIndex(int index) {
+            int daysShift = occurrenceDay - offer.getTiming().getDay();
+            return offer.getAbsoluteTimeAtStationIndex(index) + daysShift * AbsoluteTime.MINUTES_PER_DAY;
+        }
+        //endregion
+    }
+}
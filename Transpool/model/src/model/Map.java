@@ -2,13 +2,24 @@ package model;
 
 import model.CustomExceptions.RoadDoesNotExistException;
 import model.CustomExceptions.StationDoesNotExistException;
+import model.Enums.RoadCostType;
+import model.util.collections.CompressedGraph;
+import model.util.collections.ContractionHierarchy;
+import model.util.collections.DistanceOracle;
 import model.util.collections.Graph;
+import model.util.collections.GraphPath;
 
 import javax.naming.OperationNotSupportedException;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
 
 /**
  * This is the object that represents the projection of the world
@@ -23,6 +34,9 @@ public class Map {
     public static final int MAX_WIDTH = MAX_MAP_SCALE;
     public static final int MIN_LENGTH = MIN_MAP_SCALE;
     public static final int MIN_WIDTH = MIN_MAP_SCALE;
+
+    // The most stations the costs of all the routes between them are kept for: 8 MB for every RoadCostType
+    public static final int MAX_DISTANCE_TABLE_STATIONS = 1024;
     //endregion
 
     //region Non-static constants
@@ -37,6 +51,22 @@ public class Map {
 
     private final Graph<Station, Road> stationsGraph;
 
+    // A compressed snapshot of the graph with the cost of every road by each RoadCostType, for routing.
+    // Rebuilt when the graph is mutated.
+    private volatile CompressedGraph<Station, Road> roadNetwork;
+
+    // The costs of the cheapest routes between all the stations, on the current snapshot.
+    // Built on the first query that needs it, and dropped with the snapshot when the graph is mutated.
+    private volatile DistanceOracle<Station, Road> distanceOracle;
+
+    // The contraction hierarchies of the current snapshot, for the cost types they were enabled for.
+    // Rebuilt on the first query that needs them after the graph is mutated.
+    private final Set<RoadCostType> hierarchyCostTypes;
+    private final java.util.Map<RoadCostType, ContractionHierarchy<Station, Road>> hierarchies;
+
+    // Indexes of the graph, for constant time lookups by names. Rebuilt when the graph is mutated.
+    private volatile GraphIndexes indexes;
+
     //endregion
 
     //region Ctor
@@ -45,6 +75,10 @@ public class Map {
         WIDTH = width;
 
         this.stationsGraph = stationsGraph;
+        this.hierarchyCostTypes = ConcurrentHashMap.newKeySet();
+        this.hierarchies = new ConcurrentHashMap<>();
+        this.indexes = new GraphIndexes(stationsGraph);
+        this.roadNetwork = buildRoadNetwork();
     }
     //endregion
 
@@ -83,8 +117,11 @@ public class Map {
         instance = null;
     }
 
+    /**
+     * @return The roads on the map when it's called. Roads added to the map later are not added to the returned set.
+     */
     public Set<Road> getRoads() {
-        return stationsGraph.getEdges();
+        return Collections.unmodifiableSet(getIndexes().roads);
     }
 
     public Set<Station> getStations() {
@@ -108,24 +145,19 @@ public class Map {
     }
 
     public boolean hasStation(String stationName) {
-        return Station.containsStationByName(getStations(), stationName);
+        return getIndexes().name2Station.containsKey(stationName);
     }
 
     public Station getStation(String stationName) throws StationDoesNotExistException {
-        return Station.getStationByName(getStations(), stationName);
+        Station station = getIndexes().name2Station.get(stationName);
+        if (station == null)
+            throw new StationDoesNotExistException(stationName);
+
+        return station;
     }
 
     public Station getStationIfExists(String stationName) {
-        if (hasStation(stationName)) {
-            try {
-                return getStation(stationName);
-            } catch (StationDoesNotExistException e) {
-                // Never happens Since i checked it exist
-                e.printStackTrace();
-            }
-        }
-
-        return null;
+        return getIndexes().name2Station.get(stationName);
     }
 
     public List<Station> getStationsByNames(List<String> stationNames) throws StationDoesNotExistException {
@@ -138,11 +170,30 @@ public class Map {
     }
 
     public boolean hasRoad(String srcStation, String dstStation) {
-        return Road.containsRoadBySrcAndDstNames(getRoads(), srcStation, dstStation);
+        return getRoadIfExists(srcStation, dstStation) != null;
     }
 
+    /**
+     * Gets the road that can be driven from one station to another.
+     * A road that is not one-way can be driven in both directions, so it is returned for both
+     * orders of its stations.
+     *
+     * @param srcStation The name of the station to drive from.
+     * @param dstStation The name of the station to drive to.
+     * @return The road between the stations.
+     * @throws RoadDoesNotExistException If there is no road that can be driven from {@code srcStation} to {@code dstStation}.
+     */
     public Road getRoad(String srcStation, String dstStation) throws RoadDoesNotExistException {
-        return Road.getRoadBySrcDst(getRoads(), srcStation, dstStation);
+        Road road = getRoadIfExists(srcStation, dstStation);
+        if (road == null)
+            throw new RoadDoesNotExistException(srcStation, dstStation);
+
+        return road;
+    }
+
+    public Road getRoadIfExists(String srcStation, String dstStation) {
+        java.util.Map<String, Road> dst2Road = getIndexes().src2Dst2Road.get(srcStation);
+        return dst2Road == null ? null : dst2Road.get(dstStation);
     }
 
     public List<Road> getRoadsByStationsList(List<Station> stations) throws RoadDoesNotExistException {
@@ -156,4 +207,261 @@ public class Map {
 
         return roads;
     }
+
+    //region Indexes
+    /**
+     * @return The indexes of the graph, rebuilt first if the graph was mutated since they were built.
+     */
+    private GraphIndexes getIndexes() {
+        GraphIndexes current = indexes;
+        if (current.version == stationsGraph.getVersion())
+            return current;
+
+        synchronized (this) {
+            if (indexes.version != stationsGraph.getVersion())
+                indexes = new GraphIndexes(stationsGraph);
+
+            return indexes;
+        }
+    }
+    //endregion
+
+    //region Routing
+
+    /**
+     * Finds the cheapest route between two stations.
+     * The search is an A* search, guided by the straight line distance between the stations'
+     * coordinates. If the cost function cannot be bound by that distance, it falls back to Dijkstra.
+     * Searches by a {@link RoadCostType} run on the compressed snapshot of the map, with the costs of the
+     * roads computed up front, or on its contraction hierarchy if one was enabled for the cost type.
+     *
+     * @param src      The station the route starts at.
+     * @param dst      The station the route ends at.
+     * @param roadCost The cost of driving across each road, e.g. one of the {@link model.Enums.RoadCostType}s.
+     *                 Must be non-negative. Roads with an infinite cost are not traveled through.
+     * @return The cheapest route from {@code src} to {@code dst}, or null if there is no such route.
+     */
+    public GraphPath<Station, Road> getShortestPath(Station src, Station dst, ToDoubleFunction<? super Road> roadCost) {
+        if (roadCost instanceof RoadCostType) {
+            int costIndex = ((RoadCostType) roadCost).ordinal();
+            // The scale is taken from the same snapshot that is searched, so it always bounds the costs of its roads
+            CompressedGraph<Station, Road> network = getRoadNetwork();
+            double scale = toHeuristicScale(network.getLowestCostPerDistance(costIndex));
+
+            // Searching for a route that doesn't exist visits every station it can reach, so rule it out first
+            // if the costs of all the routes are already known
+            DistanceOracle<Station, Road> oracle = distanceOracle;
+            if (oracle != null && oracle.getGraph() == network && Double.isInfinite(oracle.getCost(costIndex, src, dst)))
+                return null;
+
+            ContractionHierarchy<Station, Road> hierarchy = getContractionHierarchy((RoadCostType) roadCost);
+            if (hierarchy != null)
+                return hierarchy.getShortestPath(src, dst);
+
+            return network.getShortestPath(src, dst, costIndex,
+                    (station, target) -> scale * getDistance(station, target)
+            );
+        }
+
+        // A custom cost function may be a new object on every call, or give other costs after the map is changed,
+        // so its scale is found again for every search instead of being cached
+        double scale = calcHeuristicScale(roadCost);
+        if (scale <= 0)
+            return stationsGraph.getShortestPath(src, dst, roadCost);
+
+        return stationsGraph.getShortestPath(src, dst, roadCost,
+                (station, target) -> scale * getDistance(station, target)
+        );
+    }
+
+    public GraphPath<Station, Road> getShortestPath(String srcStation, String dstStation, ToDoubleFunction<? super Road> roadCost)
+            throws StationDoesNotExistException {
+        return getShortestPath(getStation(srcStation), getStation(dstStation), roadCost);
+    }
+
+    /**
+     * Gets the cost of the cheapest route between two stations, without the route itself.
+     * On maps of up to {@link #MAX_DISTANCE_TABLE_STATIONS} stations, the costs of the routes between all the
+     * stations are computed in parallel on the first call, so every call after it is an array read.
+     * On bigger maps the route is searched for, on the contraction hierarchy of the cost type if one was enabled.
+     *
+     * @param costType What the cost of the route is measured by.
+     * @return The cost of the route, or infinity if there is no route from {@code src} to {@code dst}.
+     */
+    public double getRouteCost(Station src, Station dst, RoadCostType costType) {
+        DistanceOracle<Station, Road> oracle = getDistanceOracle();
+        if (oracle != null)
+            return oracle.getCost(costType.ordinal(), src, dst);
+
+        ContractionHierarchy<Station, Road> hierarchy = getContractionHierarchy(costType);
+        if (hierarchy != null)
+            return hierarchy.getCost(src, dst);
+
+        GraphPath<Station, Road> path = getShortestPath(src, dst, costType);
+        return path == null ? Double.POSITIVE_INFINITY : path.getCost();
+    }
+
+    /**
+     * Builds a contraction hierarchy of the map by a cost type, and answers the route queries by that cost type
+     * with it from now on. On road networks, where the roads connect nearby stations, a query on the hierarchy settles
+     * a few hundred stations even on maps of a hundred thousand, but building it takes seconds on such maps, so it only
+     * pays off on big maps that many routes are searched on.
+     * It's rebuilt on the first query after the map is changed.
+     *
+     * @param costType What the cost of the routes the hierarchy answers is measured by.
+     */
+    public void enableContractionHierarchy(RoadCostType costType) {
+        hierarchyCostTypes.add(costType);
+        getContractionHierarchy(costType);
+    }
+
+    /**
+     * Checks whether a station can be reached from another by driving along the roads, in constant time
+     * once the reachability index of the map is built.
+     */
+    public boolean doesRouteExist(Station src, Station dst) {
+        // The graph builds its reachability index on the first query, so the queries take turns
+        synchronized (stationsGraph) {
+            return stationsGraph.doesPathExist(src, dst);
+        }
+    }
+
+    /**
+     * @return The compressed snapshot of the map, rebuilt first if the graph was mutated since it was taken.
+     */
+    private CompressedGraph<Station, Road> getRoadNetwork() {
+        CompressedGraph<Station, Road> network = roadNetwork;
+        if (!network.isStale())
+            return network;
+
+        synchronized (this) {
+            if (roadNetwork.isStale()) {
+                distanceOracle = null;
+                hierarchies.clear();
+                roadNetwork = buildRoadNetwork();
+            }
+
+            return roadNetwork;
+        }
+    }
+
+    private CompressedGraph<Station, Road> buildRoadNetwork() {
+        return CompressedGraph.of(stationsGraph, Arrays.asList(RoadCostType.values()), Map::getDistance);
+    }
+
+    /**
+     * @return The costs of all the routes on the current snapshot of the map, built first if needed,
+     * or null if the map has too many stations for them.
+     */
+    private DistanceOracle<Station, Road> getDistanceOracle() {
+        CompressedGraph<Station, Road> network = getRoadNetwork();
+        if (network.getVertexCount() > MAX_DISTANCE_TABLE_STATIONS)
+            return null;
+
+        DistanceOracle<Station, Road> oracle = distanceOracle;
+        if (oracle != null && oracle.getGraph() == network)
+            return oracle;
+
+        synchronized (this) {
+            if (distanceOracle == null || distanceOracle.getGraph() != roadNetwork)
+                distanceOracle = DistanceOracle.of(roadNetwork);
+
+            return distanceOracle;
+        }
+    }
+
+    /**
+     * @return The contraction hierarchy of the current snapshot of the map by the cost type, built first if needed,
+     * or null if it wasn't enabled for the cost type.
+     */
+    private ContractionHierarchy<Station, Road> getContractionHierarchy(RoadCostType costType) {
+        if (!hierarchyCostTypes.contains(costType))
+            return null;
+
+        CompressedGraph<Station, Road> network = getRoadNetwork();
+        ContractionHierarchy<Station, Road> hierarchy = hierarchies.get(costType);
+        if (hierarchy != null && hierarchy.getGraph() == network)
+            return hierarchy;
+
+        synchronized (this) {
+            hierarchy = hierarchies.get(costType);
+            if (hierarchy == null || hierarchy.getGraph() != roadNetwork) {
+                hierarchy = ContractionHierarchy.of(roadNetwork, costType.ordinal());
+                hierarchies.put(costType, hierarchy);
+            }
+
+            return hierarchy;
+        }
+    }
+
+    /**
+     * The A* heuristic is the distance between two stations multiplied by the lowest cost per unit of
+     * distance of all the roads on the map. Since no road can be cheaper than that, the heuristic
+     * never overestimates the cost of the route left, and the route found is the cheapest one.
+     *
+     * @param roadCost The cost function of the search.
+     * @return The scale to multiply the distance between stations by, or 0 if no heuristic can be used.
+     */
+    private double calcHeuristicScale(ToDoubleFunction<? super Road> roadCost) {
+        final double[] minCostPerDistance = {Double.POSITIVE_INFINITY};
+
+        stationsGraph.forEachEdge((src, dst, road) -> {
+            double distance = getDistance(src, dst);
+            double cost = roadCost.applyAsDouble(road);
+
+            if (distance > 0 && !Double.isInfinite(cost))
+                minCostPerDistance[0] = Math.min(minCostPerDistance[0], cost / distance);
+        });
+
+        if (Double.isInfinite(minCostPerDistance[0]))
+            return 0;
+
+        return toHeuristicScale(minCostPerDistance[0]);
+    }
+
+    private static double toHeuristicScale(double minCostPerDistance) {
+        // Shave off floating point errors so the heuristic stays admissible
+        return minCostPerDistance * (1 - 1e-9);
+    }
+
+    private static double getDistance(Station src, Station dst) {
+        return src.getCoordinate().distance(dst.getCoordinate());
+    }
+    //endregion
+
+    /**
+     * The stations by their names and the roads by their stations, for one version of the graph.
+     * Never modified after it's built, so it can be read by many threads.
+     */
+    private static class GraphIndexes {
+        private final int version;
+        private final java.util.Map<String, Station> name2Station;
+        private final java.util.Map<String, java.util.Map<String, Road>> src2Dst2Road;
+        private final Set<Road> roads;
+
+        private GraphIndexes(Graph<Station, Road> stationsGraph) {
+            version = stationsGraph.getVersion();
+            name2Station = new HashMap<>();
+            src2Dst2Road = new HashMap<>();
+            roads = new HashSet<>();
+
+            stationsGraph.getVertices().forEach(this::indexStation);
+            stationsGraph.forEachEdge(this::indexRoad);
+        }
+
+        private void indexStation(Station station) {
+            name2Station.put(station.getName(), station);
+        }
+
+        /**
+         * Indexes a road under the direction it is driven in the graph.
+         * A road that is not one-way is an edge in both directions of the graph, so it gets indexed under both.
+         */
+        private void indexRoad(Station src, Station dst, Road road) {
+            src2Dst2Road
+                    .computeIfAbsent(src.getName(), name -> new HashMap<>())
+                    .put(dst.getName(), road);
+            roads.add(road);
+        }
+    }
 }
@@ -0,0 +1,61 @@
+package model;
+
+import model.Enums.MatchCriterion;
+
+/**
+ * Ranks the matches of a trip request by a weighted mix of {@link MatchCriterion}s: the score of a match is the sum of
+ * the costs of the criteria, each multiplied by its weight, and the lower the score the better the match.
+ * The costs are in the units of their criteria (ILS, minutes and milliliters of gas per 100 Km), so the weights
+ * also say how much of one is worth how much of another.
+ */
+public class MatchRanking {
+    private static final MatchCriterion[] CRITERIA = MatchCriterion.values();
+
+    private final double[] weights;
+
+    /**
+     * Creates a ranking that gives all the criteria no weight, so that every match scores the same.
+     */
+    public MatchRanking() {
+        weights = new double[CRITERIA.length];
+    }
+
+    /**
+     * @return A ranking by a single criterion.
+     */
+    public static MatchRanking by(MatchCriterion criterion) {
+        return new MatchRanking().withWeight(criterion, 1);
+    }
+
+    public double getWeight(MatchCriterion criterion) {
+        return weights[criterion.ordinal()];
+    }
+
+    /**
+     * Sets the weight of a criterion.
+     *
+     * @return This ranking, for chaining.
+     */
+    public MatchRanking withWeight(MatchCriterion criterion, double weight) {
+        if (weight < 0 || Double.isNaN(weight))
+            throw new IllegalArgumentException("The weight of a criterion can't be negative.");
+
+        weights[criterion.ordinal()] = weight;
+        return this;
+    }
+
+    /**
+     * Gets the score of matching a request to an offer that passes at its source station and later at its destination.
+     * Criteria without weight aren't computed.
+     */
+    public double getScore(TripRequest request, TripOffer offer) {
+        double score = 0;
+        for (MatchCriterion criterion : CRITERIA) {
+            double weight = weights[criterion.ordinal()];
+            if (weight != 0)
+                score += weight * criterion.getCost(request, offer);
+        }
+
+        return score;
+    }
+}
@@ -4,21 +4,21 @@ import model.CustomExceptions.RoadDoesNotExistException;
 import model.Interfaces.TranspoolEntity;
 
 import java.security.InvalidParameterException;
-import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
-import static java.time.temporal.ChronoUnit.MINUTES;
-
 public class Road implements TranspoolEntity {
+    private static final long NO_TRAVEL_MINUTES = -1;
+
     private String sourceStationName;
     private String destStationName;
     private boolean isOneWay;
     private int length;
     private int kmPerGasLiter;
     private int maxDrivingSpeed;
+    private long travelMinutes;
 
     public Road(String sourceStationName, String destStationName, boolean isOneWay, int length, int kmPerGasLiter, int maxDrivingSpeed) {
         this(sourceStationName, destStationName);
@@ -26,6 +26,7 @@ public class Road implements TranspoolEntity {
         this.length = length;
         this.kmPerGasLiter = kmPerGasLiter;
         this.maxDrivingSpeed = maxDrivingSpeed;
+        this.travelMinutes = maxDrivingSpeed > 0 ? calcTravelMinutes(length, maxDrivingSpeed) : NO_TRAVEL_MINUTES;
     }
 
     private Road(String sourceStationName, String destStationName) {
@@ -57,6 +58,17 @@ public class Road implements TranspoolEntity {
     public int getMaxDrivingSpeed() {
         return maxDrivingSpeed;
     }
+
+    /**
+     * @return The time it takes to drive across the road in minutes, calculated once when the road was created.
+     * @throws ArithmeticException If the road has no positive driving speed, so it can't be driven across.
+     */
+    public long getTravelMinutes() {
+        if (travelMinutes == NO_TRAVEL_MINUTES)
+            throw new ArithmeticException("Can't time a road without a positive driving speed.");
+
+        return travelMinutes;
+    }
     //endregion
 
     //region Equals & hashCode overrides
@@ -91,11 +103,7 @@ public class Road implements TranspoolEntity {
      * @return Amount of minutes it would take to drive across the given road.
      */
     public static long calcRoadTravelDuration(Road road) {
-        double timeInHours = (double) road.getLength() / road.getMaxDrivingSpeed();
-        int fullHours = (int) Math.floor(timeInHours);
-        int minutes = (int) Math.round((timeInHours - fullHours) * 60);
-
-        return MINUTES.between(LocalTime.MIDNIGHT, LocalTime.of(fullHours, minutes));
+        return road.getTravelMinutes();
     }
 
     public static int sumRoadsLength(Collection<? extends Road> roads) {
@@ -234,4 +242,17 @@ public class Road implements TranspoolEntity {
     }
 
     //endregion
+
+    //region Private Methods
+    /**
+     * Rounds the time to drive a road to whole minutes. Roads of 24 hours or more are timed like any other road.
+     */
+    private static long calcTravelMinutes(int length, int maxDrivingSpeed) {
+        double timeInHours = (double) length / maxDrivingSpeed;
+        long fullHours = (long) Math.floor(timeInHours);
+        long minutes = Math.round((timeInHours - fullHours) * 60);
+
+        return fullHours * 60 + minutes;
+    }
+    //endregion
 }
@@ -106,7 +106,7 @@ public class Station implements NamedTranspoolEntity {
     }
 
     public static Station getStationByName(String stationToGet) throws StationDoesNotExistException {
-        return getStationByName(Map.getInstance().getStations(), stationToGet);
+        return Map.getInstance().getStation(stationToGet);
     }
 
     public static Station getStationByCoordinate(Collection<Station> stations, int x, int y) {
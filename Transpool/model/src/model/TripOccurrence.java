@@ -0,0 +1,136 @@
+package model;
+
+import model.Interfaces.TranspoolEntity;
+import model.util.AbsoluteTime;
+import model.util.collections.RangeAddTree;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A single drive of a {@link TripOffer}, on one of the days its {@link TripTiming} occurs on.
+ * A one time offer has a single occurrence, and a recurring offer has one for every day it repeats on,
+ * each with its own seats and passengers.
+ * Occurrences are created by the offer only when a seat on them is first booked, so the days nobody
+ * booked take no memory.
+ * <p>
+ * A seat is booked only on the legs (roads) of the route the passenger rides on, so passengers who ride
+ * on different parts of the route can share a seat. The occupancy of the legs is kept in a segment tree over
+ * the route, so checking and booking a part of the route takes O(log n). Bookings lock only their occurrence.
+ */
+public class TripOccurrence implements TranspoolEntity {
+    private final TripOffer offer;
+    private final int day;
+    private final Set<TripRequest> registeredRequests;
+    // Guarded by itself
+    private final RangeAddTree legsOccupancy;
+
+    TripOccurrence(TripOffer offer, int day) {
+        this.offer = offer;
+        this.day = day;
+        this.registeredRequests = ConcurrentHashMap.newKeySet();
+        this.legsOccupancy = new RangeAddTree(Math.max(1, offer.getRoadsInTrip().size()));
+    }
+
+    //region Getters
+    public TripOffer getOffer() {
+        return offer;
+    }
+
+    /**
+     * @return The day the occurrence departs on.
+     */
+    public int getDay() {
+        return day;
+    }
+
+    /**
+     * @return An unmodifiable view of the requests registered to the occurrence.
+     */
+    public Set<TripRequest> getRegisteredRequests() {
+        return Collections.unmodifiableSet(registeredRequests);
+    }
+    //endregion
+
+    //region Public Methods
+    /**
+     * @return The day and time the occurrence departs, as an {@link AbsoluteTime}.
+     */
+    public int getDepartureTime() {
+        return AbsoluteTime.of(day, offer.getTiming().getMinuteOfDay());
+    }
+
+    /**
+     * @return The {@link AbsoluteTime} the occurrence is at the station, or {@link AbsoluteTime#NO_TIME} if
+     * the offer doesn't pass through it.
+     */
+    public int getAbsoluteTimeAtStation(Station station) {
+        int firstTime = offer.getAbsoluteTimeAtStation(station);
+        if (firstTime == AbsoluteTime.NO_TIME)
+            return AbsoluteTime.NO_TIME;
+
+        return firstTime + (day - offer.getTiming().getDay()) * AbsoluteTime.MINUTES_PER_DAY;
+    }
+
+    /**
+     * @return The amount of seats that are free along the whole route.
+     */
+    public int getRemainingPassengersCapacity() {
+        return getRemainingPassengersCapacity(0, legsOccupancy.size());
+    }
+
+    /**
+     * @return The amount of seats that are free on every leg between the stations at the given indexes of the route.
+     */
+    public int getRemainingPassengersCapacity(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex)
+            return offer.getBasePassengersCapacity();
+
+        synchronized (legsOccupancy) {
+            return offer.getBasePassengersCapacity() - legsOccupancy.getMax(fromIndex, toIndex);
+        }
+    }
+
+    /**
+     * @return True if every leg of the route is full, so no passenger can be taken anywhere on it.
+     */
+    public boolean isFull() {
+        synchronized (legsOccupancy) {
+            return legsOccupancy.getMin(0, legsOccupancy.size()) >= offer.getBasePassengersCapacity();
+        }
+    }
+
+    /**
+     * Atomically takes a seat on the legs between the stations at the given indexes of the route.
+     * Concurrent reservations never take more seats on a leg than the capacity of the trip.
+     *
+     * @return True if a seat was reserved, false if one of the legs is full.
+     */
+    public boolean tryReserveSeat(int fromIndex, int toIndex) {
+        synchronized (legsOccupancy) {
+            if (legsOccupancy.getMax(fromIndex, toIndex) >= offer.getBasePassengersCapacity())
+                return false;
+
+            legsOccupancy.add(fromIndex, toIndex, 1);
+            return true;
+        }
+    }
+
+    /**
+     * Gives back a seat that was taken by {@link #tryReserveSeat(int, int)}.
+     */
+    public void releaseSeat(int fromIndex, int toIndex) {
+        synchronized (legsOccupancy) {
+            legsOccupancy.add(fromIndex, toIndex, -1);
+        }
+    }
+
+    /**
+     * Adds a request to the passengers of the occurrence. The request's seat must be reserved first.
+     */
+    public void registerRequest(TripRequest request) {
+        registeredRequests.add(request);
+    }
+    //endregion
+}
@@ -2,15 +2,18 @@ package model;
 
 import model.Enums.UserTransitionType;
 import model.Interfaces.IdentifiableTranspoolEntity;
+import model.util.AbsoluteTime;
+import model.util.IdAllocator;
 
 import java.time.LocalTime;
 import java.util.*;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TripOffer implements IdentifiableTranspoolEntity {
 
     //region Static members
-    private static int ID = 0;
+    private static final IdAllocator ID_ALLOCATOR = new IdAllocator();
     //endregion
 
     //region Members
@@ -21,19 +24,26 @@ public class TripOffer implements IdentifiableTranspoolEntity {
     private TripTiming timing;
     private final List<Station> stationsInTrip;
     private final List<Road> roadsInTrip;
-    private final Set<TripRequest> registeredRequests;
+    private final Map<Station, Integer> stationIndexes;
+    private final Map<Integer, TripOccurrence> day2Occurrence;
+    private volatile RouteTable routeTable;
     //endregion
 
     //region Ctor
     public TripOffer(String offeringUserName, int basePassengersCapacity, int pricePreKm, TripTiming timing, List<Station> stations, List<Road> roads) {
-        this.id = ++ID;
+        this.id = ID_ALLOCATOR.next();
         this.offeringUserName = offeringUserName;
         this.basePassengersCapacity = basePassengersCapacity;
         this.pricePerKm = pricePreKm;
         this.timing = timing;
         this.stationsInTrip = stations;
         this.roadsInTrip = roads;
-        this.registeredRequests = new HashSet<>();
+        this.stationIndexes = new HashMap<>();
+        this.day2Occurrence = new ConcurrentHashMap<>();
+
+        for (int i = 0; i < stations.size(); i++) {
+            stationIndexes.putIfAbsent(stations.get(i), i);
+        }
     }
     //endregion
 
@@ -123,7 +133,11 @@ public class TripOffer implements IdentifiableTranspoolEntity {
 
     //region Public Static Methods
     public static void resetIds() {
-        ID = 0;
+        ID_ALLOCATOR.reset();
+    }
+
+    public static IdAllocator getIdAllocator() {
+        return ID_ALLOCATOR;
     }
 
     public static boolean hasTripOfferById(Collection<TripOffer> tripOffers, int id) {
@@ -141,31 +155,221 @@ public class TripOffer implements IdentifiableTranspoolEntity {
     //endregion
 
     public LocalTime getArrivalTime() {
-        LocalTime arrivalTime = this.timing.getTime().plusMinutes(getTripDuration());
-        return TripTiming.roundTime(arrivalTime);
+        return AbsoluteTime.toLocalTime(getAbsoluteArrivalTime());
+    }
+
+    /**
+     * @return The day and time the trip reaches its last station, rounded to 5 minutes.
+     */
+    public int getAbsoluteArrivalTime() {
+        return TripTiming.roundTime(AbsoluteTime.plusMinutes(timing.getDepartureTime(), getTripDuration()));
     }
 
     public int getTripPrice() {
-        return Road.sumRoadsLength(roadsInTrip) * pricePerKm;
+        return getRouteTable().getLength(0, roadsInTrip.size()) * pricePerKm;
     }
 
+    /**
+     * @return The amount of seats that are free along the whole route on the first occurrence of the trip,
+     * which is its only one unless it's recurring.
+     */
     public int getRemainingPassengersCapacity() {
-        return basePassengersCapacity - registeredRequests.size();
+        return getRemainingPassengersCapacity(timing.getDay());
     }
 
-    public LocalTime getWhenAtStation(Station station) {
-        if (!getStationsInTrip().contains(station))
+    /**
+     * Gets the amount of seats that are free along the whole route on the occurrence of the trip that departs on a day,
+     * without creating the occurrence.
+     *
+     * @return The remaining capacity, or 0 if the trip doesn't occur on that day.
+     */
+    public int getRemainingPassengersCapacity(int day) {
+        return getRemainingPassengersCapacity(day, 0, roadsInTrip.size());
+    }
+
+    /**
+     * Gets the amount of seats that are free from one station to another on the occurrence of the trip that departs
+     * on a day, without creating the occurrence.
+     *
+     * @return The remaining capacity, or 0 if the trip doesn't occur on that day or doesn't reach {@code from} before {@code to}.
+     */
+    public int getRemainingPassengersCapacity(int day, Station from, Station to) {
+        if (!isStationBefore(from, to))
+            return 0;
+
+        return getRemainingPassengersCapacity(day, getStationIndex(from), getStationIndex(to));
+    }
+
+    /**
+     * Gets the amount of seats that are free between the stations at the given positions of the route on the
+     * occurrence of the trip that departs on a day, without creating the occurrence.
+     *
+     * @return The remaining capacity, or 0 if the trip doesn't occur on that day.
+     */
+    public int getRemainingPassengersCapacity(int day, int fromIndex, int toIndex) {
+        TripOccurrence occurrence = day2Occurrence.get(day);
+        if (occurrence != null)
+            return occurrence.getRemainingPassengersCapacity(fromIndex, toIndex);
+
+        return timing.isOccurringOn(day) ? basePassengersCapacity : 0;
+    }
+
+    /**
+     * Gets the occurrence of the trip that departs on a day, creating it the first time it's asked for.
+     *
+     * @return The occurrence, or null if the trip doesn't occur on that day.
+     */
+    public TripOccurrence getOccurrence(int day) {
+        if (!timing.isOccurringOn(day))
             return null;
 
-        LocalTime arrivalTime = this.getTiming().getTime().plusMinutes(getTripDuration(station));
-        return TripTiming.roundTime(arrivalTime);
+        return day2Occurrence.computeIfAbsent(day, key -> new TripOccurrence(this, key));
+    }
+
+    /**
+     * @return An unmodifiable view of the occurrences that were created so far, i.e. were booked on.
+     */
+    public Collection<TripOccurrence> getOccurrences() {
+        return Collections.unmodifiableCollection(day2Occurrence.values());
+    }
+
+    /**
+     * Gets the day the occurrence of the trip that is at a station the nearest to a certain time departed on.
+     * The occurrences of a trip reach every station the same amount of time after they depart, at the same time of
+     * the day, so the occurrence is at the station less than 12 hours away from the time.
+     *
+     * @param station The station, which the trip must pass through.
+     * @param time    The {@link AbsoluteTime} at the station. Rounded to 5 minutes.
+     * @return The day of departure. The trip may not actually occur on it.
+     */
+    public int getDepartureDay(Station station, int time) {
+        int timeFromDeparture = getAbsoluteTimeAtStation(station) - timing.getDepartureTime();
+        int wantedDeparture = TripTiming.roundTime(time) - timeFromDeparture;
+
+        return Math.floorDiv(wantedDeparture - timing.getMinuteOfDay() + AbsoluteTime.MINUTES_PER_DAY / 2, AbsoluteTime.MINUTES_PER_DAY);
+    }
+
+    /**
+     * Gets the position of a station in the route of the trip.
+     *
+     * @param station The station to get the position of.
+     * @return The index of the first time the trip passes at the station, or -1 if it doesn't.
+     */
+    public int getStationIndex(Station station) {
+        Integer index = stationIndexes.get(station);
+        return index == null ? -1 : index;
+    }
+
+    public boolean isPassingThrough(Station station) {
+        return stationIndexes.containsKey(station);
+    }
+
+    /**
+     * Checks whether the trip passes at both stations, and reaches {@code first} before {@code second}.
+     */
+    public boolean isStationBefore(Station first, Station second) {
+        int firstIndex = getStationIndex(first);
+        return firstIndex != -1 && firstIndex < getStationIndex(second);
+    }
+
+    /**
+     * Gets the roads the trip drives through from one station to another.
+     *
+     * @return The roads between the stations, or an empty list if the trip doesn't reach {@code from} before {@code to}.
+     */
+    public List<Road> getRoadsBetween(Station from, Station to) {
+        if (!isStationBefore(from, to))
+            return Collections.emptyList();
+
+        return getRoadsInTrip().subList(getStationIndex(from), getStationIndex(to));
+    }
+
+    /**
+     * Gets the length of the part of the trip between two stations, in constant time.
+     *
+     * @return The length in Km, or 0 if the trip doesn't reach {@code from} before {@code to}.
+     */
+    public int getLengthBetween(Station from, Station to) {
+        if (!isStationBefore(from, to))
+            return 0;
+
+        return getRouteTable().getLength(getStationIndex(from), getStationIndex(to));
+    }
+
+    /**
+     * Gets the length of the part of the trip between two positions of its route, in constant time.
+     * Unlike {@link #getLengthBetween}, it tells apart the visits of a station the route passes through twice.
+     *
+     * @param fromIndex The position of the station the part starts at.
+     * @param toIndex   The position of the station the part ends at.
+     * @return The length in Km, or 0 if {@code fromIndex} isn't before {@code toIndex}.
+     */
+    public int getLengthBetweenIndexes(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex)
+            return 0;
+
+        return getRouteTable().getLength(fromIndex, toIndex);
+    }
+
+    /**
+     * Gets the time it takes to drive the part of the trip between two stations, in constant time.
+     *
+     * @return The duration in minutes, or 0 if the trip doesn't reach {@code from} before {@code to}.
+     */
+    public long getDurationBetween(Station from, Station to) {
+        if (!isStationBefore(from, to))
+            return 0;
+
+        return getRouteTable().getMinutes(getStationIndex(from), getStationIndex(to));
+    }
+
+    /**
+     * Gets the average gas usage of the roads between two stations, in constant time.
+     *
+     * @return The average Km per gas liter, or NaN if the trip doesn't reach {@code from} before {@code to}
+     * (the average of no roads, same as for {@link #getRoadsBetween}).
+     */
+    public double getAvgGasUsageBetween(Station from, Station to) {
+        if (!isStationBefore(from, to))
+            return getRouteTable().getAvgKmPerGasLiter(0, 0);
+
+        return getRouteTable().getAvgKmPerGasLiter(getStationIndex(from), getStationIndex(to));
+    }
+
+    public LocalTime getWhenAtStation(Station station) {
+        int time = getAbsoluteTimeAtStation(station);
+        return time == AbsoluteTime.NO_TIME ? null : AbsoluteTime.toLocalTime(time);
+    }
+
+    /**
+     * Gets the day and time the trip is at a station, rounded to 5 minutes, without allocating.
+     *
+     * @return The {@link AbsoluteTime} of the first time the trip passes at the station,
+     * or {@link AbsoluteTime#NO_TIME} if it doesn't.
+     */
+    public int getAbsoluteTimeAtStation(Station station) {
+        int index = getStationIndex(station);
+        if (index == -1)
+            return AbsoluteTime.NO_TIME;
+
+        return getAbsoluteTimeAtStationIndex(index);
+    }
+
+    /**
+     * Gets the day and time the first occurrence of the trip is at the station at a position of its route,
+     * rounded to 5 minutes.
+     */
+    public int getAbsoluteTimeAtStationIndex(int index) {
+        return TripTiming.roundTime(AbsoluteTime.plusMinutes(timing.getDepartureTime(), getRouteTable().getMinutes(0, index)));
     }
 
     public Set<User> getRegisteredUsers() {
         Set<User> registeredUsers = new HashSet<>();
 
-        for (TripRequest request : registeredRequests) {
-            registeredUsers.add(request.getRequestingUser());
+        for (TripOccurrence occurrence : day2Occurrence.values()) {
+            for (TripRequest request : occurrence.getRegisteredRequests()) {
+                registeredUsers.add(request.getRequestingUser());
+            }
         }
 
         return registeredUsers;
@@ -173,13 +377,18 @@ public class TripOffer implements IdentifiableTranspoolEntity {
 
     /**
      * Builds an object that describes the Stations in which Users that are registered to
-     * the trip perform transition (Depart or arrive), specifying the Users, and their TransitionType.
+     * any occurrence of the trip perform transition (Depart or arrive), specifying the Users, and their TransitionType.
      *
      * @return The object created.
      */
     public Map<Station, Map<User, UserTransitionType>> getStationsToStopInWithUsersAndStatus() {
         Map<Station, Map<User, UserTransitionType>> station2Users2Statuses = new HashMap<>();
 
+        List<TripRequest> registeredRequests = new ArrayList<>();
+        for (TripOccurrence occurrence : day2Occurrence.values()) {
+            registeredRequests.addAll(occurrence.getRegisteredRequests());
+        }
+
         for (Station station : stationsInTrip) {
             for (TripRequest request : registeredRequests) {
                 User requestingUser = request.getRequestingUser();
@@ -203,46 +412,31 @@ public class TripOffer implements IdentifiableTranspoolEntity {
     }
 
     public double getAvgGasUsage() {
-        return (double) Road.sumRoadsKmPerGasLiter(roadsInTrip) / roadsInTrip.size();
-    }
-
-    public void registerRequest(TripRequest request) {
-        registeredRequests.add(request);
+        return getRouteTable().getAvgKmPerGasLiter(0, roadsInTrip.size());
     }
     //endregion
 
     //region Private methods
 
     /**
-     * Sums the duration of travel of every road in the trip, and returns the
-     * total amount of time in minutes.
-     *
      * @return Duration of trip in minutes.
      */
     private long getTripDuration() {
-        long totalDuration = 0;
-
-        for (Road road : getRoadsInTrip()) {
-            totalDuration += Road.calcRoadTravelDuration(road);
-        }
-
-        return totalDuration;
+        return getRouteTable().getMinutes(0, roadsInTrip.size());
     }
 
-    private long getTripDuration(Station toStation) {
-        if (!getStationsInTrip().contains(toStation))
-            throw new IllegalArgumentException();
-
-        long totalDuration = 0;
-
-        for (Road road : getRoadsInTrip()) {
-            if (road.getSourceStationName().equals(toStation.getName()))
-                break;
-
-            totalDuration += Road.calcRoadTravelDuration(road);
+    /**
+     * The route table is built on first use rather than in the ctor, so an offer whose roads can't be timed
+     * only fails when it's timed, as it did before the table. Building it twice on a race is harmless.
+     */
+    private RouteTable getRouteTable() {
+        RouteTable table = routeTable;
+        if (table == null) {
+            table = new RouteTable(roadsInTrip);
+            routeTable = table;
         }
 
-        return totalDuration;
+        return table;
     }
 
     /**
@@ -266,4 +460,40 @@ public class TripOffer implements IdentifiableTranspoolEntity {
         station2Users2Statuses.get(station).put(requestingUser, travelStatus);
     }
     //endregion
+
+    /**
+     * Prefix sums over the roads of the trip: the entry at index {@code i} sums the roads before the
+     * station at index {@code i}, so any part of the route is summed with a single subtraction.
+     * Two-way roads may be driven from their destination, so the parts are found by station position.
+     */
+    private static class RouteTable {
+        private final int[] cumulativeLength;
+        private final long[] cumulativeMinutes;
+        private final int[] cumulativeKmPerGasLiter;
+
+        private RouteTable(List<Road> roads) {
+            cumulativeLength = new int[roads.size() + 1];
+            cumulativeMinutes = new long[roads.size() + 1];
+            cumulativeKmPerGasLiter = new int[roads.size() + 1];
+
+            for (int i = 0; i < roads.size(); i++) {
+                Road road = roads.get(i);
+                cumulativeLength[i + 1] = cumulativeLength[i] + road.getLength();
+                cumulativeMinutes[i + 1] = cumulativeMinutes[i] + Road.calcRoadTravelDuration(road);
+                cumulativeKmPerGasLiter[i + 1] = cumulativeKmPerGasLiter[i] + road.getKmPerGasLiter();
+            }
+        }
+
+        private int getLength(int fromIndex, int toIndex) {
+            return cumulativeLength[toIndex] - cumulativeLength[fromIndex];
+        }
+
+        private long getMinutes(int fromIndex, int toIndex) {
+            return cumulativeMinutes[toIndex] - cumulativeMinutes[fromIndex];
+        }
+
+        private double getAvgKmPerGasLiter(int fromIndex, int toIndex) {
+            return (double) (cumulativeKmPerGasLiter[toIndex] - cumulativeKmPerGasLiter[fromIndex]) / (toIndex - fromIndex);
+        }
+    }
 }
@@ -1,32 +1,47 @@
 package model;
 
 import model.Interfaces.IdentifiableTranspoolEntity;
+import model.util.AbsoluteTime;
+import model.util.IdAllocator;
 
 import java.time.LocalTime;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class TripRequest implements IdentifiableTranspoolEntity {
-    private static int ID = 0;
+    private static final IdAllocator ID_ALLOCATOR = new IdAllocator();
+
+    /**
+     * The most minutes a user may leave before or after the time they want. Less than 12 hours, so a recurring offer
+     * has at most one occurrence that can take them.
+     */
+    public static final int MAX_DEPARTURE_FLEXIBILITY = 6 * AbsoluteTime.MINUTES_PER_HOUR;
 
     private final int id;
     private User requestingUser;
     private Station wantedSourceStation;
     private Station wantedDestStation;
-    private int wantedTripStartDay;
-    private LocalTime wantedTripStartTime;
-    private int wantedTripEndDay;
-    private LocalTime wantedTripEndTime;
+    private int wantedTripStartTime;
+    private int departureFlexibility;
+    private int wantedTripEndTime;
     private boolean doesUserAgreeToStationExchange;
-    private TripOffer matchedTo;
-
+    private final AtomicReference<TripOccurrence> matchedTo;
 
     public TripRequest(User requestingUser, String wantedSourceStationName, String wantedDestStationName, LocalTime wantedTripStartTime) {
-        this.id = ++ID;
+        this(requestingUser, wantedSourceStationName, wantedDestStationName, AbsoluteTime.of(wantedTripStartTime));
+    }
+
+    /**
+     * @param wantedTripStartTime The {@link AbsoluteTime} the user wants to leave at.
+     */
+    public TripRequest(User requestingUser, String wantedSourceStationName, String wantedDestStationName, int wantedTripStartTime) {
+        this.id = ID_ALLOCATOR.next();
         this.requestingUser = requestingUser;
         this.wantedSourceStation = Map.getInstance().getStationIfExists(wantedSourceStationName);
         this.wantedDestStation = Map.getInstance().getStationIfExists(wantedDestStationName);
         this.wantedTripStartTime = wantedTripStartTime;
-        this.matchedTo = null;
+        this.wantedTripEndTime = AbsoluteTime.NO_TIME;
+        this.matchedTo = new AtomicReference<>();
     }
 
     //region Getters & Setters
@@ -60,19 +75,137 @@ public class TripRequest implements IdentifiableTranspoolEntity {
     }
 
     public LocalTime getWantedTripStartTime() {
-        return wantedTripStartTime;
+        return AbsoluteTime.toLocalTime(wantedTripStartTime);
     }
 
     public void setWantedTripStartTime(LocalTime wantedTripStartTime) {
-        this.wantedTripStartTime = wantedTripStartTime;
+        this.wantedTripStartTime = AbsoluteTime.of(wantedTripStartTime);
+    }
+
+    /**
+     * @return The {@link AbsoluteTime} the user wants to leave at.
+     */
+    public int getAbsoluteWantedTripStartTime() {
+        return wantedTripStartTime;
+    }
+
+    /**
+     * @return The amount of minutes the user may leave before or after the wanted time.
+     */
+    public int getDepartureFlexibility() {
+        return departureFlexibility;
+    }
+
+    /**
+     * @param departureFlexibility The amount of minutes the user may leave before or after the wanted time,
+     *                             up to {@link #MAX_DEPARTURE_FLEXIBILITY}.
+     */
+    public void setDepartureFlexibility(int departureFlexibility) {
+        if (departureFlexibility < 0 || departureFlexibility > MAX_DEPARTURE_FLEXIBILITY)
+            throw new IllegalArgumentException(String.format(
+                    "The departure flexibility must be between 0 and %d minutes.", MAX_DEPARTURE_FLEXIBILITY));
+
+        this.departureFlexibility = departureFlexibility;
+    }
+
+    /**
+     * @return The earliest {@link AbsoluteTime} the user may leave at. Never before day 0.
+     */
+    public int getEarliestDepartureTime() {
+        return Math.max(0, wantedTripStartTime - departureFlexibility);
+    }
+
+    /**
+     * @return The latest {@link AbsoluteTime} the user may leave at.
+     */
+    public int getLatestDepartureTime() {
+        return wantedTripStartTime + departureFlexibility;
+    }
+
+    public boolean hasArrivalDeadline() {
+        return wantedTripEndTime != AbsoluteTime.NO_TIME;
+    }
+
+    /**
+     * @return The time the user has to arrive by, or null if they don't have to.
+     */
+    public LocalTime getWantedTripEndTime() {
+        return hasArrivalDeadline() ? AbsoluteTime.toLocalTime(wantedTripEndTime) : null;
+    }
+
+    /**
+     * @return The day the user has to arrive by, or -1 if they don't have to.
+     */
+    public int getWantedTripEndDay() {
+        return hasArrivalDeadline() ? AbsoluteTime.getDay(wantedTripEndTime) : -1;
+    }
+
+    /**
+     * @return The {@link AbsoluteTime} the user has to arrive by, or {@link AbsoluteTime#NO_TIME} if they don't have to.
+     */
+    public int getAbsoluteWantedTripEndTime() {
+        return wantedTripEndTime;
+    }
+
+    /**
+     * @param wantedTripEndTime The {@link AbsoluteTime} the user has to arrive by,
+     *                          or {@link AbsoluteTime#NO_TIME} if they don't have to.
+     */
+    public void setWantedTripEndTime(int wantedTripEndTime) {
+        this.wantedTripEndTime = wantedTripEndTime;
     }
 
+    /**
+     * @return True if the user would switch between trips at stations on the way to get to their destination.
+     */
+    public boolean doesUserAgreeToStationExchange() {
+        return doesUserAgreeToStationExchange;
+    }
+
+    public void setDoesUserAgreeToStationExchange(boolean doesUserAgreeToStationExchange) {
+        this.doesUserAgreeToStationExchange = doesUserAgreeToStationExchange;
+    }
+
+    /**
+     * @return The offer the request is matched to, or null if it isn't matched.
+     */
     public TripOffer getMatchedTo() {
-        return matchedTo;
+        TripOccurrence occurrence = matchedTo.get();
+        return occurrence == null ? null : occurrence.getOffer();
+    }
+
+    /**
+     * @return The occurrence of the offer the request is matched to, or null if it isn't matched.
+     */
+    public TripOccurrence getMatchedOccurrence() {
+        return matchedTo.get();
+    }
+
+    public void setMatchedOccurrence(TripOccurrence occurrence) {
+        this.matchedTo.set(occurrence);
     }
 
-    public void setMatchedTo(TripOffer tripOffer) {
-        this.matchedTo = tripOffer;
+    /**
+     * Atomically matches the request to an occurrence of an offer, unless it is already matched.
+     *
+     * @return True if the request was unmatched and is now matched to the occurrence.
+     */
+    public boolean tryMatchTo(TripOccurrence occurrence) {
+        return matchedTo.compareAndSet(null, occurrence);
+    }
+
+    /**
+     * Atomically undoes a match made by {@link #tryMatchTo(TripOccurrence)}, if the request is still matched to the occurrence.
+     */
+    public boolean unmatchFrom(TripOccurrence occurrence) {
+        return matchedTo.compareAndSet(occurrence, null);
+    }
+
+    /**
+     * @return The day the user wants to leave on.
+     */
+    public int getWantedTripStartDay() {
+        return AbsoluteTime.getDay(wantedTripStartTime);
     }
 
     //endregion
@@ -91,7 +224,7 @@ public class TripRequest implements IdentifiableTranspoolEntity {
             return false;
         if (getWantedDestStation() != null ? !getWantedDestStation().equals(that.getWantedDestStation()) : that.getWantedDestStation() != null)
             return false;
-        return getWantedTripStartTime() != null ? getWantedTripStartTime().equals(that.getWantedTripStartTime()) : that.getWantedTripStartTime() == null;
+        return wantedTripStartTime == that.wantedTripStartTime;
     }
 
     @Override
@@ -99,7 +232,7 @@ public class TripRequest implements IdentifiableTranspoolEntity {
         int result = getRequestingUser() != null ? getRequestingUser().hashCode() : 0;
         result = 31 * result + (getWantedSourceStation() != null ? getWantedSourceStation().hashCode() : 0);
         result = 31 * result + (getWantedDestStation() != null ? getWantedDestStation().hashCode() : 0);
-        result = 31 * result + (getWantedTripStartTime() != null ? getWantedTripStartTime().hashCode() : 0);
+        result = 31 * result + wantedTripStartTime;
         return result;
     }
     //endregion
@@ -132,36 +265,32 @@ public class TripRequest implements IdentifiableTranspoolEntity {
     }
 
     //region Private Static methods
+    /**
+     * Moves a time of the first occurrence of the offer to the occurrence that picks up the request's user.
+     */
+    private static int getTimeOfOccurrence(TripRequest request, TripOffer match, int timeOfFirstOccurrence) {
+        int daysShift = getDepartureDay(request, match) - match.getTiming().getDay();
+        return timeOfFirstOccurrence + daysShift * AbsoluteTime.MINUTES_PER_DAY;
+    }
+
     private static List<Road> getTravelPath(TripRequest request, TripOffer match) {
         if (match == null || request == null)
             return null;
 
-        return Road.getSubPath(
-                match.getRoadsInTrip(),
-                request.getWantedSourceStation().getName(),
-                request.getWantedDestStation().getName()
-        );
+        return match.getRoadsBetween(request.getWantedSourceStation(), request.getWantedDestStation());
     }
 
-    private static long getTripDuration(TripRequest request, TripOffer match) {
-        if (match == null || request == null)
-            return 0;
-
-        long totalDuration = 0;
-
-        for (Road road : getTravelPath(request, match)) {
-            totalDuration += Road.calcRoadTravelDuration(road);
-        }
-
-        return totalDuration;
-    }
     //endregion
 
     //endregion
 
     //region Public Methods
     public static void resetIds() {
-        ID = 0;
+        ID_ALLOCATOR.reset();
+    }
+
+    public static IdAllocator getIdAllocator() {
+        return ID_ALLOCATOR;
     }
 
     public boolean isMatched() {
@@ -194,24 +323,75 @@ public class TripRequest implements IdentifiableTranspoolEntity {
         if (request == null || match == null)
             return 0;
 
-        return Road.sumRoadsLength(getTravelPath(request, match)) * match.getPricePerKm();
+        return match.getLengthBetween(request.getWantedSourceStation(), request.getWantedDestStation()) * match.getPricePerKm();
+    }
+
+    /**
+     * Gets the total amount of time in minutes the request's user would travel if matched to the offer.
+     *
+     * @return Duration of trip in minutes.
+     */
+    public static long getTripDuration(TripRequest request, TripOffer match) {
+        if (match == null || request == null)
+            return 0;
+
+        return match.getDurationBetween(request.getWantedSourceStation(), request.getWantedDestStation());
     }
 
     public static LocalTime getArrivalTime(TripRequest request,  TripOffer match) {
-        if (request == null || match == null)
-            return null;
+        int arrivalTime = getAbsoluteArrivalTime(request, match);
+        return arrivalTime == AbsoluteTime.NO_TIME ? null : AbsoluteTime.toLocalTime(arrivalTime);
+    }
 
-        LocalTime arrivalTime = request.getWantedTripStartTime().plusMinutes(getTripDuration(request, match));
-        return TripTiming.roundTime(arrivalTime);
+    /**
+     * Gets the time the occurrence of the offer that picks up the request's user is at their source station.
+     *
+     * @return The {@link AbsoluteTime} of the pick up, rounded to 5 minutes, or {@link AbsoluteTime#NO_TIME}
+     * if there's no request or offer or the offer doesn't pass at the source station.
+     */
+    public static int getAbsoluteDepartureTime(TripRequest request, TripOffer match) {
+        if (request == null || match == null || !match.isPassingThrough(request.getWantedSourceStation()))
+            return AbsoluteTime.NO_TIME;
+
+        return getTimeOfOccurrence(request, match, match.getAbsoluteTimeAtStation(request.getWantedSourceStation()));
     }
 
-    public static double getAvgGasUsage(TripRequest request,  TripOffer match) {
-        List<Road> travelPath = getTravelPath(request, match);
+    /**
+     * Gets the time the occurrence of the offer that picks up the request's user gets to their destination station.
+     *
+     * @return The {@link AbsoluteTime} of the arrival, rounded to 5 minutes, or {@link AbsoluteTime#NO_TIME}
+     * if there's no request or offer or the offer doesn't pass at the source station and later at the destination.
+     */
+    public static int getAbsoluteArrivalTime(TripRequest request, TripOffer match) {
+        if (request == null || match == null || !match.isStationBefore(request.getWantedSourceStation(), request.getWantedDestStation()))
+            return AbsoluteTime.NO_TIME;
+
+        return getTimeOfOccurrence(request, match, match.getAbsoluteTimeAtStation(request.getWantedDestStation()));
+    }
+
+    /**
+     * Checks whether the offer gets the request's user to their destination by the time they have to arrive by, if any.
+     */
+    public static boolean isArrivingInTime(TripRequest request, TripOffer match) {
+        return !request.hasArrivalDeadline() || getAbsoluteArrivalTime(request, match) <= request.wantedTripEndTime;
+    }
 
-        if (travelPath == null)
+    /**
+     * Gets the day the occurrence of the offer that picks up the request's user departs on: the one that is at
+     * the source station the nearest to the wanted time.
+     * The offer must pass through the request's source station.
+     *
+     * @return The day of departure. The offer may not actually occur on it.
+     */
+    public static int getDepartureDay(TripRequest request, TripOffer match) {
+        return match.getDepartureDay(request.getWantedSourceStation(), request.wantedTripStartTime);
+    }
+
+    public static double getAvgGasUsage(TripRequest request,  TripOffer match) {
+        if (request == null || match == null)
             return 0;
 
-        return (double) Road.sumRoadsKmPerGasLiter(travelPath) / travelPath.size();
+        return match.getAvgGasUsageBetween(request.getWantedSourceStation(), request.getWantedDestStation());
     }
     //endregion
     //endregion
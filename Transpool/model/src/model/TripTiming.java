@@ -2,20 +2,26 @@ package model;
 
 import model.Enums.RepetitionRate;
 import model.Interfaces.TranspoolEntity;
+import model.util.AbsoluteTime;
 
+import java.time.DateTimeException;
 import java.time.LocalTime;
 
+import static java.time.temporal.ChronoField.HOUR_OF_DAY;
+import static java.time.temporal.ChronoField.MINUTE_OF_HOUR;
+
 public class TripTiming implements TranspoolEntity {
 
     private static final int ROUND_MINUTES_TO_PRODUCT_OF = 5;
+    public static final int TIME_SLOTS_PER_DAY = AbsoluteTime.MINUTES_PER_DAY / ROUND_MINUTES_TO_PRODUCT_OF;
 
     private int day;
-    private LocalTime time;
+    private int minuteOfDay;
     private RepetitionRate repetitionRate;
 
     public TripTiming(int day, int hour, int minutes, String repetitionRate) {
         this.day = day;
-        this.time = roundTime(hour, minutes);
+        this.minuteOfDay = roundTime(hour, minutes);
         this.repetitionRate = RepetitionRate.valueOf(repetitionRate);
     }
 
@@ -29,11 +35,30 @@ public class TripTiming implements TranspoolEntity {
     }
 
     public LocalTime getTime() {
-        return time;
+        return AbsoluteTime.toLocalTime(minuteOfDay);
     }
 
     public void setTime(LocalTime time) {
-        this.time = time;
+        this.minuteOfDay = AbsoluteTime.of(time);
+    }
+
+    public int getMinuteOfDay() {
+        return minuteOfDay;
+    }
+
+    /**
+     * @return The day and time the trip departs, as an {@link AbsoluteTime}.
+     * For a recurring trip, the departure of its first occurrence.
+     */
+    public int getDepartureTime() {
+        return AbsoluteTime.of(day, minuteOfDay);
+    }
+
+    /**
+     * Checks whether the trip departs on the given day, according to its first day and its repetition rate.
+     */
+    public boolean isOccurringOn(int day) {
+        return repetitionRate.isOccurringOn(this.day, day);
     }
 
     public RepetitionRate getRepetitionRate() {
@@ -46,26 +71,61 @@ public class TripTiming implements TranspoolEntity {
     //endregion
 
     //region Private Methods
-    private static LocalTime roundTime(int hour, int minutes) {
-        LocalTime tripTime = LocalTime.of(hour, minutes);
-        int roundedMinutes =
-                ROUND_MINUTES_TO_PRODUCT_OF *
-                Math.round((float)minutes / ROUND_MINUTES_TO_PRODUCT_OF);
-
-         if (roundedMinutes >= 60){
-             tripTime = tripTime.plusHours(1);
-             tripTime = tripTime.minusMinutes(tripTime.getMinute());
-         }
-         else
-             tripTime = LocalTime.of(hour, roundedMinutes);
-
-         return tripTime;
+    /**
+     * Rounds a time of the day to 5 minutes. A time that rounds up to midnight wraps to 00:00 of the same day.
+     *
+     * @return The rounded minute of the day.
+     * @throws DateTimeException If the hour or the minutes are out of range.
+     */
+    private static int roundTime(int hour, int minutes) {
+        HOUR_OF_DAY.checkValidValue(hour);
+        MINUTE_OF_HOUR.checkValidValue(minutes);
+
+        return AbsoluteTime.getMinuteOfDay(roundTime(AbsoluteTime.of(0, hour, minutes)));
     }
     //endregion
 
     //region Public Methods
     public static LocalTime roundTime(LocalTime time) {
-        return roundTime(time.getHour(), time.getMinute());
+        return AbsoluteTime.toLocalTime(roundTime(AbsoluteTime.of(time)));
+    }
+
+    /**
+     * Rounds an {@link AbsoluteTime} to the nearest 5 minutes.
+     */
+    public static int roundTime(int time) {
+        return AbsoluteTime.round(time, ROUND_MINUTES_TO_PRODUCT_OF);
+    }
+
+    /**
+     * Receives a time of the day and returns the index of the 5 minutes slot
+     * it is rounded to, counting from midnight.
+     *
+     * @param time The time to get the slot of.
+     * @return The index of the time slot, between 0 (00:00) and 287 (23:55).
+     */
+    public static int toTimeSlot(LocalTime time) {
+        return toTimeSlot(AbsoluteTime.of(time));
+    }
+
+    /**
+     * Receives an {@link AbsoluteTime} and returns the index of the 5 minutes slot
+     * it is rounded to, counting from midnight of its day.
+     *
+     * @param time The time to get the slot of.
+     * @return The index of the time slot, between 0 (00:00) and 287 (23:55).
+     */
+    public static int toTimeSlot(int time) {
+        return AbsoluteTime.getMinuteOfDay(roundTime(time)) / ROUND_MINUTES_TO_PRODUCT_OF;
+    }
+
+    /**
+     * The opposite of {@link #toTimeSlot(int)}.
+     *
+     * @return The {@link AbsoluteTime} the time slot of the day starts at.
+     */
+    public static int fromTimeSlot(int day, int timeSlot) {
+        return AbsoluteTime.of(day, timeSlot * ROUND_MINUTES_TO_PRODUCT_OF);
     }
     //endregion
 }
@@ -3,12 +3,13 @@ package model;
 import model.Interfaces.IdentifiableTranspoolEntity;
 import model.Interfaces.NamedTranspoolEntity;
 import model.Interfaces.TranspoolEntity;
+import model.util.IdAllocator;
 
 import java.util.Collection;
 import java.util.Objects;
 
 public class User implements NamedTranspoolEntity, IdentifiableTranspoolEntity {
-    private static int ID = 0;
+    private static final IdAllocator ID_ALLOCATOR = new IdAllocator();
 
     private final int id;
     private String name;
@@ -20,7 +21,7 @@ public class User implements NamedTranspoolEntity, IdentifiableTranspoolEntity {
     }
 
     public User(String name, double balance) {
-        this.id = ++ID;
+        this.id = ID_ALLOCATOR.next();
         this.name = name;
         this.balance = balance;
     }
@@ -76,7 +77,11 @@ public class User implements NamedTranspoolEntity, IdentifiableTranspoolEntity {
 
     //region Static Methods
     public static void resetIds() {
-        ID = 0;
+        ID_ALLOCATOR.reset();
+    }
+
+    public static IdAllocator getIdAllocator() {
+        return ID_ALLOCATOR;
     }
 
     public static boolean hasUserById(Collection<? extends User> users, int id) {
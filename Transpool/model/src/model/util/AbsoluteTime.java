@@ -0,0 +1,65 @@
+package model.util;
+
+import java.time.LocalTime;
+
+/**
+ * A point in time packed into a single int: the amount of minutes since midnight of day 0,
+ * i.e. {@code day * 1440 + minute of the day}.
+ * Adding a duration is a plain addition that carries over into the next day, and nothing is allocated,
+ * so the matching can do all its time arithmetic on ints. {@link LocalTime} is only built for display.
+ */
+public final class AbsoluteTime {
+    public static final int MINUTES_PER_HOUR = 60;
+    public static final int MINUTES_PER_DAY = 24 * MINUTES_PER_HOUR;
+
+    /**
+     * Marks a missing time, e.g. the time an offer is at a station it doesn't pass through.
+     */
+    public static final int NO_TIME = -1;
+
+    private AbsoluteTime() {
+    }
+
+    public static int of(int day, int hour, int minutes) {
+        return day * MINUTES_PER_DAY + hour * MINUTES_PER_HOUR + minutes;
+    }
+
+    public static int of(int day, int minuteOfDay) {
+        return day * MINUTES_PER_DAY + minuteOfDay;
+    }
+
+    /**
+     * @return The time of day 0 at the given time of the day.
+     */
+    public static int of(LocalTime time) {
+        return of(0, time.getHour(), time.getMinute());
+    }
+
+    public static int getDay(int time) {
+        return time / MINUTES_PER_DAY;
+    }
+
+    public static int getMinuteOfDay(int time) {
+        return time % MINUTES_PER_DAY;
+    }
+
+    public static int plusMinutes(int time, long minutes) {
+        return Math.toIntExact(time + minutes);
+    }
+
+    /**
+     * Rounds a time to the nearest product of the given amount of minutes, rounding halves up.
+     * A time that rounds past the end of its day moves to midnight of the next day.
+     */
+    public static int round(int time, int toProductOf) {
+        return (time + toProductOf / 2) / toProductOf * toProductOf;
+    }
+
+    /**
+     * @return The time of the day, without the day. Only meant for display.
+     */
+    public static LocalTime toLocalTime(int time) {
+        int minuteOfDay = getMinuteOfDay(time);
+        return LocalTime.of(minuteOfDay / MINUTES_PER_HOUR, minuteOfDay % MINUTES_PER_HOUR);
+    }
+}
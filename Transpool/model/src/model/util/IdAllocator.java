@@ -0,0 +1,141 @@
+package model.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out dense, positive ids (1, 2, 3...) to the entities of a single type, from any amount of threads.
+ * An id is allocated with a single atomic increment, without locks.
+ * <p>
+ * Bulk imports can reserve a {@link Block} of ids up front, so the entities they create on their thread
+ * take their ids from the block without touching the shared counter. The ids of a block that weren't used
+ * are given back when it's closed, as long as no other ids were allocated after it.
+ * <p>
+ * {@link #reset()} starts the ids over from 1. It also starts a new generation, so blocks that were
+ * reserved before the reset stop handing out their (now stale) ids and fall back to the shared counter.
+ */
+public class IdAllocator {
+    private static final int NO_ID = 0;
+    private static final int GENERATION_SHIFT = 32;
+    private static final long ID_MASK = 0xFFFFFFFFL;
+
+    // The generation in the high 32 bits and the last allocated id in the low 32 bits,
+    // so both are read and updated in one atomic step
+    private final AtomicLong state = new AtomicLong();
+    private final ThreadLocal<Block> threadBlock = new ThreadLocal<>();
+
+    /**
+     * @return The next free id. Taken from the block of the current thread if it has one that isn't used up.
+     */
+    public int next() {
+        Block block = threadBlock.get();
+        if (block != null) {
+            int id = block.next(getGeneration(state.get()));
+            if (id != NO_ID)
+                return id;
+        }
+
+        return getId(state.incrementAndGet());
+    }
+
+    /**
+     * @return The last id that was allocated, or 0 if none was allocated since the last reset.
+     */
+    public int getLastId() {
+        return getId(state.get());
+    }
+
+    /**
+     * Reserves a block of consecutive ids for the current thread.
+     * Until the block is closed, {@link #next()} on this thread takes its ids from the block.
+     *
+     * @param count The amount of ids in the block.
+     * @return The reserved block. Should be closed when the import is done, e.g. with try-with-resources.
+     */
+    public Block reserveBlock(int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Can't reserve a negative amount of ids.");
+
+        long reserved = state.addAndGet(count);
+        int end = getId(reserved) + 1;
+        Block block = new Block(getGeneration(reserved), end - count, end, threadBlock.get());
+        threadBlock.set(block);
+
+        return block;
+    }
+
+    /**
+     * Starts the ids over from 1.
+     */
+    public void reset() {
+        resetTo(NO_ID);
+    }
+
+    /**
+     * Starts the ids over after the given id, e.g. to keep the ids of entities that were created before a reset.
+     *
+     * @param lastId The id to continue after. The next allocated id is {@code lastId + 1}.
+     */
+    public void resetTo(int lastId) {
+        if (lastId < 0)
+            throw new IllegalArgumentException("Ids can't be negative.");
+
+        state.updateAndGet(current -> pack(getGeneration(current) + 1, lastId));
+    }
+
+    //region Private Methods
+    private static long pack(long generation, int id) {
+        return (generation << GENERATION_SHIFT) | (id & ID_MASK);
+    }
+
+    private static long getGeneration(long state) {
+        return state >>> GENERATION_SHIFT;
+    }
+
+    private static int getId(long state) {
+        return (int) (state & ID_MASK);
+    }
+    //endregion
+
+    /**
+     * A range of ids reserved for a single thread. Not shared between threads, so it needs no synchronization.
+     */
+    public final class Block implements AutoCloseable {
+        private final long generation;
+        private final int end;
+        private final Block previous;
+        private int nextId;
+
+        private Block(long generation, int first, int end, Block previous) {
+            this.generation = generation;
+            this.nextId = first;
+            this.end = end;
+            this.previous = previous;
+        }
+
+        /**
+         * @return The amount of ids left in the block.
+         */
+        public int getRemaining() {
+            return end - nextId;
+        }
+
+        private int next(long currentGeneration) {
+            if (generation != currentGeneration || nextId >= end)
+                return NO_ID;
+
+            return nextId++;
+        }
+
+        /**
+         * Detaches the block from its thread, and gives back its unused ids if no ids were allocated after it.
+         */
+        @Override
+        public void close() {
+            if (nextId < end)
+                state.compareAndSet(pack(generation, end - 1), pack(generation, nextId - 1));
+
+            if (threadBlock.get() == this)
+                threadBlock.set(previous);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package model.util.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * An immutable snapshot of a {@link Graph} in compressed sparse row form, for routing and reachability queries.
+ * <p>
+ * The vertices get dense int ids. The edges that leave a vertex are stored one after the other, so the edges of
+ * vertex {@code v} are the ones between {@code offsets[v]} and {@code offsets[v + 1]}, with the ids of their
+ * destinations in {@code targets}. Every cost function the snapshot is built with is evaluated once per edge
+ * into a primitive array that parallels {@code targets}, so a search scans flat arrays instead of chasing
+ * vertex and edge objects and hashing their weights.
+ * <p>
+ * Thread-Safe: the snapshot is never modified, and every thread searches with its own reusable search state,
+ * so a query allocates nothing but the path it returns.
+ * The snapshot doesn't follow the mutations of its graph; {@link #isStale()} tells when it should be rebuilt.
+ *
+ * @param <T> Type Parameter for the vertices of the graph.
+ * @param <K> Type Parameter for the edges of the graph.
+ */
+public class CompressedGraph<T, K> {
+    private static final int NO_EDGE = -1;
+
+    private final Graph<T, K> source;
+    private final int sourceVersion;
+
+    private final Object[] vertices;
+    private final Map<T, Integer> vertex2Id;
+    private final int[] offsets;
+    private final int[] targets;
+    private final Object[] edges;
+    private final double[][] costs;
+    // By cost function: the lowest ratio of the cost of an edge to the distance between its ends
+    private final double[] lowestCostsPerDistance;
+
+    private final ThreadLocal<SearchState> searchStates;
+
+    private CompressedGraph(Graph<T, K> source, int vertexCount, int edgeCount, int costCount) {
+        this.source = source;
+        this.sourceVersion = source.getVersion();
+        this.vertices = new Object[vertexCount];
+        this.vertex2Id = new HashMap<>();
+        this.offsets = new int[vertexCount + 1];
+        this.targets = new int[edgeCount];
+        this.edges = new Object[edgeCount];
+        this.costs = new double[costCount][edgeCount];
+        this.lowestCostsPerDistance = new double[costCount];
+        this.searchStates = ThreadLocal.withInitial(() -> new SearchState(vertexCount));
+    }
+
+    /**
+     * Builds a snapshot of a graph.
+     *
+     * @param graph         The graph to take a snapshot of.
+     * @param costFunctions The costs to store for every edge, each in its own array, by the index of their function.
+     *                      They must be non-negative. Edges with an infinite cost are not traveled through.
+     * @return The snapshot.
+     * @throws IllegalArgumentException If one of the functions gives an edge a negative cost.
+     */
+    public static <T, K> CompressedGraph<T, K> of(Graph<T, K> graph, List<? extends ToDoubleFunction<? super K>> costFunctions) {
+        return of(graph, costFunctions, (src, dst) -> 0);
+    }
+
+    /**
+     * Builds a snapshot of a graph whose vertices have a distance between them, and finds the lowest cost per unit of
+     * distance of its edges by every cost, for scaling A* heuristics that the snapshot can't outlive.
+     *
+     * @param graph         The graph to take a snapshot of.
+     * @param costFunctions The costs to store for every edge, each in its own array, by the index of their function.
+     *                      They must be non-negative. Edges with an infinite cost are not traveled through.
+     * @param distance      A function that receives the ends of an edge and returns the distance between them.
+     * @return The snapshot.
+     * @throws IllegalArgumentException If one of the functions gives an edge a negative cost.
+     */
+    public static <T, K> CompressedGraph<T, K> of(Graph<T, K> graph, List<? extends ToDoubleFunction<? super K>> costFunctions,
+                                                  ToDoubleBiFunction<? super T, ? super T> distance) {
+        int[] edgeCount = {0};
+        graph.forEachEdge((src, dst, weight) -> edgeCount[0]++);
+
+        CompressedGraph<T, K> compressed = new CompressedGraph<>(graph, graph.getVertices().size(), edgeCount[0], costFunctions.size());
+        for (T vertex : graph.getVertices()) {
+            compressed.vertices[compressed.vertex2Id.size()] = vertex;
+            compressed.vertex2Id.put(vertex, compressed.vertex2Id.size());
+        }
+
+        // Count the edges of every vertex, then turn the counts into the offsets of their first edges
+        graph.forEachEdge((src, dst, weight) -> compressed.offsets[compressed.vertex2Id.get(src) + 1]++);
+        for (int vertex = 0; vertex < compressed.vertices.length; vertex++) {
+            compressed.offsets[vertex + 1] += compressed.offsets[vertex];
+        }
+
+        int[] nextEdge = Arrays.copyOf(compressed.offsets, compressed.vertices.length);
+        Arrays.fill(compressed.lowestCostsPerDistance, Double.POSITIVE_INFINITY);
+        graph.forEachEdge((src, dst, weight) -> {
+            int edge = nextEdge[compressed.vertex2Id.get(src)]++;
+            compressed.targets[edge] = compressed.vertex2Id.get(dst);
+            compressed.edges[edge] = weight;
+
+            double edgeDistance = distance.applyAsDouble(src, dst);
+            for (int costIndex = 0; costIndex < costFunctions.size(); costIndex++) {
+                double cost = costFunctions.get(costIndex).applyAsDouble(weight);
+                if (cost < 0)
+                    throw new IllegalArgumentException("Edge costs cannot be negative.");
+
+                compressed.costs[costIndex][edge] = cost;
+                if (edgeDistance > 0 && !Double.isInfinite(cost))
+                    compressed.lowestCostsPerDistance[costIndex] = Math.min(compressed.lowestCostsPerDistance[costIndex], cost / edgeDistance);
+            }
+        });
+
+        for (int costIndex = 0; costIndex < costFunctions.size(); costIndex++) {
+            if (Double.isInfinite(compressed.lowestCostsPerDistance[costIndex]))
+                compressed.lowestCostsPerDistance[costIndex] = 0;
+        }
+
+        return compressed;
+    }
+
+    //region Getters
+    /**
+     * @return True if the graph was mutated since the snapshot was taken.
+     */
+    public boolean isStale() {
+        return source.getVersion() != sourceVersion;
+    }
+
+    public int getVertexCount() {
+        return vertices.length;
+    }
+
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @return The id of the vertex, or -1 if it isn't in the snapshot.
+     */
+    public int getId(T vertex) {
+        Integer id = vertex2Id.get(vertex);
+        return id == null ? -1 : id;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getVertex(int id) {
+        return (T) vertices[id];
+    }
+
+    /**
+     * @return The index of the first edge that leaves the vertex.
+     */
+    public int getFirstEdge(int vertex) {
+        return offsets[vertex];
+    }
+
+    /**
+     * @return The index after the last edge that leaves the vertex.
+     */
+    public int getEndEdge(int vertex) {
+        return offsets[vertex + 1];
+    }
+
+    /**
+     * @return The id of the vertex the edge leads to.
+     */
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    @SuppressWarnings("unchecked")
+    public K getEdge(int edge) {
+        return (K) edges[edge];
+    }
+
+    public double getCost(int costIndex, int edge) {
+        return costs[costIndex][edge];
+    }
+
+    /**
+     * @return The lowest ratio of the cost of an edge to the distance between its ends, of the edges that can be
+     * traveled through and whose ends are apart. 0 if there are none, or if the snapshot was built without distances.
+     */
+    public double getLowestCostPerDistance(int costIndex) {
+        return lowestCostsPerDistance[costIndex];
+    }
+
+    /**
+     * @return The amount of cost functions the snapshot was built with.
+     */
+    public int getCostCount() {
+        return costs.length;
+    }
+    //endregion
+
+    //region Query Graph
+    /**
+     * Checks whether a vertex can be reached from another, with a breadth first search.
+     *
+     * @return True if there is a path from {@code from} to {@code to}. False if one of them isn't in the snapshot.
+     */
+    public boolean doesPathExist(T from, T to) {
+        int src = getId(from);
+        int dst = getId(to);
+        if (src == -1 || dst == -1)
+            return false;
+
+        SearchState state = searchStates.get();
+        state.start();
+        state.mark(src);
+
+        int[] queue = state.queue;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = src;
+        while (head < tail) {
+            int vertex = queue[head++];
+            if (vertex == dst)
+                return true;
+
+            for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; edge++) {
+                int next = targets[edge];
+                if (!state.isReached(next)) {
+                    state.mark(next);
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Finds the cheapest path between two vertices by one of the costs of the snapshot, using the A* algorithm.
+     * The heuristic must be admissible and consistent for the returned path to be the cheapest, as with
+     * {@link Graph#getShortestPath(Object, Object, ToDoubleFunction, ToDoubleBiFunction)}.
+     *
+     * @param from      The vertex the path starts at.
+     * @param to        The vertex the path ends at.
+     * @param costIndex The index of the cost function to search by, in the list the snapshot was built with.
+     * @param heuristic A function that receives a vertex and the target vertex and estimates
+     *                  the cost of the cheapest path between them. It's called once for every vertex reached.
+     * @return The cheapest path found, or null if one of the vertices isn't in the snapshot or if {@code to}
+     * is not reachable from {@code from}.
+     */
+    public GraphPath<T, K> getShortestPath(T from, T to, int costIndex, ToDoubleBiFunction<? super T, ? super T> heuristic) {
+        int src = getId(from);
+        int dst = getId(to);
+        if (src == -1 || dst == -1)
+            return null;
+
+        double[] edgeCosts = costs[costIndex];
+        SearchState state = searchStates.get();
+        state.start();
+        state.reach(src, 0, NO_EDGE, heuristic.applyAsDouble(from, to));
+
+        while (!state.isOpenEmpty()) {
+            int vertex = state.pollOpen();
+            if (vertex == dst)
+                return buildPath(state, src, dst);
+
+            double cost = state.costs[vertex];
+            for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; edge++) {
+                double edgeCost = edgeCosts[edge];
+                int next = targets[edge];
+
+                // An edge with an infinite cost cannot be traveled through
+                if (Double.isInfinite(edgeCost) || state.isSettled(next))
+                    continue;
+
+                double newCost = cost + edgeCost;
+                if (!state.isReached(next))
+                    state.reach(next, newCost, edge, heuristic.applyAsDouble(getVertex(next), to));
+                else if (newCost < state.costs[next])
+                    state.improve(next, newCost, edge);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds the costs of the cheapest paths from a vertex to every vertex, using Dijkstra's algorithm.
+     *
+     * @param from      The id of the vertex the paths start at.
+     * @param costIndex The index of the cost function to search by, in the list the snapshot was built with.
+     * @param result    The array to write the costs into, by the ids of the vertices the paths end at.
+     *                  The vertices that can't be reached get an infinite cost.
+     * @param offset    The index in {@code result} of the cost of the path to vertex 0.
+     */
+    public void getCostsFrom(int from, int costIndex, double[] result, int offset) {
+        Arrays.fill(result, offset, offset + vertices.length, Double.POSITIVE_INFINITY);
+
+        double[] edgeCosts = costs[costIndex];
+        SearchState state = searchStates.get();
+        state.start();
+        state.reach(from, 0, NO_EDGE, 0);
+
+        while (!state.isOpenEmpty()) {
+            int vertex = state.pollOpen();
+            double cost = state.costs[vertex];
+            result[offset + vertex] = cost;
+
+            for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; edge++) {
+                double edgeCost = edgeCosts[edge];
+                int next = targets[edge];
+                if (Double.isInfinite(edgeCost) || state.isSettled(next))
+                    continue;
+
+                double newCost = cost + edgeCost;
+                if (!state.isReached(next))
+                    state.reach(next, newCost, edge, 0);
+                else if (newCost < state.costs[next])
+                    state.improve(next, newCost, edge);
+            }
+        }
+    }
+    //endregion
+
+    //region Private Methods
+    private GraphPath<T, K> buildPath(SearchState state, int src, int dst) {
+        LinkedList<T> pathVertices = new LinkedList<>();
+        LinkedList<K> pathEdges = new LinkedList<>();
+
+        int current = dst;
+        pathVertices.addFirst(getVertex(current));
+        while (current != src) {
+            int edge = state.reachedBy[current];
+            pathEdges.addFirst(getEdge(edge));
+            current = findSource(edge);
+            pathVertices.addFirst(getVertex(current));
+        }
+
+        return new GraphPath<>(new ArrayList<>(pathVertices), new ArrayList<>(pathEdges), state.costs[dst]);
+    }
+
+    /**
+     * @return The vertex the edge leaves, found by a binary search over the offsets.
+     */
+    private int findSource(int edge) {
+        int low = 0;
+        int high = vertices.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets[middle] <= edge)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+
+        return low;
+    }
+    //endregion
+}
@@ -0,0 +1,547 @@
+package model.util.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A contraction hierarchies index of a {@link CompressedGraph} by one of its costs, for answering shortest path
+ * queries on big graphs much faster than a Dijkstra search.
+ * <p>
+ * Building it contracts the vertices one by one, from the least important to the most: a contracted vertex is taken
+ * out of the graph, and every path of two edges through it that is the only cheapest path between its ends is
+ * replaced by a shortcut edge of the same cost. The order is picked greedily by the amount of shortcuts a vertex
+ * would add against the edges it would remove, so that few shortcuts are added.
+ * <p>
+ * A query runs a Dijkstra search forward from the source and backward from the target at once, each one only along
+ * edges to vertices that were contracted later. Every cheapest path has a vertex the two searches meet at, and they
+ * stop once neither can find a cheaper meeting, so a query settles only a few hundred vertices even on graphs of
+ * millions. Shortcuts remember the vertex they skip, so the path they stand for can be unpacked back into edges.
+ * <p>
+ * Thread-Safe: the index is never modified after it's built, and every thread queries with its own search states.
+ * Like its snapshot, it doesn't follow the mutations of the graph.
+ *
+ * @param <T> Type Parameter for the vertices of the graph.
+ * @param <K> Type Parameter for the edges of the graph.
+ */
+public class ContractionHierarchy<T, K> {
+    private static final int NO_EDGE = -1;
+    private static final int NO_VERTEX = -1;
+
+    // How many vertices a witness search may settle before it gives up and the shortcut is added anyway
+    private static final int MAX_WITNESS_SETTLED = 500;
+
+    private final CompressedGraph<T, K> graph;
+    private final int costIndex;
+
+    // The edges that lead from every vertex to vertices that were contracted later, in compressed sparse row form
+    private final UpwardEdges forwardEdges;
+    // The same, for the edges that lead to every vertex from vertices that were contracted later
+    private final UpwardEdges backwardEdges;
+
+    private final ThreadLocal<SearchState> forwardStates;
+    private final ThreadLocal<SearchState> backwardStates;
+
+    private ContractionHierarchy(CompressedGraph<T, K> graph, int costIndex,
+                                 UpwardEdges forwardEdges, UpwardEdges backwardEdges) {
+        this.graph = graph;
+        this.costIndex = costIndex;
+        this.forwardEdges = forwardEdges;
+        this.backwardEdges = backwardEdges;
+
+        int vertexCount = graph.getVertexCount();
+        this.forwardStates = ThreadLocal.withInitial(() -> new SearchState(vertexCount));
+        this.backwardStates = ThreadLocal.withInitial(() -> new SearchState(vertexCount));
+    }
+
+    /**
+     * Contracts a snapshot by one of its costs.
+     *
+     * @param graph     The snapshot to index.
+     * @param costIndex The index of the cost function to index by, in the list the snapshot was built with.
+     * @return The index.
+     */
+    public static <T, K> ContractionHierarchy<T, K> of(CompressedGraph<T, K> graph, int costIndex) {
+        Contraction contraction = new Contraction(graph, costIndex);
+        contraction.contractAll();
+
+        return new ContractionHierarchy<>(graph, costIndex,
+                contraction.buildUpwardEdges(true), contraction.buildUpwardEdges(false));
+    }
+
+    //region Getters
+    /**
+     * @return The snapshot the index was built on.
+     */
+    public CompressedGraph<T, K> getGraph() {
+        return graph;
+    }
+
+    public int getCostIndex() {
+        return costIndex;
+    }
+
+    /**
+     * @return The amount of shortcuts the contraction added.
+     */
+    public int getShortcutCount() {
+        return forwardEdges.getShortcutCount() + backwardEdges.getShortcutCount();
+    }
+    //endregion
+
+    //region Query Graph
+    /**
+     * Gets the cost of the cheapest path between two vertices.
+     *
+     * @return The cost, or infinity if {@code to} can't be reached from {@code from} or one of them isn't in the snapshot.
+     */
+    public double getCost(T from, T to) {
+        int src = graph.getId(from);
+        int dst = graph.getId(to);
+        if (src == -1 || dst == -1)
+            return Double.POSITIVE_INFINITY;
+
+        SearchState forward = forwardStates.get();
+        SearchState backward = backwardStates.get();
+        int meeting = search(src, dst, forward, backward);
+
+        return meeting == NO_VERTEX ? Double.POSITIVE_INFINITY : forward.costs[meeting] + backward.costs[meeting];
+    }
+
+    /**
+     * Finds the cheapest path between two vertices.
+     *
+     * @return The cheapest path found, or null if one of the vertices isn't in the snapshot or if {@code to}
+     * is not reachable from {@code from}.
+     */
+    public GraphPath<T, K> getShortestPath(T from, T to) {
+        int src = graph.getId(from);
+        int dst = graph.getId(to);
+        if (src == -1 || dst == -1)
+            return null;
+
+        SearchState forward = forwardStates.get();
+        SearchState backward = backwardStates.get();
+        int meeting = search(src, dst, forward, backward);
+        if (meeting == NO_VERTEX)
+            return null;
+
+        LinkedList<Integer> forwardPath = new LinkedList<>();
+        for (int vertex = meeting; vertex != src; vertex = forwardEdges.sources[forward.reachedBy[vertex]]) {
+            forwardPath.addFirst(forward.reachedBy[vertex]);
+        }
+
+        // The edges of the snapshot along the path, unpacked from the edges of both searches
+        List<Integer> pathEdges = new ArrayList<>();
+        for (int edge : forwardPath) {
+            unpack(forwardEdges, edge, pathEdges);
+        }
+
+        for (int vertex = meeting; vertex != dst; ) {
+            int edge = backward.reachedBy[vertex];
+            unpack(backwardEdges, edge, pathEdges);
+            vertex = backwardEdges.sources[edge];
+        }
+
+        List<T> vertices = new ArrayList<>(pathEdges.size() + 1);
+        List<K> edges = new ArrayList<>(pathEdges.size());
+        vertices.add(from);
+        for (int edge : pathEdges) {
+            edges.add(graph.getEdge(edge));
+            vertices.add(graph.getVertex(graph.getTarget(edge)));
+        }
+
+        return new GraphPath<>(vertices, edges, forward.costs[meeting] + backward.costs[meeting]);
+    }
+    //endregion
+
+    //region Private Methods
+    /**
+     * Runs the forward and the backward searches, one step of the one with the cheaper open vertex at a time.
+     *
+     * @return The vertex the cheapest path goes through where the searches meet, or {@link #NO_VERTEX} if there's none.
+     */
+    private int search(int src, int dst, SearchState forward, SearchState backward) {
+        forward.start();
+        backward.start();
+        forward.reach(src, 0, NO_EDGE, 0);
+        backward.reach(dst, 0, NO_EDGE, 0);
+
+        double best = Double.POSITIVE_INFINITY;
+        int meeting = NO_VERTEX;
+        while (true) {
+            boolean canGoForward = !forward.isOpenEmpty() && forward.peekOpenEstimate() < best;
+            boolean canGoBackward = !backward.isOpenEmpty() && backward.peekOpenEstimate() < best;
+            if (!canGoForward && !canGoBackward)
+                return meeting;
+
+            boolean isForward = canGoForward && (!canGoBackward || forward.peekOpenEstimate() <= backward.peekOpenEstimate());
+            SearchState state = isForward ? forward : backward;
+            SearchState other = isForward ? backward : forward;
+            UpwardEdges edges = isForward ? forwardEdges : backwardEdges;
+
+            int vertex = state.pollOpen();
+            double cost = state.costs[vertex];
+            if (other.isReached(vertex) && cost + other.costs[vertex] < best) {
+                best = cost + other.costs[vertex];
+                meeting = vertex;
+            }
+
+            for (int edge = edges.offsets[vertex]; edge < edges.offsets[vertex + 1]; edge++) {
+                int next = edges.targets[edge];
+                if (state.isSettled(next))
+                    continue;
+
+                double newCost = cost + edges.costs[edge];
+                if (!state.isReached(next))
+                    state.reach(next, newCost, edge, 0);
+                else if (newCost < state.costs[next])
+                    state.improve(next, newCost, edge);
+
+                // The other search may have settled the vertex already, so meetings are checked on both ends
+                if (other.isReached(next) && state.costs[next] + other.costs[next] < best) {
+                    best = state.costs[next] + other.costs[next];
+                    meeting = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the original edges an edge of the index stands for to the end of a list, in the order of travel.
+     */
+    private void unpack(UpwardEdges edges, int edge, List<Integer> result) {
+        int skipped = edges.skippedVertices[edge];
+        if (skipped == NO_VERTEX) {
+            result.add(edges.originalEdges[edge]);
+            return;
+        }
+
+        // The shortcut stands for an edge into the skipped vertex and an edge out of it. Both lead from a vertex that
+        // was contracted later to the skipped one, so each is in the upward edges of the skipped vertex.
+        int low = edges == forwardEdges ? edges.sources[edge] : edges.targets[edge];
+        int high = edges == forwardEdges ? edges.targets[edge] : edges.sources[edge];
+        unpack(backwardEdges, backwardEdges.find(skipped, low), result);
+        unpack(forwardEdges, forwardEdges.find(skipped, high), result);
+    }
+    //endregion
+
+    /**
+     * The edges of the index that lead up the hierarchy, in compressed sparse row form.
+     * Forward edges lead from {@code sources[e]} to {@code targets[e]}. Backward edges are stored from the vertex they
+     * lead to, so {@code sources[e]} is their target in the graph and {@code targets[e]} is their source.
+     */
+    private static class UpwardEdges {
+        private final int[] offsets;
+        private final int[] sources;
+        private final int[] targets;
+        private final double[] costs;
+        // The vertex a shortcut skips, or NO_VERTEX if the edge is an edge of the graph
+        private final int[] skippedVertices;
+        // The edge of the snapshot an edge of the graph is
+        private final int[] originalEdges;
+
+        private UpwardEdges(int vertexCount, int edgeCount) {
+            offsets = new int[vertexCount + 1];
+            sources = new int[edgeCount];
+            targets = new int[edgeCount];
+            costs = new double[edgeCount];
+            skippedVertices = new int[edgeCount];
+            originalEdges = new int[edgeCount];
+        }
+
+        /**
+         * @return The index of the edge of the vertex that leads to the target.
+         */
+        private int find(int vertex, int target) {
+            for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; edge++) {
+                if (targets[edge] == target)
+                    return edge;
+            }
+
+            throw new IllegalStateException("The hierarchy is missing an edge of a shortcut.");
+        }
+
+        private int getShortcutCount() {
+            int count = 0;
+            for (int skipped : skippedVertices) {
+                if (skipped != NO_VERTEX)
+                    count++;
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * The state of building the index: the graph of the vertices that weren't contracted yet, with the shortcuts that
+     * were added between them, and the order the vertices were contracted in.
+     */
+    private static class Contraction {
+        private final int vertexCount;
+        private final AdjacencyList[] outEdges;
+        private final AdjacencyList[] inEdges;
+        private final int[] ranks;
+        // How many neighbours of every vertex were contracted, to spread the contraction evenly over the graph
+        private final int[] contractedNeighbours;
+        // How deep in the hierarchy every vertex is: one above the deepest of its neighbours that were contracted
+        private final int[] levels;
+        private final SearchState witnessSearch;
+
+        private Contraction(CompressedGraph<?, ?> graph, int costIndex) {
+            vertexCount = graph.getVertexCount();
+            outEdges = new AdjacencyList[vertexCount];
+            inEdges = new AdjacencyList[vertexCount];
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                outEdges[vertex] = new AdjacencyList();
+                inEdges[vertex] = new AdjacencyList();
+            }
+
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                for (int edge = graph.getFirstEdge(vertex); edge < graph.getEndEdge(vertex); edge++) {
+                    double cost = graph.getCost(costIndex, edge);
+                    int target = graph.getTarget(edge);
+
+                    // An edge with an infinite cost cannot be traveled through
+                    if (target != vertex && !Double.isInfinite(cost))
+                        addEdge(vertex, target, cost, NO_VERTEX, edge);
+                }
+            }
+
+            ranks = new int[vertexCount];
+            Arrays.fill(ranks, -1);
+            contractedNeighbours = new int[vertexCount];
+            levels = new int[vertexCount];
+            witnessSearch = new SearchState(vertexCount);
+        }
+
+        /**
+         * Contracts the vertices from the one with the lowest priority up. The priorities of the vertices change as their
+         * neighbours are contracted, so a vertex is contracted only if its updated priority is still the lowest.
+         */
+        private void contractAll() {
+            PriorityQueue<Long> queue = new PriorityQueue<>();
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                queue.add(toQueueEntry(getPriority(vertex), vertex));
+            }
+
+            int rank = 0;
+            while (!queue.isEmpty()) {
+                int vertex = (int) (long) queue.poll();
+                int priority = getPriority(vertex);
+                if (!queue.isEmpty() && toQueueEntry(priority, vertex) > queue.peek()) {
+                    queue.add(toQueueEntry(priority, vertex));
+                    continue;
+                }
+
+                contract(vertex);
+                ranks[vertex] = rank++;
+            }
+        }
+
+        private static long toQueueEntry(int priority, int vertex) {
+            return ((long) priority << Integer.SIZE) | vertex;
+        }
+
+        /**
+         * The edge difference of the vertex (the shortcuts contracting it would add, less the edges it would remove),
+         * plus the amount of its neighbours that were already contracted.
+         */
+        private int getPriority(int vertex) {
+            int removedEdges = countActive(outEdges[vertex]) + countActive(inEdges[vertex]);
+            return 2 * (addShortcuts(vertex, false) - removedEdges) + contractedNeighbours[vertex] + levels[vertex];
+        }
+
+        private int countActive(AdjacencyList edges) {
+            int count = 0;
+            for (int i = 0; i < edges.size; i++) {
+                if (ranks[edges.vertices[i]] == -1)
+                    count++;
+            }
+
+            return count;
+        }
+
+        private void contract(int vertex) {
+            addShortcuts(vertex, true);
+
+            for (AdjacencyList edges : new AdjacencyList[]{outEdges[vertex], inEdges[vertex]}) {
+                for (int i = 0; i < edges.size; i++) {
+                    int neighbour = edges.vertices[i];
+                    contractedNeighbours[neighbour]++;
+                    levels[neighbour] = Math.max(levels[neighbour], levels[vertex] + 1);
+                }
+            }
+        }
+
+        /**
+         * Finds the shortcuts that contracting a vertex needs: for every pair of an edge into it and an edge out of it,
+         * unless a witness search finds another path between their ends that is as cheap, without the vertex.
+         *
+         * @param add Whether to add the shortcuts or only count them.
+         * @return The amount of shortcuts needed.
+         */
+        private int addShortcuts(int vertex, boolean add) {
+            AdjacencyList in = inEdges[vertex];
+            AdjacencyList out = outEdges[vertex];
+
+            double maxOutCost = 0;
+            for (int i = 0; i < out.size; i++) {
+                if (ranks[out.vertices[i]] == -1)
+                    maxOutCost = Math.max(maxOutCost, out.costs[i]);
+            }
+
+            int shortcuts = 0;
+            for (int i = 0; i < in.size; i++) {
+                int from = in.vertices[i];
+                if (ranks[from] != -1)
+                    continue;
+
+                double inCost = in.costs[i];
+                searchWitnesses(from, vertex, inCost + maxOutCost);
+
+                for (int j = 0; j < out.size; j++) {
+                    int to = out.vertices[j];
+                    if (to == from || ranks[to] != -1)
+                        continue;
+
+                    double viaCost = inCost + out.costs[j];
+                    if (witnessSearch.isReached(to) && witnessSearch.costs[to] <= viaCost)
+                        continue;
+
+                    shortcuts++;
+                    if (add)
+                        addEdge(from, to, viaCost, vertex, NO_EDGE);
+                }
+            }
+
+            return shortcuts;
+        }
+
+        /**
+         * Runs a Dijkstra search from a vertex over the vertices that weren't contracted, without going through the
+         * vertex being contracted, up to a cost or a number of settled vertices.
+         * The costs it finds may be higher than the cheapest ones, which only adds shortcuts that weren't needed.
+         */
+        private void searchWitnesses(int from, int excluded, double maxCost) {
+            witnessSearch.start();
+            witnessSearch.reach(from, 0, NO_EDGE, 0);
+
+            for (int settled = 0; settled < MAX_WITNESS_SETTLED && !witnessSearch.isOpenEmpty(); settled++) {
+                if (witnessSearch.peekOpenEstimate() > maxCost)
+                    return;
+
+                int vertex = witnessSearch.pollOpen();
+                double cost = witnessSearch.costs[vertex];
+                AdjacencyList out = outEdges[vertex];
+                for (int i = 0; i < out.size; i++) {
+                    int next = out.vertices[i];
+                    if (next == excluded || ranks[next] != -1 || witnessSearch.isSettled(next))
+                        continue;
+
+                    double newCost = cost + out.costs[i];
+                    if (!witnessSearch.isReached(next))
+                        witnessSearch.reach(next, newCost, NO_EDGE, 0);
+                    else if (newCost < witnessSearch.costs[next])
+                        witnessSearch.improve(next, newCost, NO_EDGE);
+                }
+            }
+        }
+
+        /**
+         * Adds an edge, or lowers the cost of the edge between the same vertices if it's cheaper.
+         */
+        private void addEdge(int from, int to, double cost, int skipped, int originalEdge) {
+            outEdges[from].put(to, cost, skipped, originalEdge);
+            inEdges[to].put(from, cost, skipped, originalEdge);
+        }
+
+        /**
+         * Collects the edges that lead up the order of contraction.
+         *
+         * @param forward True for the edges that leave every vertex, false for the edges that lead into it.
+         */
+        private UpwardEdges buildUpwardEdges(boolean forward) {
+            AdjacencyList[] adjacencies = forward ? outEdges : inEdges;
+
+            int edgeCount = 0;
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                edgeCount += countUpward(vertex, adjacencies[vertex]);
+            }
+
+            UpwardEdges edges = new UpwardEdges(vertexCount, edgeCount);
+            int edge = 0;
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                edges.offsets[vertex] = edge;
+
+                AdjacencyList adjacency = adjacencies[vertex];
+                for (int i = 0; i < adjacency.size; i++) {
+                    if (ranks[adjacency.vertices[i]] <= ranks[vertex])
+                        continue;
+
+                    edges.sources[edge] = vertex;
+                    edges.targets[edge] = adjacency.vertices[i];
+                    edges.costs[edge] = adjacency.costs[i];
+                    edges.skippedVertices[edge] = adjacency.skippedVertices[i];
+                    edges.originalEdges[edge] = adjacency.originalEdges[i];
+                    edge++;
+                }
+            }
+            edges.offsets[vertexCount] = edge;
+
+            return edges;
+        }
+
+        private int countUpward(int vertex, AdjacencyList adjacency) {
+            int count = 0;
+            for (int i = 0; i < adjacency.size; i++) {
+                if (ranks[adjacency.vertices[i]] > ranks[vertex])
+                    count++;
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * The edges of a vertex while the graph is contracted, at most one to every neighbour, in growable parallel arrays.
+     */
+    private static class AdjacencyList {
+        private static final int INITIAL_CAPACITY = 4;
+
+        private int[] vertices = new int[INITIAL_CAPACITY];
+        private double[] costs = new double[INITIAL_CAPACITY];
+        private int[] skippedVertices = new int[INITIAL_CAPACITY];
+        private int[] originalEdges = new int[INITIAL_CAPACITY];
+        private int size;
+
+        private void put(int vertex, double cost, int skipped, int originalEdge) {
+            for (int i = 0; i < size; i++) {
+                if (vertices[i] == vertex) {
+                    if (cost < costs[i]) {
+                        costs[i] = cost;
+                        skippedVertices[i] = skipped;
+                        originalEdges[i] = originalEdge;
+                    }
+
+                    return;
+                }
+            }
+
+            if (size == vertices.length) {
+                vertices = Arrays.copyOf(vertices, size * 2);
+                costs = Arrays.copyOf(costs, size * 2);
+                skippedVertices = Arrays.copyOf(skippedVertices, size * 2);
+                originalEdges = Arrays.copyOf(originalEdges, size * 2);
+            }
+
+            vertices[size] = vertex;
+            costs[size] = cost;
+            skippedVertices[size] = skipped;
+            originalEdges[size] = originalEdge;
+            size++;
+        }
+    }
+}
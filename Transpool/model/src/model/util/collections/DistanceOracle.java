@@ -0,0 +1,75 @@
+package model.util.collections;
+
+import java.util.stream.IntStream;
+
+/**
+ * The costs of the cheapest paths between all the pairs of vertices of a {@link CompressedGraph}, by every cost
+ * function of the snapshot, so that the cost of a path is a single array read.
+ * <p>
+ * The costs of every cost function are packed into one flat array, row by row: the cost from the vertex with
+ * id {@code from} to the vertex with id {@code to} is at {@code from * vertexCount + to}.
+ * Every row is found by a Dijkstra search from its vertex. The rows don't depend on each other, so they are
+ * searched in parallel on the common fork-join pool.
+ * <p>
+ * It takes {@code 8 * vertexCount^2} bytes for every cost function, so it's only meant for small graphs.
+ * Thread-Safe: the table is never modified after it's built. Like its snapshot, it doesn't follow the mutations
+ * of the graph.
+ *
+ * @param <T> Type Parameter for the vertices of the graph.
+ * @param <K> Type Parameter for the edges of the graph.
+ */
+public class DistanceOracle<T, K> {
+    private final CompressedGraph<T, K> graph;
+    private final int vertexCount;
+    private final double[][] costs;
+
+    private DistanceOracle(CompressedGraph<T, K> graph) {
+        this.graph = graph;
+        this.vertexCount = graph.getVertexCount();
+        this.costs = new double[graph.getCostCount()][vertexCount * vertexCount];
+    }
+
+    /**
+     * Computes the costs of all the paths of a snapshot.
+     */
+    public static <T, K> DistanceOracle<T, K> of(CompressedGraph<T, K> graph) {
+        DistanceOracle<T, K> oracle = new DistanceOracle<>(graph);
+
+        IntStream.range(0, oracle.vertexCount).parallel().forEach(from -> {
+            for (int costIndex = 0; costIndex < oracle.costs.length; costIndex++) {
+                graph.getCostsFrom(from, costIndex, oracle.costs[costIndex], from * oracle.vertexCount);
+            }
+        });
+
+        return oracle;
+    }
+
+    /**
+     * @return The snapshot the costs were computed on.
+     */
+    public CompressedGraph<T, K> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Gets the cost of the cheapest path between two vertices.
+     *
+     * @param costIndex The index of the cost function, in the list the snapshot was built with.
+     * @return The cost, or infinity if {@code to} can't be reached from {@code from} or one of them isn't in the snapshot.
+     */
+    public double getCost(int costIndex, T from, T to) {
+        int src = graph.getId(from);
+        int dst = graph.getId(to);
+        if (src == -1 || dst == -1)
+            return Double.POSITIVE_INFINITY;
+
+        return getCost(costIndex, src, dst);
+    }
+
+    /**
+     * Gets the cost of the cheapest path between two vertices, by their ids in the snapshot.
+     */
+    public double getCost(int costIndex, int from, int to) {
+        return costs[costIndex][from * vertexCount + to];
+    }
+}
@@ -2,10 +2,15 @@ package model.util.collections;
 
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToDoubleFunction;
 
 /**
  * *** WARNING! This class is NOT Thread-Safe!! ***
+ * Every vertex knows the edges that point to it as well as the edges that leave it, and the edges are indexed by
+ * their weights, so removing a vertex or an edge only visits the edges it touches.
+ * Reachability is answered by an index of the strongly connected components, built on the first query and kept up to
+ * date as vertices and edges are added, so checking whether a path exists doesn't search.
  * @param <T> Type Parameter for the vertices of the graph. Must override equals() & hashCode()
  * @param <K> Type Parameter for the edges of the graph. Must override equals() & hashCode()
  * @author Jonathan Rozenblat
@@ -13,23 +18,42 @@ import java.util.stream.Collectors;
 public class Graph<T, K> {
     private final Map<T, Vertex<T, K>> vertexMap = new HashMap<>();
 
+    // The edges of every weight: a single edge, or both directions of a bi-directional one.
+    // Lets edges be found and removed by their weight without visiting every vertex.
+    private final Map<K, List<Edge<T, K>>> weight2Edges = new HashMap<>();
+
+    // Counts the mutations of the graph, so snapshots of it can tell they're stale
+    private int version;
+
+    // Null until reachability is first queried, and again after edges are removed, until the next query
+    private ReachabilityIndex<T> reachabilityIndex;
+
     //region Mutate Graph
     public boolean addVertexIfAbsent(T toAdd) {
-        return vertexMap.putIfAbsent(toAdd, new Vertex<>(toAdd)) == null;
+        if (vertexMap.putIfAbsent(toAdd, new Vertex<>(toAdd)) != null)
+            return false;
+
+        if (reachabilityIndex != null)
+            reachabilityIndex.addVertex(toAdd);
+        version++;
+        return true;
     }
 
+    /**
+     * Removes a vertex and the edges that leave it or point to it.
+     * Only the edges of the vertex are visited, so it takes O(degree).
+     */
     public boolean removeVertex(T toRemove) {
-        if (vertexMap.containsKey(toRemove)) {
-            Vertex<T, K> v = vertexMap.remove(toRemove);
-
-            // Remove the literal edges that point to v
-            //vertexMap.values().forEach(vertex -> vertex.outwardEdges.removeIf(edge -> edge.dest.equals(v)));
-            vertexMap.values().forEach(vertex -> vertex.removeEdgeTo(v));
-            v.destroy();
-            return true;
-        }
-
-        return false;
+        Vertex<T, K> v = vertexMap.remove(toRemove);
+        if (v == null)
+            return false;
+
+        new ArrayList<>(v.getInwardEdges()).forEach(this::disconnect);
+        new ArrayList<>(v.getOutwardEdges()).forEach(this::disconnect);
+        v.destroy();
+        reachabilityIndex = null;
+        version++;
+        return true;
     }
 
     public void addEdge(T src, T dst, K weight, boolean isBiDirectional) {
@@ -42,15 +66,30 @@ public class Graph<T, K> {
         Vertex<T, K> srcVertex = vertexMap.get(src);
         Vertex<T, K> dstVertex = vertexMap.get(dst);
 
-        srcVertex.addEdge(dstVertex, weight, isBiDirectional);
+        if (connect(srcVertex, dstVertex, weight) && reachabilityIndex != null)
+            reachabilityIndex.addEdge(src, dst);
+        if (isBiDirectional && connect(dstVertex, srcVertex, weight) && reachabilityIndex != null)
+            reachabilityIndex.addEdge(dst, src);
+        version++;
     }
 
+    /**
+     * Removes the edges of a weight, in both directions if it's bi-directional, in O(1).
+     */
     public void removeEdge(K toRemove) {
-        vertexMap.values().forEach(vertex -> vertex.removeEdge(toRemove));
+        List<Edge<T, K>> edges = weight2Edges.get(toRemove);
+        if (edges == null)
+            return;
+
+        new ArrayList<>(edges).forEach(this::disconnect);
+        reachabilityIndex = null;
+        version++;
     }
 
     private void clearEdgesFromEndpoint(Vertex<T, K> endpoint) {
-        endpoint.clearEdges();
+        new ArrayList<>(endpoint.getOutwardEdges()).forEach(this::disconnect);
+        reachabilityIndex = null;
+        version++;
     }
     //endregion
 
@@ -59,20 +98,15 @@ public class Graph<T, K> {
         return vertexMap.keySet();
     }
 
-    public Set<K> getEdges() {
-        Set<K> weights = new HashSet<>();
-
-        vertexMap.values().forEach(vertex -> {
-            weights.addAll(
-                    // Get edges of vertex
-                    vertex.getOutwardEdges()
-                            // Get weights of edges
-                            .stream().map(Edge::getWeight)
-                            .collect(Collectors.toSet())
-            );
-        });
+    /**
+     * @return A number that changes whenever the graph is mutated.
+     */
+    public int getVersion() {
+        return version;
+    }
 
-        return weights;
+    public Set<K> getEdges() {
+        return new HashSet<>(weight2Edges.keySet());
     }
     //endregion
 
@@ -82,85 +116,228 @@ public class Graph<T, K> {
     }
 
     public boolean doesEdgeExist(K weight) {
-        for (Vertex<T, K> vertex : vertexMap.values()) {
-            if (vertex.hasEdge(weight))
-                return true;
-        }
-
-        return false;
+        return weight2Edges.containsKey(weight);
     }
 
+    /**
+     * Checks whether a vertex can be reached from another, in O(1) once the reachability index is built.
+     * The index is built on the first call, and again on the first call after an edge or a vertex is removed,
+     * in O(V + E) plus O(V²/64) for the sets of the components every component reaches.
+     *
+     * @return True if there is a path from {@code from} to {@code to}. False if one of them does not exist.
+     */
     public boolean doesPathExist(T from, T to) {
-        return getPath(from, to) != null;
+        if (reachabilityIndex == null)
+            reachabilityIndex = ReachabilityIndex.of(this);
+
+        return reachabilityIndex.isReachable(from, to);
     }
 
-    // TODO: Complete Mock
-    public Object getPath(T from, T to) {
-        // If at least one of the vertices do not exist
-        if (!vertexMap.containsKey(from) || !vertexMap.containsKey(to))
-            return null;
+    /**
+     * Finds the path with the least amount of edges between two vertices.
+     *
+     * @param from The vertex the path starts at.
+     * @param to   The vertex the path ends at.
+     * @return The path found, or null if one of the vertices does not exist or if {@code to}
+     * is not reachable from {@code from}.
+     */
+    public GraphPath<T, K> getPath(T from, T to) {
+        return getShortestPath(from, to, weight -> 1);
+    }
 
-        return null;
+    /**
+     * Finds the cheapest path between two vertices using Dijkstra's algorithm.
+     *
+     * @param from     The vertex the path starts at.
+     * @param to       The vertex the path ends at.
+     * @param edgeCost A function that receives the weight of an edge and returns the (non-negative)
+     *                 cost of traveling through it.
+     * @return The cheapest path found, or null if one of the vertices does not exist or if {@code to}
+     * is not reachable from {@code from}.
+     */
+    public GraphPath<T, K> getShortestPath(T from, T to, ToDoubleFunction<? super K> edgeCost) {
+        return getShortestPath(from, to, edgeCost, (vertex, target) -> 0);
     }
-    //endregion
 
-    private static class Vertex<T, K>{
-        private T item;
-        private Set<Edge<T, K>> outwardEdges;
+    /**
+     * Finds the cheapest path between two vertices using the A* algorithm.
+     * The heuristic must be admissible and consistent (never overestimate the cost between two
+     * vertices, and obey the triangle inequality) for the returned path to be the cheapest.
+     * A heuristic that always returns 0 makes this a plain Dijkstra search.
+     *
+     * @param from      The vertex the path starts at.
+     * @param to        The vertex the path ends at.
+     * @param edgeCost  A function that receives the weight of an edge and returns the (non-negative)
+     *                  cost of traveling through it.
+     * @param heuristic A function that receives a vertex and the target vertex and estimates
+     *                  the cost of the cheapest path between them.
+     * @return The cheapest path found, or null if one of the vertices does not exist or if {@code to}
+     * is not reachable from {@code from}.
+     */
+    public GraphPath<T, K> getShortestPath(T from, T to,
+                                           ToDoubleFunction<? super K> edgeCost,
+                                           ToDoubleBiFunction<? super T, ? super T> heuristic) {
+        Vertex<T, K> srcVertex = vertexMap.get(from);
+        Vertex<T, K> dstVertex = vertexMap.get(to);
 
-        public Vertex(T item) {
-            this.item = item;
-            outwardEdges = new HashSet<>();
+        // If at least one of the vertices do not exist
+        if (srcVertex == null || dstVertex == null)
+            return null;
+
+        Map<Vertex<T, K>, Double> costs = new HashMap<>();
+        Map<Vertex<T, K>, Edge<T, K>> reachedBy = new HashMap<>();
+        Map<Vertex<T, K>, Vertex<T, K>> previous = new HashMap<>();
+        Set<Vertex<T, K>> settled = new HashSet<>();
+        PriorityQueue<SearchNode<T, K>> open = new PriorityQueue<>();
+
+        costs.put(srcVertex, 0.0);
+        open.add(new SearchNode<>(srcVertex, 0, heuristic.applyAsDouble(from, to)));
+
+        while (!open.isEmpty()) {
+            SearchNode<T, K> node = open.poll();
+            Vertex<T, K> current = node.vertex;
+
+            // Stale queue entry of a vertex that was already reached more cheaply
+            if (!settled.add(current))
+                continue;
+
+            if (current == dstVertex)
+                return buildPath(srcVertex, dstVertex, previous, reachedBy, node.cost);
+
+            for (Edge<T, K> edge : current.getOutwardEdges()) {
+                Vertex<T, K> next = edge.getDest();
+                if (settled.contains(next))
+                    continue;
+
+                double weightCost = edgeCost.applyAsDouble(edge.getWeight());
+                if (weightCost < 0)
+                    throw new IllegalArgumentException("Edge costs cannot be negative.");
+
+                // An edge with an infinite cost cannot be traveled through
+                if (Double.isInfinite(weightCost))
+                    continue;
+
+                double newCost = node.cost + weightCost;
+                Double knownCost = costs.get(next);
+                if (knownCost == null || newCost < knownCost) {
+                    costs.put(next, newCost);
+                    previous.put(next, current);
+                    reachedBy.put(next, edge);
+                    open.add(new SearchNode<>(next, newCost, newCost + heuristic.applyAsDouble(next.getItem(), to)));
+                }
+            }
         }
 
-        public void destroy() {
-            item = null;
+        return null;
+    }
 
-            for (Edge<T, K> edge : getOutwardEdges()) {
-                edge.disconnect();
+    /**
+     * Walks over every directed edge in the graph.
+     * A bi-directional edge is visited once for each of its directions.
+     *
+     * @param visitor The action to perform on each edge.
+     */
+    public void forEachEdge(EdgeVisitor<? super T, ? super K> visitor) {
+        for (Vertex<T, K> vertex : vertexMap.values()) {
+            for (Edge<T, K> edge : vertex.getOutwardEdges()) {
+                visitor.visit(vertex.getItem(), edge.getDest().getItem(), edge.getWeight());
             }
-
-            outwardEdges = null;
         }
+    }
+    //endregion
 
-        //region Add Edge
-        public void addEdge(Vertex<T, K> to, K edgeValue, boolean isBiDirectional) {
-          addEdge(to, edgeValue);
+    //region Private Methods
+    /**
+     * Adds an edge, unless the source vertex already has an outward edge of the same weight.
+     *
+     * @return True if the edge was added.
+     */
+    private boolean connect(Vertex<T, K> src, Vertex<T, K> dst, K weight) {
+        Edge<T, K> edge = new Edge<>(src, dst, weight);
+        if (src.outwardEdges.putIfAbsent(weight, edge) != null)
+            return false;
+
+        dst.inwardEdges.add(edge);
+        weight2Edges.computeIfAbsent(weight, key -> new ArrayList<>(2)).add(edge);
+        return true;
+    }
 
-            if (isBiDirectional)
-                to.addEdge(this, edgeValue);
-        }
+    /**
+     * Removes an edge from both of its endpoints and from the index of the weights.
+     * The weight is shared by both directions of a bi-directional edge, so the edges are told apart by identity.
+     */
+    private void disconnect(Edge<T, K> edge) {
+        Vertex<T, K> src = edge.getSrc();
+        if (src.outwardEdges.get(edge.getWeight()) != edge)
+            return;
+
+        src.outwardEdges.remove(edge.getWeight());
+        edge.getDest().inwardEdges.remove(edge);
+
+        List<Edge<T, K>> edges = weight2Edges.get(edge.getWeight());
+        edges.removeIf(weightEdge -> weightEdge == edge);
+        if (edges.isEmpty())
+            weight2Edges.remove(edge.getWeight());
+    }
 
-        private void addEdge(Vertex<T, K> to, K edgeValue) {
-            getOutwardEdges().add(new Edge<>(to, edgeValue));
+    private static <T, K> GraphPath<T, K> buildPath(Vertex<T, K> srcVertex, Vertex<T, K> dstVertex,
+                                                    Map<Vertex<T, K>, Vertex<T, K>> previous,
+                                                    Map<Vertex<T, K>, Edge<T, K>> reachedBy,
+                                                    double cost) {
+        LinkedList<T> vertices = new LinkedList<>();
+        LinkedList<K> edges = new LinkedList<>();
+
+        Vertex<T, K> current = dstVertex;
+        vertices.addFirst(current.getItem());
+        while (current != srcVertex) {
+            edges.addFirst(reachedBy.get(current).getWeight());
+            current = previous.get(current);
+            vertices.addFirst(current.getItem());
         }
-        //endregion
 
-        public void removeEdgeTo(Vertex<T, K> vertex) {
-            getOutwardEdges().removeIf(edge -> edge.getDest().equals(vertex));
-        }
+        return new GraphPath<>(new ArrayList<>(vertices), new ArrayList<>(edges), cost);
+    }
+    //endregion
+
+    @FunctionalInterface
+    public interface EdgeVisitor<T, K> {
+        void visit(T src, T dst, K weight);
+    }
 
-        public void removeEdge(K edgeToRemove) {
-            Edge<T, K> toRemove = new Edge<>(null, edgeToRemove);
-            getOutwardEdges().remove(toRemove);
+    private static class SearchNode<T, K> implements Comparable<SearchNode<T, K>> {
+        private final Vertex<T, K> vertex;
+        private final double cost;
+        private final double estimatedTotalCost;
+
+        private SearchNode(Vertex<T, K> vertex, double cost, double estimatedTotalCost) {
+            this.vertex = vertex;
+            this.cost = cost;
+            this.estimatedTotalCost = estimatedTotalCost;
         }
 
-        public void clearEdges() {
-            getOutwardEdges().clear();
+        @Override
+        public int compareTo(SearchNode<T, K> other) {
+            return Double.compare(estimatedTotalCost, other.estimatedTotalCost);
         }
+    }
 
-        private Edge<T, K> getEdgeByWeight(K weight) {
-            Edge<T, K> toGet = new Edge<>(null, weight);
-            for (Edge<T, K> outwardEdge : getOutwardEdges()) {
-                if (outwardEdge.equals(toGet))
-                    return outwardEdge;
-            }
+    private static class Vertex<T, K>{
+        private T item;
+        // By weight, since a vertex has at most one outward edge of every weight
+        private Map<K, Edge<T, K>> outwardEdges;
+        // By identity, since edges from different vertices may share a weight
+        private Set<Edge<T, K>> inwardEdges;
 
-            return null;
+        public Vertex(T item) {
+            this.item = item;
+            outwardEdges = new HashMap<>();
+            inwardEdges = Collections.newSetFromMap(new IdentityHashMap<>());
         }
 
-        private boolean hasEdge(K weight) {
-            return getEdgeByWeight(weight) != null;
+        public void destroy() {
+            item = null;
+            outwardEdges = null;
+            inwardEdges = null;
         }
 
         //region Getters
@@ -168,8 +345,12 @@ public class Graph<T, K> {
             return item;
         }
 
-        private Set<Edge<T, K>> getOutwardEdges() {
-            return outwardEdges;
+        private Collection<Edge<T, K>> getOutwardEdges() {
+            return outwardEdges.values();
+        }
+
+        private Set<Edge<T, K>> getInwardEdges() {
+            return inwardEdges;
         }
         //endregion
 
@@ -194,28 +375,21 @@ public class Graph<T, K> {
     }
 
     private static class Edge<T, K>{
-        private Vertex<T, K> dest;
-        private K weight;
+        private final Vertex<T, K> src;
+        private final Vertex<T, K> dest;
+        private final K weight;
 
-        private Edge(Vertex<T, K> dest, K value) {
+        private Edge(Vertex<T, K> src, Vertex<T, K> dest, K value) {
+            this.src = src;
             this.dest = dest;
             this.weight = value;
         }
 
-        //region Destroy Edge
-        private static void disconnectEdge(Edge<?, ?> toDisconnect) {
-            toDisconnect.getDest().outwardEdges.remove(toDisconnect);
-
-            toDisconnect.dest = null;
-            toDisconnect.weight = null;
+        //region Getters
+        private Vertex<T, K> getSrc() {
+            return src;
         }
 
-        private void disconnect() {
-            disconnectEdge(this);
-        }
-        //endregion
-
-        //region Getters
         private Vertex<T, K> getDest() {
             return dest;
         }
@@ -225,24 +399,5 @@ public class Graph<T, K> {
         }
 
         //endregion
-
-        //region Equals & HashCode
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof Edge)) return false;
-
-            Edge<?, ?> edge = (Edge<?, ?>) o;
-
-            return getWeight() != null ? getWeight().equals(edge.getWeight()) : edge.getWeight() == null;
-        }
-
-        @Override
-        public int hashCode() {
-            return getWeight() != null ? getWeight().hashCode() : 0;
-        }
-
-        //endregion
     }
 }
@@ -0,0 +1,55 @@
+package model.util.collections;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable result of a path query on a {@link Graph}.
+ * Holds the vertices of the path in the order of travel, the edges between them
+ * and the total cost of the path according to the cost function it was searched by.
+ *
+ * @param <T> Type Parameter for the vertices of the path.
+ * @param <K> Type Parameter for the edges of the path.
+ */
+public class GraphPath<T, K> {
+    private final List<T> vertices;
+    private final List<K> edges;
+    private final double cost;
+
+    public GraphPath(List<T> vertices, List<K> edges, double cost) {
+        this.vertices = Collections.unmodifiableList(vertices);
+        this.edges = Collections.unmodifiableList(edges);
+        this.cost = cost;
+    }
+
+    //region Getters
+    public List<T> getVertices() {
+        return vertices;
+    }
+
+    public List<K> getEdges() {
+        return edges;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public T getSource() {
+        return vertices.get(0);
+    }
+
+    public T getDestination() {
+        return vertices.get(vertices.size() - 1);
+    }
+    //endregion
+
+    public boolean isEmpty() {
+        return edges.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return vertices.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package model.util.collections;
+
+import model.Interfaces.IdentifiableTranspoolEntity;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A collection of entities stored in a growable array at the index of their id.
+ * Since the ids are dense, the array has few empty slots, getting an entity by its id is a single
+ * array access, and iterating goes in order of id without any sorting.
+ * <p>
+ * Thread-Safe: the array is made of fixed size chunks, so growing it only copies the directory of the
+ * chunks, and an entity is put into its slot with a CAS that can't be lost to a concurrent growth.
+ * Iteration is weakly consistent, like the iteration of the concurrent collections.
+ *
+ * @param <T> The type of the stored entities. An id can be held by a single entity at a time.
+ */
+public class IdIndexedStore<T extends IdentifiableTranspoolEntity> extends AbstractCollection<T> {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Replaced (never modified) when a chunk is added, so readers always see fully built directories
+    private volatile AtomicReferenceArray<T>[] chunks;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger maxId = new AtomicInteger();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public IdIndexedStore() {
+        chunks = new AtomicReferenceArray[0];
+    }
+
+    /**
+     * Stores an entity at the slot of its id.
+     *
+     * @return True if the entity was added, false if its id is already held by an entity.
+     */
+    @Override
+    public boolean add(T entity) {
+        int id = entity.getId();
+        if (id < 0)
+            throw new IllegalArgumentException("Can't store an entity with a negative id.");
+
+        if (!getChunk(id, true).compareAndSet(id & CHUNK_MASK, null, entity))
+            return false;
+
+        size.incrementAndGet();
+        maxId.accumulateAndGet(id, Math::max);
+        return true;
+    }
+
+    /**
+     * @return The entity with the given id, or null if there is none.
+     */
+    public T get(int id) {
+        AtomicReferenceArray<T> chunk = getChunk(id, false);
+        return chunk == null ? null : chunk.get(id & CHUNK_MASK);
+    }
+
+    public boolean containsId(int id) {
+        return get(id) != null;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof IdentifiableTranspoolEntity))
+            return false;
+
+        T entity = get(((IdentifiableTranspoolEntity) o).getId());
+        return entity != null && entity.equals(o);
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return An iterator over the entities in order of id.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private final int lastId = maxId.get();
+            private int nextId = 0;
+            private T next = advance();
+
+            private T advance() {
+                while (nextId <= lastId) {
+                    T entity = get(nextId++);
+                    if (entity != null)
+                        return entity;
+                }
+
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+
+                T current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    //region Private Methods
+    private AtomicReferenceArray<T> getChunk(int id, boolean createIfAbsent) {
+        if (id < 0)
+            return null;
+
+        int index = id >>> CHUNK_BITS;
+        AtomicReferenceArray<T>[] current = chunks;
+        if (index < current.length && current[index] != null)
+            return current[index];
+
+        return createIfAbsent ? createChunk(index) : null;
+    }
+
+    private synchronized AtomicReferenceArray<T> createChunk(int index) {
+        AtomicReferenceArray<T>[] current = chunks;
+        if (index < current.length && current[index] != null)
+            return current[index];
+
+        int length = index < current.length ? current.length : Math.max(index + 1, current.length * 2);
+        AtomicReferenceArray<T>[] grown = Arrays.copyOf(current, length);
+        grown[index] = new AtomicReferenceArray<>(CHUNK_SIZE);
+        chunks = grown;
+
+        return grown[index];
+    }
+    //endregion
+}
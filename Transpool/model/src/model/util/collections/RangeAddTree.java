@@ -0,0 +1,114 @@
+package model.util.collections;
+
+/**
+ * *** WARNING! This class is NOT Thread-Safe!! ***
+ * A segment tree over a fixed amount of int values, all starting at 0, that adds a value to a whole range
+ * and gets the maximum or the minimum of a range, each in O(log n).
+ * The additions are pushed down to the children of a node only when a query or an update passes through it.
+ * All ranges are half open: {@code [from, to)}.
+ */
+public class RangeAddTree {
+    private final int size;
+    private final int[] max;
+    private final int[] min;
+    private final int[] pending;
+
+    public RangeAddTree(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("The tree must hold at least one value.");
+
+        this.size = size;
+        this.max = new int[4 * size];
+        this.min = new int[4 * size];
+        this.pending = new int[4 * size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void add(int from, int to, int delta) {
+        checkRange(from, to);
+        if (from < to)
+            add(1, 0, size, from, to, delta);
+    }
+
+    /**
+     * @return The maximum of the range, or {@link Integer#MIN_VALUE} if it's empty.
+     */
+    public int getMax(int from, int to) {
+        checkRange(from, to);
+        return from < to ? getMax(1, 0, size, from, to) : Integer.MIN_VALUE;
+    }
+
+    /**
+     * @return The minimum of the range, or {@link Integer#MAX_VALUE} if it's empty.
+     */
+    public int getMin(int from, int to) {
+        checkRange(from, to);
+        return from < to ? getMin(1, 0, size, from, to) : Integer.MAX_VALUE;
+    }
+
+    //region Private Methods
+    private void add(int node, int nodeFrom, int nodeTo, int from, int to, int delta) {
+        if (to <= nodeFrom || nodeTo <= from)
+            return;
+
+        if (from <= nodeFrom && nodeTo <= to) {
+            apply(node, delta);
+            return;
+        }
+
+        pushDown(node);
+        int middle = (nodeFrom + nodeTo) >>> 1;
+        add(2 * node, nodeFrom, middle, from, to, delta);
+        add(2 * node + 1, middle, nodeTo, from, to, delta);
+        max[node] = Math.max(max[2 * node], max[2 * node + 1]);
+        min[node] = Math.min(min[2 * node], min[2 * node + 1]);
+    }
+
+    private int getMax(int node, int nodeFrom, int nodeTo, int from, int to) {
+        if (to <= nodeFrom || nodeTo <= from)
+            return Integer.MIN_VALUE;
+
+        if (from <= nodeFrom && nodeTo <= to)
+            return max[node];
+
+        pushDown(node);
+        int middle = (nodeFrom + nodeTo) >>> 1;
+        return Math.max(getMax(2 * node, nodeFrom, middle, from, to), getMax(2 * node + 1, middle, nodeTo, from, to));
+    }
+
+    private int getMin(int node, int nodeFrom, int nodeTo, int from, int to) {
+        if (to <= nodeFrom || nodeTo <= from)
+            return Integer.MAX_VALUE;
+
+        if (from <= nodeFrom && nodeTo <= to)
+            return min[node];
+
+        pushDown(node);
+        int middle = (nodeFrom + nodeTo) >>> 1;
+        return Math.min(getMin(2 * node, nodeFrom, middle, from, to), getMin(2 * node + 1, middle, nodeTo, from, to));
+    }
+
+    private void apply(int node, int delta) {
+        max[node] += delta;
+        min[node] += delta;
+        pending[node] += delta;
+    }
+
+    private void pushDown(int node) {
+        if (pending[node] == 0)
+            return;
+
+        apply(2 * node, pending[node]);
+        apply(2 * node + 1, pending[node]);
+        pending[node] = 0;
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > size || from > to)
+            throw new IndexOutOfBoundsException(String.format("Range [%d, %d) is out of [0, %d).", from, to, size));
+    }
+    //endregion
+}
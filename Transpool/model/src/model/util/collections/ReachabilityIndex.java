@@ -0,0 +1,212 @@
+package model.util.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers whether a vertex of a {@link Graph} can be reached from another in constant time.
+ * <p>
+ * The vertices are grouped into the strongly connected components of the graph: vertices that can all reach each
+ * other. Every component keeps the set of components it can reach, itself included, as a bit set over their ids,
+ * so a query is two lookups of components and a bit test. Building it is a single pass of Tarjan's algorithm,
+ * which finishes every component after all the components it can reach, so their sets are ready to be merged in.
+ * <p>
+ * Adding an edge updates the index instead of rebuilding it: the components that could reach its source now reach
+ * everything its destination reaches, and if its destination could already reach its source, the components on the
+ * new cycle are merged into one. Removing an edge can split components, which can't be told without a search,
+ * so the graph drops the index then and builds it again on the next query.
+ * <p>
+ * The sets take a bit for every pair of components, so it's meant for graphs of up to tens of thousands of them.
+ *
+ * @param <T> Type Parameter for the vertices of the graph.
+ */
+class ReachabilityIndex<T> {
+    private static final int UNVISITED = -1;
+
+    private final Map<T, Integer> vertex2Component;
+    // By component id. Merged components leave their ids behind with null members and reachable components.
+    private final List<List<T>> componentVertices;
+    private final List<BitSet> reachableComponents;
+
+    private ReachabilityIndex() {
+        vertex2Component = new HashMap<>();
+        componentVertices = new ArrayList<>();
+        reachableComponents = new ArrayList<>();
+    }
+
+    /**
+     * Builds the index of a graph, with an iterative Tarjan's algorithm.
+     */
+    static <T> ReachabilityIndex<T> of(Graph<T, ?> graph) {
+        ReachabilityIndex<T> index = new ReachabilityIndex<>();
+
+        List<T> vertices = new ArrayList<>(graph.getVertices());
+        Map<T, Integer> vertex2Id = new HashMap<>();
+        for (T vertex : vertices) {
+            vertex2Id.put(vertex, vertex2Id.size());
+        }
+
+        // The edges in compressed sparse row form, as in CompressedGraph
+        int vertexCount = vertices.size();
+        int[] offsets = new int[vertexCount + 1];
+        graph.forEachEdge((src, dst, weight) -> offsets[vertex2Id.get(src) + 1]++);
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            offsets[vertex + 1] += offsets[vertex];
+        }
+
+        int[] targets = new int[offsets[vertexCount]];
+        int[] nextEdge = Arrays.copyOf(offsets, vertexCount);
+        graph.forEachEdge((src, dst, weight) -> targets[nextEdge[vertex2Id.get(src)]++] = vertex2Id.get(dst));
+
+        int[] order = new int[vertexCount];
+        int[] low = new int[vertexCount];
+        int[] components = new int[vertexCount];
+        boolean[] isOnStack = new boolean[vertexCount];
+        int[] stack = new int[vertexCount];
+        int[] callStack = new int[vertexCount];
+        Arrays.fill(order, UNVISITED);
+        System.arraycopy(offsets, 0, nextEdge, 0, vertexCount);
+
+        int visited = 0;
+        int stackSize = 0;
+        for (int root = 0; root < vertexCount; root++) {
+            if (order[root] != UNVISITED)
+                continue;
+
+            int depth = 0;
+            callStack[0] = root;
+            order[root] = low[root] = visited++;
+            stack[stackSize++] = root;
+            isOnStack[root] = true;
+
+            while (depth >= 0) {
+                int vertex = callStack[depth];
+                if (nextEdge[vertex] < offsets[vertex + 1]) {
+                    int next = targets[nextEdge[vertex]++];
+                    if (order[next] == UNVISITED) {
+                        order[next] = low[next] = visited++;
+                        stack[stackSize++] = next;
+                        isOnStack[next] = true;
+                        callStack[++depth] = next;
+                    } else if (isOnStack[next]) {
+                        low[vertex] = Math.min(low[vertex], order[next]);
+                    }
+
+                    continue;
+                }
+
+                // All the edges of the vertex were visited. If it's the root of a component, the component is on the
+                // stack above it, and every component it leads to other than itself was already finished.
+                if (low[vertex] == order[vertex]) {
+                    int component = index.componentVertices.size();
+                    List<T> members = new ArrayList<>();
+                    BitSet reachable = new BitSet();
+                    reachable.set(component);
+                    index.componentVertices.add(members);
+                    index.reachableComponents.add(reachable);
+
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        isOnStack[member] = false;
+                        components[member] = component;
+                        members.add(vertices.get(member));
+                        index.vertex2Component.put(vertices.get(member), component);
+                    } while (member != vertex);
+
+                    for (int i = stackSize; i < stackSize + members.size(); i++) {
+                        int memberVertex = stack[i];
+                        for (int edge = offsets[memberVertex]; edge < offsets[memberVertex + 1]; edge++) {
+                            int target = components[targets[edge]];
+                            // A component that is already in the set brought everything it reaches with it
+                            if (!reachable.get(target))
+                                reachable.or(index.reachableComponents.get(target));
+                        }
+                    }
+                }
+
+                if (--depth >= 0) {
+                    int parent = callStack[depth];
+                    low[parent] = Math.min(low[parent], low[vertex]);
+                }
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * @return True if there's a path from {@code from} to {@code to}. False if one of them isn't in the index.
+     */
+    boolean isReachable(T from, T to) {
+        Integer fromComponent = vertex2Component.get(from);
+        Integer toComponent = vertex2Component.get(to);
+        if (fromComponent == null || toComponent == null)
+            return false;
+
+        return reachableComponents.get(fromComponent).get(toComponent);
+    }
+
+    /**
+     * Adds a vertex without edges, in a component of its own.
+     */
+    void addVertex(T vertex) {
+        int component = componentVertices.size();
+        List<T> members = new ArrayList<>();
+        members.add(vertex);
+        BitSet reachable = new BitSet();
+        reachable.set(component);
+
+        componentVertices.add(members);
+        reachableComponents.add(reachable);
+        vertex2Component.put(vertex, component);
+    }
+
+    /**
+     * Adds an edge between two vertices of the index.
+     * Takes O(1) if {@code dst} could already be reached from {@code src}, and O(components²/64) at worst otherwise.
+     */
+    void addEdge(T src, T dst) {
+        int srcComponent = vertex2Component.get(src);
+        int dstComponent = vertex2Component.get(dst);
+        if (reachableComponents.get(srcComponent).get(dstComponent))
+            return;
+
+        BitSet dstReachable = reachableComponents.get(dstComponent);
+        for (BitSet reachable : reachableComponents) {
+            if (reachable != null && reachable.get(srcComponent))
+                reachable.or(dstReachable);
+        }
+
+        if (dstReachable.get(srcComponent))
+            mergeCycle(srcComponent);
+    }
+
+    //region Private Methods
+    /**
+     * Merges the components that a component can reach and that can reach it back into it.
+     */
+    private void mergeCycle(int component) {
+        BitSet reachable = reachableComponents.get(component);
+        List<T> members = componentVertices.get(component);
+
+        for (int other = reachable.nextSetBit(0); other >= 0; other = reachable.nextSetBit(other + 1)) {
+            BitSet otherReachable = reachableComponents.get(other);
+            if (other == component || otherReachable == null || !otherReachable.get(component))
+                continue;
+
+            for (T vertex : componentVertices.get(other)) {
+                vertex2Component.put(vertex, component);
+                members.add(vertex);
+            }
+
+            componentVertices.set(other, null);
+            reachableComponents.set(other, null);
+        }
+    }
+    //endregion
+}
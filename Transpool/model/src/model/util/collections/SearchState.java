@@ -0,0 +1,143 @@
+package model.util.collections;
+
+import java.util.Arrays;
+
+/**
+ * The arrays of a search, allocated once per thread and reused by all its searches.
+ * Every search gets a new stamp, so the arrays don't have to be cleared between searches: a vertex whose stamp
+ * isn't the current one wasn't reached by the current search.
+ * The open vertices are kept in an indexed binary heap by their estimated total cost.
+ */
+class SearchState {
+    // Read by the searches directly, by vertex id: the cost a vertex was reached at and the edge it was reached by
+    final double[] costs;
+    final int[] reachedBy;
+    // A queue for searches that don't need a heap
+    final int[] queue;
+
+    private final double[] estimates;
+    private final int[] reachedStamps;
+    private final int[] settledStamps;
+    private final int[] heap;
+    private final int[] heapPositions;
+    private int heapSize;
+    private int stamp;
+
+    SearchState(int vertexCount) {
+        costs = new double[vertexCount];
+        reachedBy = new int[vertexCount];
+        queue = new int[vertexCount];
+        estimates = new double[vertexCount];
+        reachedStamps = new int[vertexCount];
+        settledStamps = new int[vertexCount];
+        heap = new int[vertexCount];
+        heapPositions = new int[vertexCount];
+    }
+
+    void start() {
+        heapSize = 0;
+        if (++stamp == 0) {
+            // The stamps wrapped around, so old stamps could pass for new ones
+            Arrays.fill(reachedStamps, 0);
+            Arrays.fill(settledStamps, 0);
+            stamp = 1;
+        }
+    }
+
+    boolean isReached(int vertex) {
+        return reachedStamps[vertex] == stamp;
+    }
+
+    boolean isSettled(int vertex) {
+        return settledStamps[vertex] == stamp;
+    }
+
+    /**
+     * Marks a vertex as reached, without opening it.
+     */
+    void mark(int vertex) {
+        reachedStamps[vertex] = stamp;
+    }
+
+    void reach(int vertex, double cost, int edge, double heuristic) {
+        reachedStamps[vertex] = stamp;
+        costs[vertex] = cost;
+        estimates[vertex] = cost + heuristic;
+        reachedBy[vertex] = edge;
+
+        heap[heapSize] = vertex;
+        heapPositions[vertex] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    /**
+     * Lowers the cost of a vertex that is still open. Its heuristic part of the estimate stays the same.
+     */
+    void improve(int vertex, double cost, int edge) {
+        estimates[vertex] -= costs[vertex] - cost;
+        costs[vertex] = cost;
+        reachedBy[vertex] = edge;
+        siftUp(heapPositions[vertex]);
+    }
+
+    boolean isOpenEmpty() {
+        return heapSize == 0;
+    }
+
+    /**
+     * @return The lowest estimated total cost of the open vertices. The open vertices mustn't be empty.
+     */
+    double peekOpenEstimate() {
+        return estimates[heap[0]];
+    }
+
+    int pollOpen() {
+        int vertex = heap[0];
+        settledStamps[vertex] = stamp;
+
+        heap[0] = heap[--heapSize];
+        heapPositions[heap[0]] = 0;
+        siftDown(0);
+
+        return vertex;
+    }
+
+    private void siftUp(int position) {
+        int vertex = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (estimates[heap[parent]] <= estimates[vertex])
+                break;
+
+            moveTo(heap[parent], position);
+            position = parent;
+        }
+
+        moveTo(vertex, position);
+    }
+
+    private void siftDown(int position) {
+        int vertex = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize)
+                break;
+
+            if (child + 1 < heapSize && estimates[heap[child + 1]] < estimates[heap[child]])
+                child++;
+
+            if (estimates[vertex] <= estimates[heap[child]])
+                break;
+
+            moveTo(heap[child], position);
+            position = child;
+        }
+
+        moveTo(vertex, position);
+    }
+
+    private void moveTo(int vertex, int position) {
+        heap[position] = vertex;
+        heapPositions[vertex] = position;
+    }
+}
@@ -4,13 +4,15 @@ import engine.Engine;
 import model.*;
 import model.CustomExceptions.FormattedMessageException;
 import model.CustomExceptions.InvalidInputException;
+import model.CustomExceptions.MatchConflictException;
 import model.CustomExceptions.RoadDoesNotExistException;
 import model.CustomExceptions.StationDoesNotExistException;
+import model.Enums.MatchCriterion;
 import model.Enums.UserTransitionType;
 import model.Interfaces.IEngine;
-import model.Interfaces.IdentifiableTranspoolEntity;
 import model.Interfaces.NamedTranspoolEntity;
 import model.Interfaces.TranspoolEntity;
+import model.util.AbsoluteTime;
 
 import javax.naming.OperationNotSupportedException;
 import javax.xml.bind.JAXBException;
@@ -62,9 +64,8 @@ public class DialogManager {
     private static List<TripOffer> getAllTripOffers() {
         List<TripOffer> tripOffers;
         try {
-            tripOffers = engine.getAllTripOffers().stream()
-                    .sorted(Comparator.comparingInt(TripOffer::getId))
-                    .collect(Collectors.toList());
+            // The offers are already in order of id
+            tripOffers = new ArrayList<>(engine.getAllTripOffers());
         } catch (OperationNotSupportedException e) {
             System.out.println(e.getMessage());
             return null;
@@ -74,15 +75,8 @@ public class DialogManager {
     }
 
     private static List<TripRequest> getAllTripRequests() throws OperationNotSupportedException {
-        return engine.getAllTripRequests().stream()
-                .sorted(Comparator.comparingInt(TripRequest::getId))
-                .collect(Collectors.toList());
-    }
-
-    private static List<? extends IdentifiableTranspoolEntity> sortEntitiesById(Collection<? extends IdentifiableTranspoolEntity> entities) {
-        return entities.stream()
-                .sorted(Comparator.comparingInt(IdentifiableTranspoolEntity::getId))
-                .collect(Collectors.toList());
+        // The requests are already in order of id
+        return new ArrayList<>(engine.getAllTripRequests());
     }
 
     private static void printFormattedTripOffers(TripOffer offer) {
@@ -91,7 +85,7 @@ public class DialogManager {
         System.out.print("The path of the trip is: ");
         printStationsPath(offer.getStationsInTrip());
         printfln("The price of the trip is %d ILS.", offer.getTripPrice());
-        printfln("Departure time: %1$tH:%1$tM O'clock.", offer.getTiming().getTime());
+        printfln("Departure time: day %d, %2$tH:%2$tM O'clock, %3$s.", offer.getTiming().getDay(), offer.getTiming().getTime(), offer.getTiming().getRepetitionRate());
         printfln("Arrival time: %1$tH:%1$tM O'clock.", offer.getArrivalTime());
         printfln("Remaining passengers capacity: %d", offer.getRemainingPassengersCapacity());
         printUserSwitchesInTrip(offer);
@@ -145,13 +139,16 @@ public class DialogManager {
         printfln("The requesting user's name is %s.", request.getRequestingUser().getName());
         printfln("Origin: %s", request.getWantedSourceStation().getName());
         printfln("Destination: %s", request.getWantedDestStation().getName());
-        printfln("Wanted departure time: %1$tH:%1$tM O'clock.", request.getWantedTripStartTime());
+        printfln("Wanted departure time: day %d, %2$tH:%2$tM O'clock, give or take %3$d minutes.",
+                request.getWantedTripStartDay(), request.getWantedTripStartTime(), request.getDepartureFlexibility());
+        if (request.hasArrivalDeadline())
+            printfln("Wanted arrival by: day %d, %2$tH:%2$tM O'clock.", request.getWantedTripEndDay(), request.getWantedTripEndTime());
     }
 
     private static List<TripRequest> getUnmatchedTripRequests() {
         List<TripRequest> unmatchedRequests;
         try {
-            unmatchedRequests = (List<TripRequest>)sortEntitiesById(engine.getUnmatchedTripRequests());
+            unmatchedRequests = new ArrayList<>(engine.getUnmatchedTripRequests());
         } catch (OperationNotSupportedException e) {
             System.out.println(e.getMessage());
             return null;
@@ -165,17 +162,60 @@ public class DialogManager {
         return unmatchedRequests;
     }
 
-    private static void printMatchesDetails(TripRequest request, List<TripOffer> matches, int maxMatchesToPresent) {
-        for (int i = 0; i < maxMatchesToPresent && i < matches.size(); i++) {
-            TripOffer match = matches.get(i);
+    private static void printMatchesDetails(TripRequest request, List<TripOffer> matches) {
+        for (TripOffer match : matches) {
             printfln("Trip offer number %d:", match.getId());
             printfln("\tThe trip organizer's name is %s.", match.getOfferingUserName());
             printfln("\tThe price of the trip is %d ILS.", TripRequest.getTripPrice(request, match));
+            printfln("\tDeparture time: %1$tH:%1$tM O'clock.", AbsoluteTime.toLocalTime(TripRequest.getAbsoluteDepartureTime(request, match)));
             printfln("\tArrival time: %1$tH:%1$tM O'clock.", TripRequest.getArrivalTime(request, match));
             printfln("\tAverage gas usage: %1.3f Km per Liter.", TripRequest.getAvgGasUsage(request, match));
             System.out.println();
         }
     }
+
+    private static MatchRanking getMatchRankingInput() throws InvalidInputException {
+        System.out.println("Choose what the matches should be ranked by (Enter the number of option):");
+        printMatchCriteria();
+        int weightedMixOption = MatchCriterion.getValuesCount() + 1;
+        printfln("%d.\tA weighted mix of all of the above.", weightedMixOption);
+
+        int option = getIntInput();
+        if (MatchCriterion.isValueInRange(option - 1))
+            return MatchRanking.by(MatchCriterion.values()[option - 1]);
+
+        if (option != weightedMixOption)
+            throw new InvalidInputException(
+                    "Invalid input.\nInput can only contain numbers between 1 and %d.\n",
+                    weightedMixOption
+            );
+
+        System.out.println("Enter the weight of every criterion (Every ILS, minute and milliliter of gas per 100 Km costs its weight):");
+        MatchRanking ranking = new MatchRanking();
+        for (MatchCriterion criterion : MatchCriterion.values()) {
+            int weight = getIntInput(criterion.name() + ":\t");
+            if (weight < 0)
+                throw new InvalidInputException("Invalid input.\nWeights can't be negative.\n");
+
+            ranking.withWeight(criterion, weight);
+        }
+
+        return ranking;
+    }
+
+    private static void printItinerary(Itinerary itinerary) {
+        printfln("Arrival time: day %d, %2$tH:%2$tM O'clock.",
+                AbsoluteTime.getDay(itinerary.getArrivalTime()), AbsoluteTime.toLocalTime(itinerary.getArrivalTime()));
+        printfln("Transfers: %d", itinerary.getTransfersCount());
+        printfln("The price of the trip is %d ILS.", itinerary.getTripPrice());
+
+        for (Itinerary.Leg leg : itinerary.getLegs()) {
+            printfln("\tTrip offer number %d, driven by %s:", leg.getOffer().getId(), leg.getOffer().getOfferingUserName());
+            printfln("\t\tFrom %s at %2$tH:%2$tM to %3$s at %4$tH:%4$tM.",
+                    leg.getFromStation().getName(), leg.getWhenDeparting(),
+                    leg.getToStation().getName(), leg.getWhenArriving());
+        }
+    }
     //endregion
 
     // Command 1 Entry
@@ -208,10 +248,25 @@ public class DialogManager {
                     "Please enter the name of your destination station:"
             );
 
-            int deptHour = getIntInput("When would you like to depart?\nHour (0-23):\t");
+            int deptDay = getIntInput("When would you like to depart?\nDay:\t");
+            int deptHour = getIntInput("Hour (0-23):\t");
             int deptMinute = getIntInput("Minute (Would be rounded to the closest product of 5):\t");
+            int flexibility = getIntInput(String.format(
+                    "How many minutes earlier or later could you depart? (0-%d)", TripRequest.MAX_DEPARTURE_FLEXIBILITY));
+            boolean hasArrivalDeadline = getYesNoInput("Do you have to arrive by a certain time?");
+            int arrivalDay = 0, arrivalHour = 0, arrivalMinute = 0;
+            if (hasArrivalDeadline) {
+                arrivalDay = getIntInput("When do you have to arrive by?\nDay:\t");
+                arrivalHour = getIntInput("Hour (0-23):\t");
+                arrivalMinute = getIntInput("Minute (0-59):\t");
+            }
+            boolean agreesToStationExchange = getYesNoInput("Would you agree to switch between trips at stations on the way?");
 
-            engine.postTripRequest(owner, srcStation, dstStation, deptHour, deptMinute);
+            if (hasArrivalDeadline)
+                engine.postTripRequest(owner, srcStation, dstStation, deptDay, deptHour, deptMinute, flexibility,
+                        arrivalDay, arrivalHour, arrivalMinute, agreesToStationExchange);
+            else
+                engine.postTripRequest(owner, srcStation, dstStation, deptDay, deptHour, deptMinute, flexibility, agreesToStationExchange);
             System.out.println("Your Trip Request has been posted!\n");
 
         } catch (InvalidInputException | OperationNotSupportedException | StationDoesNotExistException e) {
@@ -220,7 +275,9 @@ public class DialogManager {
             System.out.println(
                     EXCEPTION_MSG +
                             "Invalid input.\n" +
-                            "Hours must be in the range of 0 to 23 and minutes must be in the range of 0 to 59.\n"
+                            "Days can't be negative, hours must be in the range of 0 to 23 and minutes must be in the range of 0 to 59.\n" +
+                            String.format("The flexibility must be in the range of 0 to %d minutes, ", TripRequest.MAX_DEPARTURE_FLEXIBILITY) +
+                            "and the arrival must be after the departure.\n"
             );
         }
     }
@@ -238,8 +295,8 @@ public class DialogManager {
             String owner = getNonEmptyStringInput("\nPlease enter your name:");
             List<String> stationNames = enterStationNames("Enter stations to travel to (Enter 0 to stop):");
 
-            int deptDay = 0;
-            int deptHour = getIntInput("When would you like to depart?\nHour (0-23):\t");
+            int deptDay = getIntInput("When would you like to depart?\nDay:\t");
+            int deptHour = getIntInput("Hour (0-23):\t");
             int deptMinute = getIntInput("Minute (Would be rounded to the closest product of 5):\t");
 
             System.out.println("Choose when and if the trip should be repeated (Enter the number of option):");
@@ -248,8 +305,17 @@ public class DialogManager {
             int PPK = getIntInput("Enter your Price Per Km:");
             int capacity = getIntInput("Enter your vehicle's capacity (don't count the driver):");
 
-            engine.postTripOffer(owner, stationNames, deptDay, deptHour, deptMinute, repetitionRate, PPK, capacity);
-            System.out.println("Your Trip Request has been posted!\n");
+            List<TripRequest> servableRequests =
+                    engine.postTripOffer(owner, stationNames, deptDay, deptHour, deptMinute, repetitionRate, PPK, capacity);
+            System.out.println("Your Trip Offer has been posted!\n");
+
+            if (!servableRequests.isEmpty()) {
+                printfln("Your trip can take %d of the pending trip requests:", servableRequests.size());
+                for (TripRequest request : servableRequests) {
+                    printFormattedUnmatchedTripRequest(request);
+                    System.out.println();
+                }
+            }
 
         } catch (InvalidInputException | OperationNotSupportedException | StationDoesNotExistException | RoadDoesNotExistException e) {
             System.out.println(EXCEPTION_MSG + e.getMessage() + '\n');
@@ -257,7 +323,7 @@ public class DialogManager {
             System.out.println(
                     EXCEPTION_MSG +
                             "Invalid input.\n" +
-                            "Hours must be in the range of 0 to 23 and minutes must be in the range of 0 to 59.\n"
+                            "Days can't be negative, hours must be in the range of 0 to 23 and minutes must be in the range of 0 to 59.\n"
             );
         }
     }
@@ -320,15 +386,21 @@ public class DialogManager {
         try {
             selectedRequestId = getIntInput("Select the request you want to match to an offer:");
             maxMatchesWanted = getIntInput("Enter the max number of matches you would like to get for this request.");
-            chosenRequest =
-                    requests.stream()
-                            .filter(request -> request.getId() == selectedRequestId)
-                            .collect(Collectors.toList());
+            if (maxMatchesWanted <= 0) {
+                System.out.println("The number of matches must be positive.");
+                return;
+            }
+
+            TripRequest request = engine.getTripRequestById(selectedRequestId);
+            chosenRequest = request == null || request.isMatched()
+                    ? Collections.emptyList()
+                    : Collections.singletonList(request);
             if (chosenRequest.isEmpty()) {
                 System.out.println("There are no requests with that id.");
                 return;
             }
-            matches = engine.getAllMatchedToRequest(chosenRequest.get(0));
+            MatchRanking ranking = getMatchRankingInput();
+            matches = engine.getTopMatchesToRequest(chosenRequest.get(0), maxMatchesWanted, ranking);
         } catch (InvalidInputException | OperationNotSupportedException e) {
             System.out.println(e.getMessage());
             return;
@@ -339,7 +411,7 @@ public class DialogManager {
             return;
         }
 
-        printMatchesDetails(chosenRequest.get(0), matches, maxMatchesWanted);
+        printMatchesDetails(chosenRequest.get(0), matches);
         List<Integer> matchesIds = matches.stream().map(TripOffer::getId).collect(Collectors.toList());
 
         int selectedMatchId;
@@ -364,8 +436,76 @@ public class DialogManager {
         } catch (OperationNotSupportedException e) {
             System.out.println(e.getMessage());
             return;
+        } catch (MatchConflictException e) {
+            System.out.println(e.getMessage());
+            System.out.println("The match was not committed. Please try again with another match.");
+            return;
         }
 
         System.out.println("Match has been committed!");
     }
+
+    // Command 7 Entry
+    public static void matchAllUnmatchedRequestsDialog() {
+        Map<TripRequest, TripOffer> matches;
+        try {
+            System.out.println("Choose what the matches should be optimized by (Enter the number of option):");
+            printMatchCriteria();
+            MatchCriterion criterion = getMatchCriterionInput();
+
+            matches = engine.matchAllUnmatchedRequests(criterion);
+        } catch (InvalidInputException | OperationNotSupportedException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
+        if (matches.isEmpty()) {
+            System.out.println("None of the unmatched requests could be matched.");
+            return;
+        }
+
+        for (Map.Entry<TripRequest, TripOffer> match : matches.entrySet()) {
+            printfln("Request number %d was matched to trip offer number %d.",
+                    match.getKey().getId(), match.getValue().getId());
+        }
+
+        printfln("%d matches have been committed!", matches.size());
+    }
+
+    // Command 8 Entry
+    public static void planTripRequestItinerariesDialog() {
+        List<TripRequest> requests = getUnmatchedTripRequests();
+        if (requests == null)
+            return;
+
+        for (TripRequest request : requests) {
+            printFormattedUnmatchedTripRequest(request);
+            System.out.println();
+        }
+
+        List<Itinerary> itineraries;
+        try {
+            int selectedRequestId = getIntInput("Select the request you want to plan a ride for:");
+            TripRequest request = engine.getTripRequestById(selectedRequestId);
+            if (request == null || request.isMatched()) {
+                System.out.println("There are no requests with that id.");
+                return;
+            }
+
+            itineraries = engine.getItineraries(request);
+        } catch (InvalidInputException | OperationNotSupportedException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
+        if (itineraries.isEmpty()) {
+            System.out.println("There is no way to get to the destination of that request.");
+            return;
+        }
+
+        for (Itinerary itinerary : itineraries) {
+            printItinerary(itinerary);
+            System.out.println();
+        }
+    }
 }
@@ -55,6 +55,12 @@ public class TranspoolConsole {
             case MATCH_TRIP_REQUEST_TO_OFFER:
                 matchTripRequestToOfferDialog();
                 break;
+            case MATCH_ALL_UNMATCHED_REQUESTS:
+                matchAllUnmatchedRequestsDialog();
+                break;
+            case PLAN_TRIP_REQUEST_ITINERARIES:
+                planTripRequestItinerariesDialog();
+                break;
         }
     }
 }
@@ -2,6 +2,7 @@ package ui.util;
 
 import com.sun.org.apache.bcel.internal.generic.ATHROW;
 import model.CustomExceptions.InvalidInputException;
+import model.Enums.MatchCriterion;
 import model.Enums.RepetitionRate;
 import model.Enums.UserAction;
 import model.Extensions.IntegerExtensions;
@@ -60,6 +61,27 @@ public class Input {
         );
     }
 
+    /**
+     * Reads from the console, check the input to be a valid {@link MatchCriterion}
+     *
+     * @return The {@link MatchCriterion} if input is valid. Null otherwise.
+     */
+    public static MatchCriterion getMatchCriterionInput() throws InvalidInputException {
+        String matchCriterionNum = getUserInput();
+        Integer parsedInt = IntegerExtensions.tryParseInt(matchCriterionNum);
+        if (parsedInt != null) {
+            int shiftedToZeroBased = parsedInt - 1;
+
+            if (MatchCriterion.isValueInRange(shiftedToZeroBased))
+                return MatchCriterion.values()[shiftedToZeroBased];
+        }
+
+        throw new InvalidInputException(
+                "Invalid input.\nInput can only contain numbers between 0 and %d.\n",
+                MatchCriterion.getValuesCount()
+        );
+    }
+
     public static int getIntInput() throws InvalidInputException {
         String userInput = getUserInput();
         Integer parsedToInt = IntegerExtensions.tryParseInt(userInput);
@@ -78,6 +100,17 @@ public class Input {
         return getIntInput();
     }
 
+    /**
+     * Reads a yes (1) or no (0) answer from the console.
+     */
+    public static boolean getYesNoInput(String prompt) throws InvalidInputException {
+        int answer = getIntInput(prompt + " (1 - Yes, 0 - No)");
+        if (answer != 0 && answer != 1)
+            throw new InvalidInputException("Invalid input.\nInput can only be 0 or 1.\n");
+
+        return answer == 1;
+    }
+
     public static String getNonEmptyStringInput() throws InvalidInputException {
         String userInput = getUserInput();
 
@@ -23,7 +23,9 @@ public class Output {
         System.out.println("4.\tGet all trip offers.");
         System.out.println("5.\tGet all trip requests.");
         System.out.println("6.\tMatch an unmatched trip request to an offer.");
-        System.out.println("7.\tExit.");
+        System.out.println("7.\tMatch all the unmatched trip requests automatically.");
+        System.out.println("8.\tPlan a trip request's ride with switches between trips.");
+        System.out.println("9.\tExit.");
     }
 
     public static void printRepetitionRates() {
@@ -34,6 +36,12 @@ public class Output {
         System.out.println("5.\tMonthly.");
     }
 
+    public static void printMatchCriteria() {
+        System.out.println("1.\tLowest price.");
+        System.out.println("2.\tEarliest arrival time.");
+        System.out.println("3.\tBest average gas usage.");
+    }
+
     public static void printfln(String fmt, Object... args) {
         System.out.printf(fmt + "%n", args);
     }